@@ -0,0 +1,75 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic trips of a given number of activities, shaped like the ones users create through the frontend.
+ */
+final class SyntheticTrips {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    private SyntheticTrips() {
+    }
+
+    static Trip trip(String id, int activities) {
+        List<Activity> activityList = new ArrayList<>(activities);
+        for (int i = 0; i < activities; i++) {
+            activityList.add(activity(id + "-a" + i, "Activity " + i));
+        }
+        List<Accommodation> accommodations = new ArrayList<>();
+        accommodations.add(accommodation(id + "-h0", "Hotel", "place-0"));
+        List<Travel> travels = new ArrayList<>();
+        travels.add(travel("Flight", "PLANE"));
+        return new Trip(id, "Trip " + id, "A synthetic trip with " + activities + " activities", "john", CREATED,
+            LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 15), List.of("john", "mary"), accommodations, activityList,
+            travels, new BigDecimal("2500.00"), 7L);
+    }
+
+    static Activity activity(String id, String name) {
+        return new Activity(id, name, "Rua Augusta 1, Lisboa", "CULTURE", "john", CREATED, CREATED.plusDays(3),
+            new BigDecimal("12.50"), "Guided visit with a reasonably long description", "38.7223", "-9.1393");
+    }
+
+    static Accommodation accommodation(String id, String name, String googlePlaceId) {
+        Accommodation accommodation = new Accommodation();
+        accommodation.setId(id);
+        accommodation.setName(name);
+        accommodation.setGooglePlaceId(googlePlaceId);
+        accommodation.setAddress("Avenida da Liberdade 10, Lisboa");
+        accommodation.setCheckInDate(CREATED.plusDays(59));
+        accommodation.setCheckOutDate(CREATED.plusDays(73));
+        accommodation.setPriceForAdult(new BigDecimal("95.00"));
+        return accommodation;
+    }
+
+    static Travel travel(String name, String transport) {
+        return new Travel(null, name, transport, "38.7", "-9.1", CREATED.plusDays(59), "41.1", "-8.6",
+            CREATED.plusDays(59).plusHours(1), "1h", "300km", "80", null);
+    }
+
+    // Same mapping setup the application gets from Spring Boot's Mongo auto-configuration
+    static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
@@ -0,0 +1,58 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * CBOR counterpart of {@link TripJsonBenchmark}, for the same trips, so the two formats can be compared side by side.
+ * The encoded sizes of both formats are reported next to the serialization scores as the {@code jsonBytes} and
+ * {@code cborBytes} counters.
+ */
+@State(Scope.Benchmark)
+public class TripCborBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int activities;
+
+    private ObjectMapper objectMapper;
+    private Trip trip;
+    private byte[] cbor;
+    private int jsonBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        trip = SyntheticTrips.trip("t1", activities);
+        cbor = objectMapper.writeValueAsBytes(trip);
+        jsonBytes = Jackson2ObjectMapperBuilder.json().build().writeValueAsBytes(trip).length;
+    }
+
+    @Benchmark
+    public byte[] serialize(PayloadSize size) throws Exception {
+        byte[] encoded = objectMapper.writeValueAsBytes(trip);
+        size.cborBytes = encoded.length;
+        size.jsonBytes = jsonBytes;
+        return encoded;
+    }
+
+    @Benchmark
+    public Trip deserialize() throws Exception {
+        return objectMapper.readValue(cbor, Trip.class);
+    }
+
+    // Reported as is rather than as a rate, since the sizes are set rather than counted
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        public long jsonBytes;
+        public long cborBytes;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripQueries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+
+/**
+ * In-memory work TripService does before a write reaches the driver: copying the {@link Trip} record for a versioned
+ * replace, copying an {@link Activity} to assign its id, and building the partial update.
+ */
+@State(Scope.Benchmark)
+public class TripCopyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int activities;
+
+    private Trip trip;
+    private Activity activityWithoutId;
+    private PartialTripDto partialTripDto;
+
+    @Setup
+    public void setUp() {
+        trip = SyntheticTrips.trip("t1", activities);
+        activityWithoutId = SyntheticTrips.activity(null, "Museum");
+        partialTripDto = new PartialTripDto();
+        partialTripDto.setName("Renamed");
+        partialTripDto.setStartDate(LocalDate.of(2026, 4, 1));
+    }
+
+    @Benchmark
+    public Trip copyTripWithVersion() {
+        return trip.withVersion(trip.version() + 1);
+    }
+
+    @Benchmark
+    public Activity copyActivityWithGeneratedId() {
+        return TripQueries.withGeneratedId(activityWithoutId);
+    }
+
+    @Benchmark
+    public Update buildPartialUpdate() {
+        return TripQueries.partialUpdate(trip, partialTripDto);
+    }
+}
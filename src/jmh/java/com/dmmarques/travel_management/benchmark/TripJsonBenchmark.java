@@ -0,0 +1,41 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Jackson (de)serialization of {@link Trip} as done by the controllers, with the same mapper defaults Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+public class TripJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int activities;
+
+    private ObjectMapper objectMapper;
+    private Trip trip;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        trip = SyntheticTrips.trip("t1", activities);
+        json = objectMapper.writeValueAsBytes(trip);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(trip);
+    }
+
+    @Benchmark
+    public Trip deserialize() throws Exception {
+        return objectMapper.readValue(json, Trip.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.dto.TripSummaryDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serialization of a user's full trip listing against their summary listing, in both negotiated formats, the part of
+ * the response time of both endpoints that the web tier pays. The payload sizes are asserted by
+ * {@code TripListingPayloadTest}.
+ */
+@State(Scope.Benchmark)
+public class TripListingBenchmark {
+
+    private static final int ACTIVITIES_PER_TRIP = 20;
+
+    @Param({"250"})
+    int trips;
+
+    @Param({"json", "cbor"})
+    String format;
+
+    private ObjectMapper objectMapper;
+    private List<Trip> fullListing;
+    private List<TripSummaryDto> summaryListing;
+
+    @Setup
+    public void setUp() {
+        objectMapper = "cbor".equals(format) ? Jackson2ObjectMapperBuilder.cbor().build() : Jackson2ObjectMapperBuilder.json().build();
+        fullListing = new ArrayList<>(trips);
+        summaryListing = new ArrayList<>(trips);
+        for (int i = 0; i < trips; i++) {
+            Trip trip = SyntheticTrips.trip("t" + i, ACTIVITIES_PER_TRIP);
+            fullListing.add(trip);
+            summaryListing.add(new TripSummaryDto(trip.id(), trip.name(), trip.startDate(), trip.endDate(), trip.budget(),
+                trip.activityList().size(), trip.accommodations().size(), trip.travelList().size(), trip.version()));
+        }
+    }
+
+    @Benchmark
+    public byte[] fullListing() throws Exception {
+        return objectMapper.writeValueAsBytes(fullListing);
+    }
+
+    @Benchmark
+    public byte[] summaryListing() throws Exception {
+        return objectMapper.writeValueAsBytes(summaryListing);
+    }
+}
@@ -0,0 +1,71 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Mapping cost between {@link Trip} and its BSON document, which every full read and every replace pays in
+ * proportion to the trip's size, compared with mapping the positional updates that
+ * {@code updateTravelFromTrip} / {@code updateAccommodationFromTrip} send instead.
+ */
+@State(Scope.Benchmark)
+public class TripMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int activities;
+
+    private MappingMongoConverter converter;
+    private UpdateMapper updateMapper;
+    private MongoPersistentEntity<?> tripEntity;
+    private Trip trip;
+    private Document tripDocument;
+    private Travel travel;
+    private Accommodation accommodation;
+
+    @Setup
+    public void setUp() {
+        converter = SyntheticTrips.converter();
+        updateMapper = new UpdateMapper(converter);
+        tripEntity = converter.getMappingContext().getRequiredPersistentEntity(Trip.class);
+        trip = SyntheticTrips.trip("t1", activities);
+        tripDocument = new Document();
+        converter.write(trip, tripDocument);
+        travel = SyntheticTrips.travel("Flight", "TRAIN");
+        accommodation = SyntheticTrips.accommodation("t1-h0", "Hotel", "place-1");
+    }
+
+    @Benchmark
+    public Document writeTrip() {
+        Document document = new Document();
+        converter.write(trip, document);
+        return document;
+    }
+
+    @Benchmark
+    public Trip readTrip() {
+        return converter.read(Trip.class, tripDocument);
+    }
+
+    @Benchmark
+    public Document mapTravelUpdate() {
+        Update update = new Update().set("travelList.$", travel).inc("version", 1);
+        return updateMapper.getMappedObject(update.getUpdateObject(), tripEntity);
+    }
+
+    @Benchmark
+    public Document mapAccommodationUpdate() {
+        Update update = new Update().set("accommodations.$", accommodation).inc("version", 1);
+        return updateMapper.getMappedObject(update.getUpdateObject(), tripEntity);
+    }
+}
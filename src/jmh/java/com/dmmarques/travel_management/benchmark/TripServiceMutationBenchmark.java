@@ -0,0 +1,102 @@
+package com.dmmarques.travel_management.benchmark;
+
+import com.dmmarques.travel_management.config.TripCacheProperties;
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.repository.TripRepository;
+import com.dmmarques.travel_management.service.TripCache;
+import com.dmmarques.travel_management.service.TripEventService;
+import com.dmmarques.travel_management.service.TripQueries;
+import com.dmmarques.travel_management.service.TripService;
+import com.dmmarques.travel_management.service.TripStatsService;
+import com.dmmarques.travel_management.service.TripWriteRetrier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+/**
+ * End-to-end cost of the sub-document mutations in {@link TripService}, with an in-memory Mongo server standing in
+ * for the database behind {@link TripRepository}. The trip is reseeded once per iteration so that its size stays at
+ * the configured number of activities.
+ */
+@State(Scope.Benchmark)
+public class TripServiceMutationBenchmark {
+
+    private static final String TRIP_ID = "t1";
+
+    @Param({"10", "100", "1000"})
+    int activities;
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private TripService tripService;
+    private Travel travel;
+    private Accommodation accommodation;
+    private Activity activity;
+
+    @Setup(Level.Trial)
+    public void startMongo() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trips");
+        TripRepository tripRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(TripRepository.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tripService = new TripService(tripRepository, mongoTemplate,
+            new TripWriteRetrier(new TripWriteRetryProperties(5, Duration.ofMillis(1), Duration.ofMillis(10)), meterRegistry),
+            new TripCache(tripRepository, new TripCacheProperties(true, 100, Duration.ofMinutes(1)), meterRegistry),
+            new TripStatsService(mongoTemplate), new TripSyncProperties(Duration.ofSeconds(2)),
+            new TripEventService(mongoTemplate, new TripEventsProperties(64, Duration.ofSeconds(15), false), new ObjectMapper()));
+        travel = SyntheticTrips.travel("Flight", "TRAIN");
+        accommodation = SyntheticTrips.accommodation(TRIP_ID + "-h0", "Hotel", "place-1");
+        activity = SyntheticTrips.activity(TRIP_ID + "-a0", "Renamed activity");
+    }
+
+    @Setup(Level.Iteration)
+    public void seedTrip() {
+        mongoTemplate.remove(TripQueries.byTripId(TRIP_ID), Trip.class);
+        mongoTemplate.insert(SyntheticTrips.trip(TRIP_ID, activities));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopMongo() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean updateTravelFromTrip() {
+        return tripService.updateTravelFromTrip(TRIP_ID, travel);
+    }
+
+    @Benchmark
+    public boolean updateAccommodationFromTrip() {
+        return tripService.updateAccommodationFromTrip(TRIP_ID, accommodation);
+    }
+
+    @Benchmark
+    public Activity updateActivityFromTrip() {
+        return tripService.updateActivityFromTrip(TRIP_ID, activity);
+    }
+}
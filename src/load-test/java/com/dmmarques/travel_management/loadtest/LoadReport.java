@@ -0,0 +1,104 @@
+package com.dmmarques.travel_management.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Collects the latency and outcome of every request per endpoint and turns them into throughput and latency
+ * percentiles once the run is over.
+ */
+class LoadReport {
+
+    static final String OVERALL = "all endpoints";
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    void startRecording() {
+        recording = true;
+    }
+
+    void record(String endpoint, long nanos, boolean success) {
+        if (!recording) {
+            return;
+        }
+        Recorder recorder = recorders.computeIfAbsent(endpoint, ignored -> new Recorder());
+        recorder.latencies.add(nanos);
+        if (!success) {
+            recorder.errors.increment();
+        }
+    }
+
+    List<EndpointStats> summarize(Duration elapsed) {
+        List<EndpointStats> stats = new ArrayList<>();
+        recorders.forEach((endpoint, recorder) -> stats.add(statsOf(endpoint, recorder.latencies.stream(), recorder.errors.sum(), elapsed)));
+        stats.sort((a, b) -> a.endpoint().compareTo(b.endpoint()));
+        return stats;
+    }
+
+    // Every request of the run as one endpoint, which is what two runs of the same workload are compared on
+    EndpointStats overall(Duration elapsed) {
+        return statsOf(OVERALL, recorders.values().stream().flatMap(recorder -> recorder.latencies.stream()),
+            recorders.values().stream().mapToLong(recorder -> recorder.errors.sum()).sum(), elapsed);
+    }
+
+    static String format(List<EndpointStats> stats) {
+        StringBuilder table = new StringBuilder(String.format("%n%-52s %8s %7s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (EndpointStats s : stats) {
+            table.append(String.format("%-52s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                s.endpoint(), s.requests(), s.errors(), s.throughput(), s.p50Millis(), s.p95Millis(), s.p99Millis(), s.maxMillis()));
+        }
+        return table.toString();
+    }
+
+    static void writeJson(RunReport report, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    private static EndpointStats statsOf(String endpoint, Stream<Long> latencies, long errors, Duration elapsed) {
+        long[] nanos = latencies.mapToLong(Long::longValue).sorted().toArray();
+        return new EndpointStats(endpoint, nanos.length, errors, nanos.length * 1000.0 / Math.max(1, elapsed.toMillis()),
+            percentileMillis(nanos, 0.50), percentileMillis(nanos, 0.95), percentileMillis(nanos, 0.99),
+            nanos.length == 0 ? 0 : nanos[nanos.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+    }
+
+    record EndpointStats(String endpoint, long requests, long errors, double throughput,
+                         double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    // The thread model is part of the report, so that runs with and without virtual threads can be told apart
+    record RunReport(boolean virtualThreads, int concurrency, EndpointStats overall, List<EndpointStats> endpoints) {
+    }
+
+    private static final class Recorder {
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final LongAdder errors = new LongAdder();
+    }
+}
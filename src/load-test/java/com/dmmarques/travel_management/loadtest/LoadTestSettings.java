@@ -0,0 +1,37 @@
+package com.dmmarques.travel_management.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Knobs of the load test, read from {@code load.*} system properties so that they can be set from the Maven command
+ * line. Leaving {@code load.mongoUri} empty runs against an in-process Mongo stand-in.
+ */
+record LoadTestSettings(String mongoUri,
+                        int concurrency,
+                        Duration warmup,
+                        Duration duration,
+                        Duration requestTimeout,
+                        int users,
+                        int tripsPerUser,
+                        int activitiesPerTrip,
+                        double writeRatio,
+                        long maxP99Millis,
+                        double maxErrorRate,
+                        String reportFile) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            System.getProperty("load.mongoUri", ""),
+            Integer.getInteger("load.concurrency", 32),
+            Duration.parse("PT" + System.getProperty("load.warmup", "5s")),
+            Duration.parse("PT" + System.getProperty("load.duration", "30s")),
+            Duration.parse("PT" + System.getProperty("load.requestTimeout", "10s")),
+            Integer.getInteger("load.users", 20),
+            Integer.getInteger("load.tripsPerUser", 10),
+            Integer.getInteger("load.activitiesPerTrip", 15),
+            Double.parseDouble(System.getProperty("load.writeRatio", "0.2")),
+            Long.getLong("load.threshold.p99Millis", 1000),
+            Double.parseDouble(System.getProperty("load.threshold.maxErrorRate", "0.01")),
+            System.getProperty("load.reportFile", "target/load-test-report.json"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.dmmarques.travel_management.loadtest;
+
+import com.dmmarques.travel_management.App;
+import com.dmmarques.travel_management.loadtest.LoadReport.EndpointStats;
+import com.dmmarques.travel_management.loadtest.TripApiWorkload.LoadTestData;
+import com.dmmarques.travel_management.loadtest.TripApiWorkload.SeededTrip;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the whole application on a random port against Mongo, seeds users with trips and drives a mixed workload over
+ * the endpoints of {@link TripApiWorkload} at the configured concurrency. The per-endpoint and overall throughput and
+ * latency percentiles are logged and written to a JSON report, together with whether requests were served on virtual
+ * threads ({@code VIRTUAL_THREADS_ENABLED}), and the build fails when an endpoint exceeds the p99 or error-rate threshold.
+ */
+@Slf4j
+@SpringBootTest(classes = App.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class TripApiLoadIT {
+
+    private static final LoadTestSettings SETTINGS = LoadTestSettings.fromSystemProperties();
+
+    private static MongoServer mongoServer;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", TripApiLoadIT::mongoUri);
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoServer != null) {
+            mongoServer.shutdownNow();
+        }
+    }
+
+    @Test
+    void workloadEndpointsMeetTheirThresholds() throws Exception {
+        String baseUrl = "http://localhost:" + port + "/travel-management-ms";
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                                              .executor(workers)
+                                              .version(HttpClient.Version.HTTP_1_1)
+                                              .connectTimeout(SETTINGS.requestTimeout())
+                                              .build();
+            List<SeededTrip> trips = seed(httpClient, baseUrl);
+            LoadReport report = new LoadReport();
+            TripApiWorkload workload = new TripApiWorkload(httpClient, baseUrl, trips, SETTINGS.writeRatio(), SETTINGS.requestTimeout(), report);
+
+            run(workers, workload, SETTINGS.warmup());
+            report.startRecording();
+            long start = System.nanoTime();
+            run(workers, workload, SETTINGS.duration());
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            List<EndpointStats> stats = report.summarize(elapsed);
+            EndpointStats overall = report.overall(elapsed);
+
+            log.info("Load test with {} concurrent clients for {}, virtual threads {}:{}", SETTINGS.concurrency(), SETTINGS.duration(),
+                virtualThreads ? "enabled" : "disabled", LoadReport.format(append(stats, overall)));
+            LoadReport.writeJson(new LoadReport.RunReport(virtualThreads, SETTINGS.concurrency(), overall, stats),
+                Path.of(SETTINGS.reportFile()));
+            assertThresholds(stats);
+        }
+    }
+
+    private static List<SeededTrip> seed(HttpClient httpClient, String baseUrl) throws Exception {
+        List<SeededTrip> trips = new ArrayList<>();
+        for (int user = 0; user < SETTINGS.users(); user++) {
+            String username = "load-user-" + user;
+            for (int trip = 0; trip < SETTINGS.tripsPerUser(); trip++) {
+                String name = "Trip " + username + "-" + trip;
+                HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/trips/trip"))
+                        .header("Content-Type", "application/json")
+                        .timeout(SETTINGS.requestTimeout())
+                        .POST(HttpRequest.BodyPublishers.ofString(LoadTestData.tripJson(null, username, name, SETTINGS.activitiesPerTrip())))
+                        .build(),
+                    HttpResponse.BodyHandlers.ofString());
+                assertEquals(201, response.statusCode(), "seeding " + name + ": " + response.body());
+                trips.add(new SeededTrip(response.body(), username, name, SETTINGS.activitiesPerTrip()));
+            }
+        }
+        return trips;
+    }
+
+    private static void run(ExecutorService workers, TripApiWorkload workload, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<?>> clients = new ArrayList<>();
+        for (int i = 0; i < SETTINGS.concurrency(); i++) {
+            clients.add(workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    workload.runOnce();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : clients) {
+            client.get();
+        }
+    }
+
+    private static List<EndpointStats> append(List<EndpointStats> stats, EndpointStats overall) {
+        List<EndpointStats> rows = new ArrayList<>(stats);
+        rows.add(overall);
+        return rows;
+    }
+
+    private static void assertThresholds(List<EndpointStats> stats) {
+        assertEquals(Set.copyOf(TripApiWorkload.ENDPOINTS), stats.stream().map(EndpointStats::endpoint).collect(Collectors.toSet()),
+            "every endpoint of the workload should have been exercised: " + stats);
+        assertAll(stats.stream().map(s -> () -> {
+            assertTrue(s.p99Millis() <= SETTINGS.maxP99Millis(),
+                s.endpoint() + " p99 " + s.p99Millis() + " ms exceeds " + SETTINGS.maxP99Millis() + " ms");
+            assertTrue(s.errorRate() <= SETTINGS.maxErrorRate(),
+                s.endpoint() + " error rate " + s.errorRate() + " exceeds " + SETTINGS.maxErrorRate());
+        }));
+    }
+
+    private static synchronized String mongoUri() {
+        if (!SETTINGS.mongoUri().isBlank()) {
+            return SETTINGS.mongoUri();
+        }
+        if (mongoServer == null) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            mongoServer.bind();
+        }
+        // The stand-in occasionally drops a reply under concurrent load; the socket timeout turns that into an error
+        InetSocketAddress address = mongoServer.getLocalAddress();
+        return "mongodb://" + address.getHostString() + ":" + address.getPort() + "/trips?socketTimeoutMS="
+            + SETTINGS.requestTimeout().toMillis();
+    }
+}
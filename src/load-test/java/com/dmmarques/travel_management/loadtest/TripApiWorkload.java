@@ -0,0 +1,242 @@
+package com.dmmarques.travel_management.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mixed read/write traffic over the trip listings, lookups and sub-document writes of {@code TripController}, listed in
+ * {@link #ENDPOINTS}. Reads target the seeded trips; writes either replace data of the same size or add a sub-document
+ * and remove it again, so the data set keeps its shape for the whole run. Left out are deleting trips, which would
+ * shrink the data set, the streamed export, import and event endpoints, which are not request/response calls, and the
+ * sync and aggregation reads (overlapping, schedule, costs, nearby and the activity page), several of which use
+ * operators the in-process Mongo stand-in does not support.
+ */
+class TripApiWorkload {
+
+    // Every endpoint the workload records, so that a run can be checked to have exercised them all
+    static final List<String> ENDPOINTS = List.of(
+        "GET /trips/{username}", "GET /trips/summary/{username}", "GET /trips/page/{username}",
+        "GET /trips/summary/page/{username}", "GET /trips/trip/{tripname}", "GET /trips?username&tripId",
+        "GET /trips/batch/{username}", "GET /trips/summary/batch/{username}", "GET /trips/stats/{username}",
+        "GET /trips/trip/{tripId}/accommodation",
+        "POST /trips/trip", "PUT /trips/trip", "PUT /trips/trip/partial/{tripId}", "PUT /trips/trip/{tripId}",
+        "PUT /trips/activity/{tripId}", "DELETE /trips/trip/{tripId}?activityId", "POST /trips/trip/{tripId}/activities",
+        "PUT /trips/trip/{tripId}/accommodation", "PUT /trips/trip/{tripId}/accommodation/update",
+        "DELETE /trips/trip/{tripId}/accommodation", "PUT /trips/trip/{tripId}/travel", "PUT /trips/trip/{tripId}/travel/update",
+        "DELETE /trips/trip/{tripId}/travel");
+
+    private static final Pattern QUOTED = Pattern.compile("\"([^\"]+)\"");
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final List<SeededTrip> trips;
+    private final double writeRatio;
+    private final Duration requestTimeout;
+    private final LoadReport report;
+
+    TripApiWorkload(HttpClient httpClient, String baseUrl, List<SeededTrip> trips, double writeRatio, Duration requestTimeout,
+                    LoadReport report) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.trips = trips;
+        this.writeRatio = writeRatio;
+        this.requestTimeout = requestTimeout;
+        this.report = report;
+    }
+
+    void runOnce() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SeededTrip trip = trips.get(random.nextInt(trips.size()));
+        if (random.nextDouble() < writeRatio) {
+            write(trip, random.nextInt(8));
+        } else {
+            read(trip, random.nextInt(10));
+        }
+    }
+
+    private void read(SeededTrip trip, int operation) throws IOException, InterruptedException {
+        switch (operation) {
+            case 0 -> get("GET /trips/{username}", "/trips/" + trip.username());
+            case 1 -> get("GET /trips/summary/{username}", "/trips/summary/" + trip.username());
+            case 2 -> get("GET /trips/page/{username}", "/trips/page/" + trip.username() + "?size=5");
+            case 3 -> get("GET /trips/summary/page/{username}", "/trips/summary/page/" + trip.username() + "?size=5");
+            case 4 -> get("GET /trips/trip/{tripname}", "/trips/trip/" + encode(trip.name()));
+            case 5 -> get("GET /trips?username&tripId", "/trips?username=" + trip.username() + "&tripId=" + trip.id());
+            case 6 -> get("GET /trips/batch/{username}", "/trips/batch/" + trip.username() + "?tripIds=" + batchOf(trip));
+            case 7 -> get("GET /trips/summary/batch/{username}", "/trips/summary/batch/" + trip.username() + "?tripIds=" + batchOf(trip));
+            case 8 -> get("GET /trips/stats/{username}", "/trips/stats/" + trip.username());
+            default -> get("GET /trips/trip/{tripId}/accommodation", "/trips/trip/" + trip.id() + "/accommodation");
+        }
+    }
+
+    // A dashboard-sized batch; ids of other users' trips come back as not found
+    private String batchOf(SeededTrip trip) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.join(",", trip.id(), trips.get(random.nextInt(trips.size())).id(), trips.get(random.nextInt(trips.size())).id());
+    }
+
+    private void write(SeededTrip trip, int operation) throws IOException, InterruptedException {
+        switch (operation) {
+            case 0 -> send("POST /trips/trip", "POST", "/trips/trip",
+                LoadTestData.tripJson(null, trip.username(), "Load " + UUID.randomUUID(), 0));
+            case 1 -> send("PUT /trips/trip", "PUT", "/trips/trip",
+                LoadTestData.tripJson(trip.id(), trip.username(), trip.name(), trip.activities()));
+            case 2 -> send("PUT /trips/trip/partial/{tripId}", "PUT", "/trips/trip/partial/" + trip.id(),
+                "{\"endDate\":\"" + LocalDate.of(2026, 6, 15) + "\",\"budget\":" + ThreadLocalRandom.current().nextInt(500, 5000) + "}");
+            case 3 -> activityLifecycle(trip);
+            case 4 -> accommodationLifecycle(trip);
+            case 5 -> travelLifecycle(trip);
+            case 6 -> bulkActivityLifecycle(trip);
+            default -> send("PUT /trips/activity/{tripId}", "PUT", "/trips/activity/" + trip.id(),
+                LoadTestData.activityJson(trip.id() + "-a0", "Updated activity"));
+        }
+    }
+
+    private void activityLifecycle(SeededTrip trip) throws IOException, InterruptedException {
+        String activityId = UUID.randomUUID().toString();
+        send("PUT /trips/trip/{tripId}", "PUT", "/trips/trip/" + trip.id(), LoadTestData.activityJson(activityId, "Extra activity"));
+        send("PUT /trips/activity/{tripId}", "PUT", "/trips/activity/" + trip.id(), LoadTestData.activityJson(activityId, "Renamed activity"));
+        send("DELETE /trips/trip/{tripId}?activityId", "DELETE", "/trips/trip/" + trip.id() + "?activityId=" + activityId, null);
+    }
+
+    private void bulkActivityLifecycle(SeededTrip trip) throws IOException, InterruptedException {
+        String batch = "[" + LoadTestData.activityJson(null, "Imported activity") + "," + LoadTestData.activityJson(null, "Imported activity") + "]";
+        String activityIds = send("POST /trips/trip/{tripId}/activities", "POST", "/trips/trip/" + trip.id() + "/activities", batch);
+        if (activityIds == null) {
+            return;
+        }
+        Matcher activityId = QUOTED.matcher(activityIds);
+        while (activityId.find()) {
+            send("DELETE /trips/trip/{tripId}?activityId", "DELETE", "/trips/trip/" + trip.id() + "?activityId=" + activityId.group(1), null);
+        }
+    }
+
+    private void accommodationLifecycle(SeededTrip trip) throws IOException, InterruptedException {
+        String name = "Hotel " + UUID.randomUUID();
+        String accommodationId = UUID.randomUUID().toString();
+        send("PUT /trips/trip/{tripId}/accommodation", "PUT", "/trips/trip/" + trip.id() + "/accommodation",
+            LoadTestData.accommodationJson(accommodationId, name, "place-1"));
+        send("PUT /trips/trip/{tripId}/accommodation/update", "PUT", "/trips/trip/" + trip.id() + "/accommodation/update",
+            LoadTestData.accommodationJson(accommodationId, name, "place-2"));
+        send("DELETE /trips/trip/{tripId}/accommodation", "DELETE",
+            "/trips/trip/" + trip.id() + "/accommodation?accommodationId=" + accommodationId, null);
+    }
+
+    private void travelLifecycle(SeededTrip trip) throws IOException, InterruptedException {
+        String name = "Flight " + UUID.randomUUID();
+        send("PUT /trips/trip/{tripId}/travel", "PUT", "/trips/trip/" + trip.id() + "/travel", LoadTestData.travelJson(name, "PLANE"));
+        send("PUT /trips/trip/{tripId}/travel/update", "PUT", "/trips/trip/" + trip.id() + "/travel/update",
+            LoadTestData.travelJson(name, "TRAIN"));
+        send("DELETE /trips/trip/{tripId}/travel", "DELETE", "/trips/trip/" + trip.id() + "/travel?travelName=" + encode(name), null);
+    }
+
+    private void get(String endpoint, String path) throws IOException, InterruptedException {
+        send(endpoint, "GET", path, null);
+    }
+
+    // Returns the response body of a 2xx response, or null when the request failed
+    private String send(String endpoint, String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(requestTimeout);
+        if (json == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+        }
+        long start = System.nanoTime();
+        String body;
+        try {
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            body = response.statusCode() / 100 == 2 ? response.body() : null;
+        } catch (IOException e) {
+            // Includes HttpTimeoutException, so a stalled request is an error rather than a hung client
+            body = null;
+        }
+        report.record(endpoint, System.nanoTime() - start, body != null);
+        return body;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    record SeededTrip(String id, String username, String name, int activities) {
+    }
+
+    static final class LoadTestData {
+
+        private static final LocalDateTime CREATED = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+        private LoadTestData() {
+        }
+
+        static String tripJson(String id, String username, String name, int activities) {
+            String prefix = id != null ? id : UUID.randomUUID().toString();
+            StringBuilder activityList = new StringBuilder();
+            for (int i = 0; i < activities; i++) {
+                activityList.append(i == 0 ? "" : ",").append(activityJson(prefix + "-a" + i, "Activity " + i));
+            }
+            return "{" +
+                (id != null ? "\"id\":\"" + id + "\"," : "") +
+                "\"name\":\"" + name + "\"," +
+                "\"description\":\"Two weeks around Portugal\"," +
+                "\"creatorUsername\":\"" + username + "\"," +
+                "\"creationDate\":\"" + CREATED + "\"," +
+                "\"startDate\":\"" + LocalDate.of(2026, 6, 1) + "\"," +
+                "\"endDate\":\"" + LocalDate.of(2026, 6, 14) + "\"," +
+                "\"participantUsernames\":[\"" + username + "\"]," +
+                "\"accommodations\":[" + accommodationJson(prefix + "-h0", "Hotel", "place-0") + "]," +
+                "\"activityList\":[" + activityList + "]," +
+                "\"travelList\":[" + travelJson("Flight", "PLANE") + "]," +
+                "\"budget\":2500}";
+        }
+
+        static String activityJson(String id, String name) {
+            return "{" +
+                (id != null ? "\"id\":\"" + id + "\"," : "") +
+                "\"name\":\"" + name + "\"," +
+                "\"address\":\"Rua Augusta 1, Lisboa\"," +
+                "\"category\":\"CULTURE\"," +
+                "\"creatorUsername\":\"john\"," +
+                "\"creationDate\":\"" + CREATED + "\"," +
+                "\"activityDate\":\"" + CREATED.plusDays(152) + "\"," +
+                "\"cost\":12.5," +
+                "\"description\":\"Guided visit\"," +
+                "\"latitude\":\"38.7223\",\"longitude\":\"-9.1393\"}";
+        }
+
+        static String accommodationJson(String id, String name, String googlePlaceId) {
+            return "{" +
+                "\"id\":\"" + id + "\"," +
+                "\"name\":\"" + name + "\"," +
+                "\"googlePlaceId\":\"" + googlePlaceId + "\"," +
+                "\"address\":\"Avenida da Liberdade 10, Lisboa\"," +
+                "\"checkInDate\":\"" + CREATED.plusDays(151) + "\"," +
+                "\"checkOutDate\":\"" + CREATED.plusDays(164) + "\"," +
+                "\"priceForAdult\":95}";
+        }
+
+        static String travelJson(String name, String transport) {
+            return "{" +
+                "\"name\":\"" + name + "\"," +
+                "\"transport\":\"" + transport + "\"," +
+                "\"fromLat\":\"38.7\",\"fromLng\":\"-9.1\"," +
+                "\"departureDate\":\"" + CREATED.plusDays(151) + "\"," +
+                "\"toLat\":\"41.1\",\"toLng\":\"-8.6\"," +
+                "\"arrivalDate\":\"" + CREATED.plusDays(151).plusHours(1) + "\"," +
+                "\"estimatedDuration\":\"1h\",\"distance\":\"300km\"}";
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dmmarques.travel_management.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Lets clients send and receive trips as CBOR ({@code application/cbor}) through {@code Content-Type} and
+ * {@code Accept}; JSON remains the default.
+ */
+@Configuration
+public class CborConfig {
+
+    // Built from Spring Boot's builder so that CBOR follows the JSON settings; it replaces Spring MVC's default converter
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
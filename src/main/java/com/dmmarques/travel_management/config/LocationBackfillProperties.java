@@ -0,0 +1,12 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Whether the GeoJSON points of activities and accommodations stored before they were derived are backfilled at
+ * startup, and how many trips the backfill cursor fetches per batch.
+ */
+@ConfigurationProperties(prefix = "travel-management.location-backfill")
+public record LocationBackfillProperties(@DefaultValue("false") boolean enabled, @DefaultValue("100") int batchSize) {
+}
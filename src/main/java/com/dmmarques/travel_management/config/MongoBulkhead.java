@@ -0,0 +1,57 @@
+package com.dmmarques.travel_management.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many requests may use Mongo at the same time. With virtual threads the number of in-flight requests is no
+ * longer bounded by the servlet thread pool, so callers over the limit wait up to the acquire timeout for a permit
+ * and are rejected after that instead of queueing inside the driver's connection pool.
+ */
+@Component
+public class MongoBulkhead {
+
+    static final String ACTIVE_METRIC = "mongo.bulkhead.active";
+    static final String REJECTED_METRIC = "mongo.bulkhead.rejected";
+
+    private final MongoBulkheadProperties properties;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public MongoBulkhead(MongoBulkheadProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.permits = new Semaphore(properties.maxConcurrentCalls(), true);
+        this.rejected = meterRegistry.counter(REJECTED_METRIC);
+        Gauge.builder(ACTIVE_METRIC, this, MongoBulkhead::activeCalls).register(meterRegistry);
+    }
+
+    public boolean tryAcquire() {
+        if (!properties.enabled()) {
+            return true;
+        }
+        try {
+            if (permits.tryAcquire(properties.acquireTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        if (properties.enabled()) {
+            permits.release();
+        }
+    }
+
+    public int activeCalls() {
+        return properties.maxConcurrentCalls() - permits.availablePermits();
+    }
+}
@@ -0,0 +1,30 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MongoBulkheadConfig {
+
+    @Bean
+    public FilterRegistrationBean<MongoBulkheadFilter> mongoBulkheadFilter(MongoBulkhead bulkhead) {
+        FilterRegistrationBean<MongoBulkheadFilter> registration = new FilterRegistrationBean<>(new MongoBulkheadFilter(bulkhead));
+        registration.addUrlPatterns("/trips/*", "/activities/*");
+        return registration;
+    }
+
+    /**
+     * Sizes the driver's connection pool to the bulkhead so that every request holding a permit can get a connection
+     * without waiting in the driver's own queue.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolSizeCustomizer(MongoBulkheadProperties properties) {
+        return settings -> {
+            if (properties.enabled()) {
+                settings.applyToConnectionPoolSettings(pool -> pool.maxSize(properties.maxConcurrentCalls()));
+            }
+        };
+    }
+}
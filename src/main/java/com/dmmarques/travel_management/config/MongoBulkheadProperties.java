@@ -0,0 +1,12 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "travel-management.mongo-bulkhead")
+public record MongoBulkheadProperties(@DefaultValue("true") boolean enabled,
+                                      @DefaultValue("100") int maxConcurrentCalls,
+                                      @DefaultValue("1s") Duration acquireTimeout) {
+}
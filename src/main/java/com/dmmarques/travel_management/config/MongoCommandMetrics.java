@@ -0,0 +1,106 @@
+package com.dmmarques.travel_management.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every command the driver sends, together with the number of documents and bytes each reply
+ * carries, tagged by collection and operation. The collection is only known when the command starts, so it is kept per
+ * request id until the command completes.
+ */
+public class MongoCommandMetrics implements CommandListener {
+
+    static final String COMMANDS_METRIC = "mongo.commands";
+    static final String DOCUMENTS_METRIC = "mongo.commands.documents";
+    static final String REPLY_SIZE_METRIC = "mongo.commands.reply.size";
+
+    private static final String NO_COLLECTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, String> collectionsByRequestId = new ConcurrentHashMap<>();
+
+    public MongoCommandMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        collectionsByRequestId.put(event.getRequestId(), collectionOf(event.getCommandName(), event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Tags tags = tags(event.getRequestId(), event.getCommandName());
+        timer(tags.and("status", "success")).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        BsonDocument response = event.getResponse();
+        if (response != null) {
+            DistributionSummary.builder(DOCUMENTS_METRIC).tags(tags).register(meterRegistry).record(documentsIn(response));
+            DistributionSummary.builder(REPLY_SIZE_METRIC).baseUnit("bytes").tags(tags).register(meterRegistry).record(sizeOf(response));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Tags tags = tags(event.getRequestId(), event.getCommandName());
+        timer(tags.and("status", "failure")).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    private Tags tags(int requestId, String commandName) {
+        String collection = collectionsByRequestId.remove(requestId);
+        return Tags.of("collection", collection != null ? collection : NO_COLLECTION, "operation", commandName);
+    }
+
+    private Timer timer(Tags tags) {
+        return Timer.builder(COMMANDS_METRIC).tags(tags).publishPercentileHistogram().register(meterRegistry);
+    }
+
+    // getMore names its collection in a field of its own; the other CRUD commands carry it as the command's value
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue collection = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return collection != null && collection.isString() ? collection.asString().getValue() : NO_COLLECTION;
+    }
+
+    // Cursor replies count their batch, write replies the number of documents they affected
+    private static int documentsIn(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            for (String batch : new String[]{"firstBatch", "nextBatch"}) {
+                BsonValue documents = cursor.asDocument().get(batch);
+                if (documents instanceof BsonArray array) {
+                    return array.size();
+                }
+            }
+        }
+        BsonValue affected = response.get("n");
+        return affected != null && affected.isNumber() ? affected.asNumber().intValue() : 0;
+    }
+
+    // Replies arrive as raw BSON, so their size is read off the buffer rather than re-encoded
+    private static int sizeOf(BsonDocument response) {
+        if (response instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        try (BasicOutputBuffer buffer = new BasicOutputBuffer(); BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            new BsonDocumentCodec().encode(writer, response, EncoderContext.builder().build());
+            return buffer.getPosition();
+        }
+    }
+}
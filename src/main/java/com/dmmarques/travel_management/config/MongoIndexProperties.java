@@ -0,0 +1,8 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "travel-management.indexes")
+public record MongoIndexProperties(@DefaultValue("true") boolean createMissing) {
+}
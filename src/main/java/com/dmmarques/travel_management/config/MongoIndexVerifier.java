@@ -0,0 +1,106 @@
+package com.dmmarques.travel_management.config;
+
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripStatsEntry;
+import com.dmmarques.travel_management.model.TripTombstone;
+import com.dmmarques.travel_management.model.UserTripStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver.IndexDefinitionHolder;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the indexes declared on the mapped documents with the ones present in the database at startup, creates
+ * the missing ones when enabled and reports missing, mismatched and undeclared indexes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexVerifier {
+
+    static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Trip.class, TripTombstone.class, TripStatsEntry.class,
+        UserTripStats.class);
+
+    private static final String ID_INDEX = "_id_";
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoIndexProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        for (Class<?> documentType : INDEXED_DOCUMENTS) {
+            IndexReport report = verify(documentType);
+            if (report.isClean()) {
+                log.info("Indexes of {} match the declared ones", report.collection());
+            } else {
+                log.warn("Indexes of {} differ from the declared ones: missing={}, created={}, mismatched={}, extra={}",
+                    report.collection(), report.missing(), report.created(), report.mismatched(), report.extra());
+            }
+        }
+    }
+
+    public IndexReport verify(Class<?> documentType) {
+        String collection = mongoTemplate.getCollectionName(documentType);
+        IndexOperations indexOperations = mongoTemplate.indexOps(documentType);
+        Map<String, IndexInfo> existing = new LinkedHashMap<>();
+        indexOperations.getIndexInfo().forEach(index -> existing.put(index.getName(), index));
+        existing.remove(ID_INDEX);
+
+        List<String> missing = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        List<String> mismatched = new ArrayList<>();
+        MongoPersistentEntityIndexResolver resolver =
+            new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (IndexDefinitionHolder declared : resolver.resolveIndexFor(TypeInformation.of(documentType))) {
+            String name = declared.getIndexOptions().getString("name");
+            IndexInfo current = existing.remove(name);
+            if (current == null) {
+                missing.add(name);
+                if (properties.createMissing() && create(indexOperations, declared, collection)) {
+                    created.add(name);
+                }
+            } else if (!matches(declared, current)) {
+                mismatched.add(name);
+            }
+        }
+        return new IndexReport(collection, missing, created, mismatched, List.copyOf(existing.keySet()));
+    }
+
+    private static boolean create(IndexOperations indexOperations, IndexDefinitionHolder declared, String collection) {
+        try {
+            indexOperations.createIndex(declared);
+            return true;
+        } catch (DataAccessException e) {
+            log.error("Could not create index {} on {}", declared.getIndexOptions().get("name"), collection, e);
+            return false;
+        }
+    }
+
+    private static boolean matches(IndexDefinitionHolder declared, IndexInfo current) {
+        List<String> declaredKeys = List.copyOf(declared.getIndexKeys().keySet());
+        List<String> currentKeys = current.getIndexFields().stream().map(IndexField::getKey).toList();
+        return declaredKeys.equals(currentKeys) && declared.getIndexOptions().getBoolean("unique", false) == current.isUnique();
+    }
+
+    public record IndexReport(String collection, List<String> missing, List<String> created,
+                              List<String> mismatched, List<String> extra) {
+
+        public boolean isClean() {
+            return missing.isEmpty() && mismatched.isEmpty() && extra.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.dmmarques.travel_management.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces Spring Boot's Mongo command timer with {@link MongoCommandMetrics}, which also records documents and bytes
+ * per reply. The connection-pool gauges are still registered by Spring Boot.
+ */
+@Configuration
+public class MongoMetricsConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandMetricsCustomizer(MeterRegistry meterRegistry) {
+        MongoCommandMetrics commandMetrics = new MongoCommandMetrics(meterRegistry);
+        return settings -> settings.addCommandListener(commandMetrics);
+    }
+}
@@ -0,0 +1,12 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "travel-management.trip-cache")
+public record TripCacheProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("10000") long maximumSize,
+                                  @DefaultValue("60s") Duration ttl) {
+}
@@ -0,0 +1,17 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * How many change events a subscriber may fall behind before it is told to resync, how often an idle stream sends a
+ * heartbeat, and whether changes reach the subscribers of every instance through a Mongo change stream, which needs a
+ * replica set.
+ */
+@ConfigurationProperties(prefix = "travel-management.trip-events")
+public record TripEventsProperties(@DefaultValue("64") int bufferSize,
+                                  @DefaultValue("15s") Duration heartbeat,
+                                  @DefaultValue("false") boolean changeStream) {
+}
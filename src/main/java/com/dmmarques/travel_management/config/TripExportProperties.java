@@ -0,0 +1,11 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * The batch size bounds how many trips each export request holds in memory at a time.
+ */
+@ConfigurationProperties(prefix = "travel-management.trip-export")
+public record TripExportProperties(@DefaultValue("100") int batchSize) {
+}
@@ -0,0 +1,14 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Number of valid trips an NDJSON import sends to Mongo in each unordered bulk write, the longest line it reads, and
+ * how many failed lines its report lists.
+ */
+@ConfigurationProperties(prefix = "travel-management.trip-import")
+public record TripImportProperties(@DefaultValue("500") int batchSize,
+                                   @DefaultValue("1048576") int maxLineBytes,
+                                   @DefaultValue("100") int maxReportedFailures) {
+}
@@ -0,0 +1,14 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * How long a trip change is held back from the delta sync, so that writes stamped by a node whose clock lags behind
+ * or committed late are not skipped by a token handed out meanwhile.
+ */
+@ConfigurationProperties(prefix = "travel-management.trip-sync")
+public record TripSyncProperties(@DefaultValue("2s") Duration settle) {
+}
@@ -0,0 +1,12 @@
+package com.dmmarques.travel_management.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "travel-management.trip-write-retry")
+public record TripWriteRetryProperties(@DefaultValue("5") int maxAttempts,
+                                       @DefaultValue("10ms") Duration initialBackoff,
+                                       @DefaultValue("200ms") Duration maxBackoff) {
+}
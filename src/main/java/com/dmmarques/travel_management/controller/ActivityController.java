@@ -1,9 +1,11 @@
 package com.dmmarques.travel_management.controller;
 
+import com.dmmarques.travel_management.dto.TripPageDto;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.service.ActivityService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,24 +15,38 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 
 @RestController
 @RequestMapping("/activities")
 @RequiredArgsConstructor
+@Slf4j
 public class ActivityController {
 
     private final ActivityService activityService;
 
     @GetMapping
-    public ResponseEntity<List<Activity>> listAllTripsByUsername(@RequestParam String username, @RequestParam String tripName) {
-        return ResponseEntity.ok(activityService.listAllActivitiesByTripName(username, tripName));
+    public ResponseEntity<TripPageDto<Activity>> listActivityPageByTripName(@RequestParam String username,
+                                                                            @RequestParam String tripName,
+                                                                            @RequestParam(defaultValue = "20") int size,
+                                                                            @RequestParam(required = false) String continuationToken) {
+        try {
+            TripPageDto<Activity> page = activityService.listActivityPageByTripName(username, tripName, size, continuationToken);
+            return page != null ? ResponseEntity.ok(page) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting activity page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PostMapping
-    public ResponseEntity<String> createActivity(@Valid @RequestBody Activity activity) {
-        return new ResponseEntity<>(activityService.createActivity(activity), HttpStatus.CREATED);
+    public ResponseEntity<String> createActivity(@RequestParam String tripId, @Valid @RequestBody Activity activity) {
+        try {
+            String activityId = activityService.createActivity(tripId, activity);
+            return activityId != null ? new ResponseEntity<>(activityId, HttpStatus.CREATED) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting activity creation: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
 }
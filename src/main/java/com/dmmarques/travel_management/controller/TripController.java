@@ -1,29 +1,51 @@
 package com.dmmarques.travel_management.controller;
 
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyPlacesDto;
 import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.dto.TripBatchEntryDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.dto.TripScheduleDto;
+import com.dmmarques.travel_management.dto.TripSummaryDto;
+import com.dmmarques.travel_management.dto.TripSyncDto;
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
 import com.dmmarques.travel_management.model.Accommodation;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.model.Travel;
 import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripETag;
 import com.dmmarques.travel_management.service.TripService;
+import com.dmmarques.travel_management.service.TripSyncExpiredException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static com.dmmarques.travel_management.service.TripQueries.MAX_BULK_ACTIVITIES;
+
 
 @RestController
 @RequestMapping("/trips")
@@ -38,6 +60,143 @@ public class TripController {
         return ResponseEntity.ok(tripService.listAllTripsByUsername(username));
     }
 
+    @GetMapping("/summary/{username}")
+    public ResponseEntity<List<TripSummaryDto>> listTripSummariesByUsername(@PathVariable String username) {
+        return ResponseEntity.ok(tripService.listTripSummariesByUsername(username));
+    }
+
+    @GetMapping("/page/{username}")
+    public ResponseEntity<TripPageDto<Trip>> listTripPageByUsername(@PathVariable String username,
+                                                                    @RequestParam(defaultValue = "20") int size,
+                                                                    @RequestParam(required = false) String continuationToken) {
+        try {
+            return ResponseEntity.ok(tripService.listTripPageByUsername(username, size, continuationToken));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting trip page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/summary/page/{username}")
+    public ResponseEntity<TripPageDto<TripSummaryDto>> listTripSummaryPageByUsername(@PathVariable String username,
+                                                                                     @RequestParam(defaultValue = "20") int size,
+                                                                                     @RequestParam(required = false) String continuationToken) {
+        try {
+            return ResponseEntity.ok(tripService.listTripSummaryPageByUsername(username, size, continuationToken));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting trip summary page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/batch/{username}")
+    public ResponseEntity<List<TripBatchEntryDto<Trip>>> listTripBatchByUsername(@PathVariable String username,
+                                                                                @RequestParam List<String> tripIds) {
+        try {
+            return ResponseEntity.ok(tripService.listTripBatchByUsername(username, tripIds));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting trip batch request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/summary/batch/{username}")
+    public ResponseEntity<List<TripBatchEntryDto<TripSummaryDto>>> listTripSummaryBatchByUsername(@PathVariable String username,
+                                                                                                 @RequestParam List<String> tripIds) {
+        try {
+            return ResponseEntity.ok(tripService.listTripSummaryBatchByUsername(username, tripIds));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting trip summary batch request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/overlapping/{username}")
+    public ResponseEntity<List<TripSummaryDto>> listTripsOverlapping(@PathVariable String username,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(tripService.listTripsOverlapping(username, from, to));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting overlapping trips request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/schedule/{username}")
+    public ResponseEntity<List<TripScheduleDto>> listScheduleBetween(@PathVariable String username,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(tripService.listScheduleBetween(username, from, to));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting schedule request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/costs/{username}")
+    public ResponseEntity<CostSummaryDto> summarizeUserCosts(@PathVariable String username) {
+        return ResponseEntity.ok(tripService.summarizeUserCosts(username));
+    }
+
+    @GetMapping("/stats/{username}")
+    public ResponseEntity<UserTripStatsDto> userStats(@PathVariable String username) {
+        return ResponseEntity.ok(tripService.userStats(username));
+    }
+
+    @GetMapping("/sync/{username}")
+    public ResponseEntity<TripSyncDto> syncTrips(@PathVariable String username,
+                                                 @RequestParam(required = false) String syncToken,
+                                                 @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(tripService.syncTrips(username, syncToken, size));
+        } catch (TripSyncExpiredException e) {
+            log.info("Trip sync of {} must start over: {}", username, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.GONE);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting trip sync request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/trip/{tripId}/costs")
+    public ResponseEntity<CostSummaryDto> summarizeTripCosts(@PathVariable String tripId) {
+        CostSummaryDto summary = tripService.summarizeTripCosts(tripId);
+        return summary != null ? ResponseEntity.ok(summary) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    @GetMapping("/trip/{tripId}/activities")
+    public ResponseEntity<TripPageDto<Activity>> listTripActivityPage(@PathVariable String tripId,
+                                                                      @RequestParam String username,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                      @RequestParam(defaultValue = "20") int size,
+                                                                      @RequestParam(required = false) String continuationToken) {
+        try {
+            TripPageDto<Activity> page = tripService.listTripActivityPage(username, tripId, day, from, to, size, continuationToken);
+            return page != null ? ResponseEntity.ok(page) : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting trip activity page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/nearby/{username}")
+    public ResponseEntity<NearbyPlacesDto> listPlacesNearby(@PathVariable String username,
+                                                            @RequestParam double latitude,
+                                                            @RequestParam double longitude,
+                                                            @RequestParam(required = false) Double radius,
+                                                            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(tripService.listPlacesNearby(username, latitude, longitude, radius, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting nearby places request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/trip/{tripname}")
     public ResponseEntity<Trip> listAllTripsByName(@PathVariable String tripname) {
         log.info("listAllTripsByName: {}", tripname);
@@ -45,9 +204,16 @@ public class TripController {
     }
 
     @GetMapping()
-    public ResponseEntity<Trip> listAllTripsByName(@RequestParam String username, @RequestParam String tripId) {
+    public ResponseEntity<Trip> listAllTripsByName(@RequestParam String username, @RequestParam String tripId,
+                                                   @RequestHeader HttpHeaders headers, WebRequest request) {
         log.info("Fetching trip {} of {}", tripId, username);
-        return ResponseEntity.ok(tripService.listTripByIdAndUsername(username, tripId));
+        String eTag = TripETag.negotiated(tripService.currentETag(username, tripId), headers.getAccept());
+        if (eTag != null && request.checkNotModified(eTag)) {
+            // checkNotModified already set the ETag of the 304
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        Trip trip = tripService.listTripByIdAndUsername(username, tripId);
+        return ResponseEntity.ok().eTag(TripETag.negotiated(TripETag.of(trip), headers.getAccept())).varyBy(HttpHeaders.ACCEPT).body(trip);
     }
 
     @PostMapping("/trip")
@@ -63,84 +229,141 @@ public class TripController {
     }
 
     @PutMapping("/trip")
-    public ResponseEntity<String> updateTrip(@Valid @RequestBody Trip trip) {
+    public ResponseEntity<String> updateTrip(@Valid @RequestBody Trip trip,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Updating trip {}", trip.id());
-        tripService.updateTrip(trip);
+        tripService.updateTrip(trip, TripETag.expectedVersion(trip.id(), ifMatch));
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @PutMapping("/trip/{tripId}")
-    public ResponseEntity<Activity> addActivityToTrip(@PathVariable String tripId, @Valid @RequestBody Activity activity) {
+    public ResponseEntity<Activity> addActivityToTrip(@PathVariable String tripId, @Valid @RequestBody Activity activity,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Adding activity to trip {}", tripId);
-        tripService.addActivityToTrip(tripId, activity);
+        if (tripService.addActivityToTrip(tripId, activity, TripETag.expectedVersion(tripId, ifMatch)) == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity<>(activity, HttpStatus.OK);
     }
 
+    @PostMapping("/trip/{tripId}/activities")
+    public ResponseEntity<List<String>> addActivitiesToTrip(@PathVariable String tripId,
+                                                            @RequestBody @NotEmpty @Size(max = MAX_BULK_ACTIVITIES) List<@Valid Activity> activities) {
+        log.info("Adding {} activities to trip {}", activities.size(), tripId);
+        List<String> activityIds = tripService.addActivitiesToTrip(tripId, activities);
+        if (activityIds == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(activityIds, HttpStatus.OK);
+    }
+
     @PutMapping("/trip/partial/{tripId}")
-    public ResponseEntity<String> updateTrip(@PathVariable String tripId, @Valid @RequestBody PartialTripDto partialTripDto) {
+    public ResponseEntity<String> updateTrip(@PathVariable String tripId, @Valid @RequestBody PartialTripDto partialTripDto,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Updating trip {}", tripId);
-        return new ResponseEntity<>(tripService.updateTripWithPartialInfo(tripId, partialTripDto), HttpStatus.OK);
+        String updatedTripId = tripService.updateTripWithPartialInfo(tripId, partialTripDto, TripETag.expectedVersion(tripId, ifMatch));
+        if (updatedTripId == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(updatedTripId, HttpStatus.OK);
     }
 
     @PutMapping("/trip/{tripId}/accommodation")
-    public ResponseEntity<String> updateTripWithAccommodation(@PathVariable String tripId, @Valid @RequestBody Accommodation accommodation) {
+    public ResponseEntity<String> updateTripWithAccommodation(@PathVariable String tripId, @Valid @RequestBody Accommodation accommodation,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Adding accommodation to trip {}", tripId);
-        return new ResponseEntity<>(tripService.updateTripWithAccommodation(tripId, accommodation), HttpStatus.OK);
+        String updatedTripId = tripService.updateTripWithAccommodation(tripId, accommodation, TripETag.expectedVersion(tripId, ifMatch));
+        if (updatedTripId == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(updatedTripId, HttpStatus.OK);
     }
 
     @PutMapping("/trip/{tripId}/accommodation/update")
-    public ResponseEntity<HttpStatus> updateAccommodationFromTrip(@PathVariable String tripId, @Valid @RequestBody Accommodation accommodation) {
+    public ResponseEntity<HttpStatus> updateAccommodationFromTrip(@PathVariable String tripId, @Valid @RequestBody Accommodation accommodation,
+                                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Updating accommodation from trip {}", tripId);
-        tripService.updateAccommodationFromTrip(tripId, accommodation);
-        return new ResponseEntity<>(HttpStatus.OK);
+        boolean found = tripService.updateAccommodationFromTrip(tripId, accommodation, TripETag.expectedVersion(tripId, ifMatch));
+        return new ResponseEntity<>(foundOrNotFound(found));
     }
 
     @DeleteMapping("/trip/{tripId}/accommodation")
     public ResponseEntity<HttpStatus> deleteAccommodationFromTrip(@PathVariable String tripId, @RequestParam String accommodationId) {
         log.info("Deleting accommodation from trip {}", tripId);
-        tripService.deleteAccommodation(tripId, accommodationId);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return new ResponseEntity<>(foundOrNotFound(tripService.deleteAccommodation(tripId, accommodationId)));
     }
 
     @GetMapping("/trip/{tripId}/accommodation")
-    public ResponseEntity<List<Accommodation>> getTripAccommodations(@PathVariable String tripId) {
+    public ResponseEntity<List<Accommodation>> getTripAccommodations(@PathVariable String tripId, @RequestHeader HttpHeaders headers,
+                                                                     WebRequest request) {
         log.info("Fectching trip {} accommodations ", tripId);
-        return new ResponseEntity<>(tripService.listAllTripAccomodations(tripId), HttpStatus.OK);
+        String eTag = TripETag.negotiated(tripService.currentETag(tripId), headers.getAccept());
+        if (eTag == null) {
+            return new ResponseEntity<>(List.of(), HttpStatus.OK);
+        }
+        if (request.checkNotModified(eTag)) {
+            // checkNotModified already set the ETag of the 304
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(tripService.listAllTripAccomodations(tripId));
     }
 
     @PutMapping("/activity/{tripId}")
-    public ResponseEntity<Activity> updateActivityFromTrip(@PathVariable String tripId, @Valid @RequestBody Activity activity) {
+    public ResponseEntity<Activity> updateActivityFromTrip(@PathVariable String tripId, @Valid @RequestBody Activity activity,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Updating activity from trip {}", tripId);
-        tripService.updateActivityFromTrip(tripId, activity);
+        if (tripService.updateActivityFromTrip(tripId, activity, TripETag.expectedVersion(tripId, ifMatch)) == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity<>(activity, HttpStatus.OK);
     }
 
+    @DeleteMapping(path = "/trip/{tripId}", params = "!activityId")
+    public ResponseEntity<String> deleteTrip(@PathVariable String tripId,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Deleting trip {}", tripId);
+        return new ResponseEntity<>(foundOrNotFound(tripService.deleteTrip(tripId, TripETag.expectedVersion(tripId, ifMatch))));
+    }
+
     @DeleteMapping("/trip/{tripId}")
     public ResponseEntity<String> deleteActivityFromTrip(@PathVariable String tripId, @RequestParam String activityId) {
         log.info("Updating trip {}", tripId);
-        tripService.deleteActivity(tripId, activityId);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return new ResponseEntity<>(foundOrNotFound(tripService.deleteActivity(tripId, activityId)));
     }
 
     @PutMapping("/trip/{tripId}/travel")
-    public ResponseEntity<String> addTravelToTrip(@PathVariable String tripId, @Valid @RequestBody Travel activity) {
-        tripService.addTravelToTrip(tripId, activity);
+    public ResponseEntity<String> addTravelToTrip(@PathVariable String tripId, @Valid @RequestBody Travel activity,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean found = tripService.addTravelToTrip(tripId, activity, TripETag.expectedVersion(tripId, ifMatch));
         log.info("Adding travel details to trip {}", tripId);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return new ResponseEntity<>(foundOrNotFound(found));
     }
 
     @PutMapping("/trip/{tripId}/travel/update")
-    public ResponseEntity<String> updateTravelFromTrip(@PathVariable String tripId, @Valid @RequestBody Travel activity) {
-        tripService.updateTravelFromTrip(tripId, activity);
+    public ResponseEntity<String> updateTravelFromTrip(@PathVariable String tripId, @Valid @RequestBody Travel activity,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean found = tripService.updateTravelFromTrip(tripId, activity, TripETag.expectedVersion(tripId, ifMatch));
         log.info("Updating travel details from trip {}", tripId);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return new ResponseEntity<>(foundOrNotFound(found));
     }
 
     @DeleteMapping("/trip/{tripId}/travel")
     public ResponseEntity<String> deleteTravelFromTrip(@PathVariable String tripId, String travelName) {
-        tripService.deleteTravelFromTrip(tripId, travelName);
+        boolean found = tripService.deleteTravelFromTrip(tripId, travelName);
         log.info("Updating travel details from trip {}", tripId);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return new ResponseEntity<>(foundOrNotFound(found));
+    }
+
+    // A stale If-Match is a failed precondition; a stale version in the body is a conflict
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentModification(OptimisticLockingFailureException e, WebRequest request) {
+        log.warn("Rejecting conflicting trip update: {}", e.getMessage());
+        HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+        return new ResponseEntity<>(e.getMessage(), status);
+    }
+
+    private static HttpStatus foundOrNotFound(boolean found) {
+        return found ? HttpStatus.OK : HttpStatus.NOT_FOUND;
     }
 
 }
@@ -0,0 +1,35 @@
+package com.dmmarques.travel_management.controller;
+
+import com.dmmarques.travel_management.service.TripEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/trips")
+@RequiredArgsConstructor
+@Slf4j
+public class TripEventController {
+
+    private final TripEventService tripEventService;
+
+    @GetMapping(value = "/events/{username}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTripEventsOf(@PathVariable String username) {
+        log.info("Streaming trip events of {}", username);
+        StreamingResponseBody body = out -> tripEventService.streamTripsOf(username, out);
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(body);
+    }
+
+    @GetMapping(value = "/trip/{tripId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTripEvents(@PathVariable String tripId) {
+        log.info("Streaming events of trip {}", tripId);
+        StreamingResponseBody body = out -> tripEventService.streamTrip(tripId, out);
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(body);
+    }
+}
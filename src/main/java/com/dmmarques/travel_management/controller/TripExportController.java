@@ -0,0 +1,28 @@
+package com.dmmarques.travel_management.controller;
+
+import com.dmmarques.travel_management.service.TripExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/trips")
+@RequiredArgsConstructor
+@Slf4j
+public class TripExportController {
+
+    private final TripExportService tripExportService;
+
+    @GetMapping(value = "/export/{username}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTripsByUsername(@PathVariable String username) {
+        log.info("Exporting trips of {}", username);
+        StreamingResponseBody body = out -> tripExportService.exportTripsByUsername(username, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,29 @@
+package com.dmmarques.travel_management.controller;
+
+import com.dmmarques.travel_management.dto.TripImportReportDto;
+import com.dmmarques.travel_management.service.TripImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/trips")
+@RequiredArgsConstructor
+@Slf4j
+public class TripImportController {
+
+    private final TripImportService tripImportService;
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<TripImportReportDto> importTrips(InputStream body) throws IOException {
+        log.info("Importing trips");
+        return ResponseEntity.ok(tripImportService.importTrips(body));
+    }
+}
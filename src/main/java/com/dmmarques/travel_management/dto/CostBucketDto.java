@@ -0,0 +1,18 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CostBucketDto {
+    // A category, or a day as yyyy-MM-dd; null collects the entries without one
+    private String key;
+    private BigDecimal total;
+}
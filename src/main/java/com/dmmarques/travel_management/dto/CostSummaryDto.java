@@ -0,0 +1,20 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CostSummaryDto {
+    private BigDecimal budget;
+    private BigDecimal total;
+    private List<CostBucketDto> byCategory;
+    private List<CostBucketDto> byDay;
+}
@@ -0,0 +1,18 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearbyDto<T> {
+    private String tripId;
+    private String tripName;
+    // Meters from the searched point
+    private double distance;
+    private T place;
+}
@@ -0,0 +1,19 @@
+package com.dmmarques.travel_management.dto;
+
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearbyPlacesDto {
+    private List<NearbyDto<Activity>> activities;
+    private List<NearbyDto<Accommodation>> accommodations;
+}
@@ -0,0 +1,16 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TripChangeEventDto {
+    private String type;
+    private String tripId;
+    private Long version;
+}
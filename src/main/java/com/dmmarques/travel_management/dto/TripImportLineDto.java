@@ -0,0 +1,23 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TripImportLineDto {
+    private long line;
+    private Status status;
+    private String tripId;
+    private String error;
+
+    public enum Status {
+        INSERTED,
+        DUPLICATE_NAME,
+        INVALID
+    }
+}
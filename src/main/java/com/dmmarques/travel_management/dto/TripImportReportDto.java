@@ -0,0 +1,22 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TripImportReportDto {
+    private int inserted;
+    private int duplicates;
+    private int invalid;
+    // The first failed lines, in body order; inserted lines are only counted
+    private List<TripImportLineDto> lines;
+    // Failed lines beyond the reported ones
+    private int unreportedFailures;
+}
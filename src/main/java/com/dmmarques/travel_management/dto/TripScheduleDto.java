@@ -0,0 +1,27 @@
+package com.dmmarques.travel_management.dto;
+
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TripScheduleDto {
+    private String id;
+    private String name;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    // Only the entries that fall in the requested window
+    private List<Activity> activities;
+    private List<Travel> travels;
+    private List<Accommodation> accommodations;
+}
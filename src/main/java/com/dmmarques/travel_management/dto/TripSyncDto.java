@@ -0,0 +1,20 @@
+package com.dmmarques.travel_management.dto;
+
+import com.dmmarques.travel_management.model.Trip;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TripSyncDto {
+    private List<Trip> changed;
+    private List<String> deleted;
+    private String syncToken;
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.dmmarques.travel_management.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTripStatsDto {
+    private String username;
+    private long trips;
+    private long upcomingTrips;
+    private BigDecimal plannedSpend;
+    private Map<String, Long> activitiesByCategory;
+}
@@ -1,11 +1,13 @@
 package com.dmmarques.travel_management.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotNull;
 import lombok.Generated;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -32,4 +34,16 @@ public class Accommodation {
     private BigDecimal priceForChild;
     private Boolean allowsPets;
     private BigDecimal priceForPet;
+    @JsonIgnore
+    private GeoJsonPoint location;
+
+    public void setLatitude(String latitude) {
+        this.latitude = latitude;
+        this.location = Coordinates.pointOf(latitude, longitude);
+    }
+
+    public void setLongitude(String longitude) {
+        this.longitude = longitude;
+        this.location = Coordinates.pointOf(latitude, longitude);
+    }
 }
@@ -1,10 +1,12 @@
 package com.dmmarques.travel_management.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotNull;
 import lombok.Generated;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -21,5 +23,23 @@ public record Activity(@Id @Generated String id,
                        BigDecimal cost,
                        String description,
                        String latitude,
-                       String longitude) {
+                       String longitude,
+                       @JsonIgnore GeoJsonPoint location) {
+
+    // The point always follows the strings unless it is given explicitly, as when read back from Mongo
+    public Activity {
+        if (location == null) {
+            location = Coordinates.pointOf(latitude, longitude);
+        }
+    }
+
+    public Activity(String id, String name, String address, String category, String creatorUsername, LocalDateTime creationDate,
+                    LocalDateTime activityDate, BigDecimal cost, String description, String latitude, String longitude) {
+        this(id, name, address, category, creatorUsername, creationDate, activityDate, cost, description, latitude, longitude, null);
+    }
+
+    public Activity withId(String id) {
+        return new Activity(id, name, address, category, creatorUsername, creationDate, activityDate, cost, description, latitude,
+            longitude, location);
+    }
 }
@@ -0,0 +1,31 @@
+package com.dmmarques.travel_management.model;
+
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+/**
+ * Derives the GeoJSON point stored next to the free-form latitude and longitude strings, which is what the 2dsphere
+ * indexes on trips are built on.
+ */
+public final class Coordinates {
+
+    private Coordinates() {
+    }
+
+    // Missing, unparsable or out-of-range coordinates have no point, since a 2dsphere index rejects the whole write
+    public static GeoJsonPoint pointOf(String latitude, String longitude) {
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        try {
+            double lat = Double.parseDouble(latitude.trim());
+            double lng = Double.parseDouble(longitude.trim());
+            return isValid(lat, lng) ? new GeoJsonPoint(lng, lat) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static boolean isValid(double latitude, double longitude) {
+        return Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180;
+    }
+}
@@ -4,15 +4,30 @@ import jakarta.validation.constraints.NotNull;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 
 @Document
+@CompoundIndex(name = Trip.CREATOR_NAME_INDEX, def = "{'creatorUsername': 1, 'name': 1}", unique = true)
+@CompoundIndex(name = "creatorUsername_startDate_id", def = "{'creatorUsername': 1, 'startDate': 1, '_id': 1}")
+@CompoundIndex(name = "name", def = "{'name': 1}")
+// Walked by the delta sync in (lastModified, _id) order
+@CompoundIndex(name = "creatorUsername_lastModified_id", def = "{'creatorUsername': 1, 'lastModified': 1, '_id': 1}")
+@CompoundIndex(name = "creatorUsername_endDate_startDate", def = "{'creatorUsername': 1, 'endDate': 1, 'startDate': 1}")
+@CompoundIndex(name = "creatorUsername_activityList.activityDate", def = "{'creatorUsername': 1, 'activityList.activityDate': 1}")
+@CompoundIndex(name = "creatorUsername_travelList.departureDate", def = "{'creatorUsername': 1, 'travelList.departureDate': 1}")
+@CompoundIndex(name = "creatorUsername_accommodations.checkInDate", def = "{'creatorUsername': 1, 'accommodations.checkInDate': 1}")
+// One index per array, since a compound index may not span two arrays
+@CompoundIndex(name = "creatorUsername_activityList.location", def = "{'creatorUsername': 1, 'activityList.location': '2dsphere'}")
+@CompoundIndex(name = "creatorUsername_accommodations.location", def = "{'creatorUsername': 1, 'accommodations.location': '2dsphere'}")
 public record Trip(@Id String id,
                    @NotNull String name,
                    String description,
@@ -27,6 +42,32 @@ public record Trip(@Id String id,
                    List<Activity> activityList,
                    @NotNull
                    List<Travel> travelList,
-                   BigDecimal budget
+                   BigDecimal budget,
+                   @Version Long version,
+                   Instant lastModified
     ) {
+
+    public static final String CREATOR_NAME_INDEX = "creatorUsername_name";
+
+    public Trip(String id, String name, String description, String creatorUsername, LocalDateTime creationDate, LocalDate startDate,
+                LocalDate endDate, List<String> participantUsernames, List<Accommodation> accommodations, List<Activity> activityList,
+                List<Travel> travelList, BigDecimal budget, Long version) {
+        this(id, name, description, creatorUsername, creationDate, startDate, endDate, participantUsernames, accommodations,
+            activityList, travelList, budget, version, null);
+    }
+
+    public Trip withId(String id) {
+        return new Trip(id, name, description, creatorUsername, creationDate, startDate, endDate,
+            participantUsernames, accommodations, activityList, travelList, budget, version, lastModified);
+    }
+
+    public Trip withVersion(Long version) {
+        return new Trip(id, name, description, creatorUsername, creationDate, startDate, endDate,
+            participantUsernames, accommodations, activityList, travelList, budget, version, lastModified);
+    }
+
+    public Trip withLastModified(Instant lastModified) {
+        return new Trip(id, name, description, creatorUsername, creationDate, startDate, endDate,
+            participantUsernames, accommodations, activityList, travelList, budget, version, lastModified);
+    }
 }
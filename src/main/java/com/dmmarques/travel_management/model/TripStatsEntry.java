@@ -0,0 +1,26 @@
+package com.dmmarques.travel_management.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * What one version of a trip adds to the {@link UserTripStats} of its creator. It is swapped for the newer version on
+ * every change, and the difference between both is what the user's statistics are incremented by. A rebuild looks the
+ * entries of a user up by username.
+ */
+@Document
+@CompoundIndex(name = "username_id", def = "{'username': 1, '_id': 1}")
+public record TripStatsEntry(@Id String tripId,
+                             String username,
+                             long version,
+                             LocalDate startDate,
+                             @Field(targetType = FieldType.DECIMAL128) BigDecimal plannedSpend,
+                             Map<String, Long> activitiesByCategory) {
+}
@@ -0,0 +1,24 @@
+package com.dmmarques.travel_management.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Records that a trip left the trips of a user, because it was deleted or handed to another user, so that the delta
+ * sync can tell the user's clients to drop it. Tombstones expire after {@link #RETENTION}; clients holding an older
+ * sync token start over with a full sync.
+ */
+@Document
+@CompoundIndex(name = "username_deletedAt_tripId", def = "{'username': 1, 'deletedAt': 1, 'tripId': 1}")
+public record TripTombstone(@Id String id,
+                            String username,
+                            String tripId,
+                            @Indexed(name = "deletedAt_ttl", expireAfter = "30d") Instant deletedAt) {
+
+    public static final Duration RETENTION = Duration.ofDays(30);
+}
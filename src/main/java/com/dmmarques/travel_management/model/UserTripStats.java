@@ -0,0 +1,22 @@
+package com.dmmarques.travel_management.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Dashboard statistics of one user, kept up to date with {@code $inc} deltas as their trips change. Trips are counted
+ * by start date so that the number of upcoming trips can be told on read; category keys are escaped so that they are
+ * valid field names. The username is the id, so every lookup goes through the {@code _id} index.
+ */
+@Document
+public record UserTripStats(@Id String username,
+                            long trips,
+                            Map<String, Long> tripsByStartDate,
+                            @Field(targetType = FieldType.DECIMAL128) BigDecimal plannedSpend,
+                            Map<String, Long> activitiesByCategory) {
+}
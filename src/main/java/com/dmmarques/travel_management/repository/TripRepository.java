@@ -18,8 +18,4 @@ public interface TripRepository extends MongoRepository<Trip, String> {
 
     Optional<Trip> findByCreatorUsernameAndId(String username, String id);
 
-    boolean existsByCreatorUsernameAndName(String creatorUsername, String name);
-
-    Optional<Trip> findByCreatorUsernameAndName(String creatorUsername, String name);
-
 }
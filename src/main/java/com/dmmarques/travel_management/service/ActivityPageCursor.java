@@ -0,0 +1,33 @@
+package com.dmmarques.travel_management.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last activity of a page in the (activityDate, _id) listing order of a trip, exchanged with clients
+ * as an opaque continuation token.
+ */
+record ActivityPageCursor(LocalDateTime activityDate, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        String raw = activityDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ActivityPageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid continuation token " + token);
+            }
+            return new ActivityPageCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token " + token, e);
+        }
+    }
+}
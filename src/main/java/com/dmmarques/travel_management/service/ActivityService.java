@@ -1,54 +1,42 @@
 package com.dmmarques.travel_management.service;
 
+import com.dmmarques.travel_management.dto.TripPageDto;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.model.Trip;
-import com.dmmarques.travel_management.repository.TripRepository;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Activities addressed by their trip's name or id. They live in the trip's embedded activity list.
+ */
 @Service
 @RequiredArgsConstructor
 public class ActivityService {
 
-    private final TripRepository tripRepository;
+    private final TripService tripService;
+    private final MongoTemplate mongoTemplate;
 
-    @Autowired
-    private MongoTemplate mongoTemplate;
-
-    public List<Activity> listAllActivitiesByTripName(String username, String tripName) {
-        Trip trip = tripRepository.findByCreatorUsernameAndName(username, tripName)
-                                  .orElseThrow(() -> new IllegalArgumentException("Trip with name " + tripName + " does not exist for user " + username));
-
-        List<String> activityIds = new ArrayList<>();
-        if (activityIds.isEmpty()) {
-            return List.of();
-        }
-
-        //return activityRepository.findAllById(activityIds);
-        return null;
+    // Null when the user has no trip of that name
+    public TripPageDto<Activity> listActivityPageByTripName(String username, String tripName, int size, String continuationToken) {
+        Query query = Query.query(Criteria.where("creatorUsername").is(username).and("name").is(tripName));
+        query.fields().include("id");
+        Trip trip = mongoTemplate.findOne(query, Trip.class);
+        return trip != null ? tripService.listTripActivityPage(username, trip.id(), null, null, null, size, continuationToken) : null;
     }
 
-    public String createActivity(@Valid Activity activity) {
-        //String savedActivityId = activityRepository.save(activity).id();
-        String savedActivityId = null;
-
-        Update update = new Update().push("acitivityIds", savedActivityId);
-        mongoTemplate.updateFirst(
-            Query.query(Criteria.where("_id").is("")),
-            update,
-            Trip.class
-        );
-
-        return savedActivityId;
+    // Null when the trip does not exist
+    public String createActivity(String tripId, @Valid Activity activity) {
+        if (tripId == null || tripId.isBlank()) {
+            throw new IllegalArgumentException("An activity must name its trip.");
+        }
+        List<String> activityIds = tripService.addActivitiesToTrip(tripId, List.of(activity));
+        return activityIds != null ? activityIds.get(0) : null;
     }
 
 }
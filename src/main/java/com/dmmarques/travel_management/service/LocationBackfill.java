@@ -0,0 +1,117 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.LocationBackfillProperties;
+import com.dmmarques.travel_management.model.Coordinates;
+import com.dmmarques.travel_management.model.Trip;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.dmmarques.travel_management.service.TripQueries.ACCOMMODATIONS;
+import static com.dmmarques.travel_management.service.TripQueries.ACTIVITY_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.VERSION;
+
+/**
+ * Derives the GeoJSON points of the activities and accommodations written before trips stored them, streaming the
+ * trips that still have an element with coordinates but no point from a Mongo cursor. The trips are read as raw
+ * documents and only the missing points are set, by array position, on the version that was read: a trip that changed
+ * meanwhile is skipped until the next run, and elements whose coordinates are invalid never get a point.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocationBackfill {
+
+    private final MongoTemplate mongoTemplate;
+    private final TripCache tripCache;
+    private final LocationBackfillProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (properties.enabled()) {
+            backfill();
+        }
+    }
+
+    public BackfillReport backfill() {
+        Query query = Query.query(new Criteria().orOperator(missingPoint(ACTIVITY_LIST), missingPoint(ACCOMMODATIONS)))
+                           .cursorBatchSize(properties.batchSize());
+        query.fields().include(ACTIVITY_LIST + ".latitude", ACTIVITY_LIST + ".longitude", ACTIVITY_LIST + ".location",
+            ACCOMMODATIONS + ".latitude", ACCOMMODATIONS + ".longitude", ACCOMMODATIONS + ".location", VERSION);
+        long trips = 0;
+        long points = 0;
+        long skipped = 0;
+        try (Stream<Document> stream = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(Trip.class))) {
+            for (Iterator<Document> it = stream.iterator(); it.hasNext(); ) {
+                int set = setPoints(it.next());
+                if (set < 0) {
+                    skipped++;
+                } else if (set > 0) {
+                    trips++;
+                    points += set;
+                }
+            }
+        }
+        BackfillReport report = new BackfillReport(trips, points, skipped);
+        log.info("Backfilled {} locations of {} trips, {} trips changed meanwhile and were skipped",
+            report.points(), report.trips(), report.skipped());
+        return report;
+    }
+
+    // Number of points set, or -1 when the trip changed since it was read
+    private int setPoints(Document trip) {
+        Update update = new Update();
+        int set = pointsOf(trip, ACTIVITY_LIST, update) + pointsOf(trip, ACCOMMODATIONS, update);
+        if (set == 0) {
+            return 0;
+        }
+        String tripId = trip.get("_id").toString();
+        Number version = trip.get(VERSION, Number.class);
+        try {
+            if (!TripQueries.matched(mongoTemplate.updateFirst(
+                TripQueries.byTripId(tripId, TripQueries.versionIs(version != null ? version.longValue() : null)),
+                TripQueries.touched(update), Trip.class))) {
+                return -1;
+            }
+        } finally {
+            tripCache.evict(tripId);
+        }
+        return set;
+    }
+
+    private static int pointsOf(Document trip, String arrayField, Update update) {
+        List<Document> elements = trip.getList(arrayField, Document.class, List.of());
+        int set = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            Document element = elements.get(i);
+            if (element.get("location") == null) {
+                GeoJsonPoint point = Coordinates.pointOf(element.getString("latitude"), element.getString("longitude"));
+                if (point != null) {
+                    update.set(arrayField + "." + i + ".location", point);
+                    set++;
+                }
+            }
+        }
+        return set;
+    }
+
+    private static Criteria missingPoint(String arrayField) {
+        return Criteria.where(arrayField).elemMatch(
+            Criteria.where("latitude").ne(null).and("longitude").ne(null).and("location").is(null));
+    }
+
+    public record BackfillReport(long trips, long points, long skipped) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripCacheProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.repository.TripRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded, expiring in-process cache of trips by id in front of {@link TripRepository}.
+ * A miss installs a pending entry that concurrent readers of the same trip wait on, and the reader that installed it
+ * loads the trip outside of any lock: loading inside the map's compute would pin the carrier of a virtual thread while
+ * it waits for a Mongo connection. An eviction issued by a writer drops the pending entry, so a load that raced with
+ * the write is handed to its waiting readers but never cached. Lookups by name go through a
+ * name to id mapping that is re-validated against the cached trip, so renames never serve the old trip.
+ * Other instances' writes are only observed once the entry expires, unless the {@link TripChangeStream} evicts them.
+ */
+@Component
+public class TripCache {
+
+    static final String CACHE_NAME = "trips";
+
+    private final TripRepository tripRepository;
+    private final AsyncCache<String, Trip> tripsById;
+    private final Cache<String, String> tripIdsByName;
+
+    @Autowired
+    public TripCache(TripRepository tripRepository, TripCacheProperties properties, MeterRegistry meterRegistry) {
+        this(tripRepository, properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    TripCache(TripRepository tripRepository, TripCacheProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.tripRepository = tripRepository;
+        if (properties.enabled()) {
+            this.tripsById = Caffeine.newBuilder()
+                                     .maximumSize(properties.maximumSize())
+                                     .expireAfterWrite(properties.ttl())
+                                     .ticker(ticker)
+                                     .recordStats()
+                                     .buildAsync();
+            this.tripIdsByName = Caffeine.newBuilder()
+                                         .maximumSize(properties.maximumSize())
+                                         .expireAfterWrite(properties.ttl())
+                                         .ticker(ticker)
+                                         .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, tripsById, CACHE_NAME);
+        } else {
+            this.tripsById = null;
+            this.tripIdsByName = null;
+        }
+    }
+
+    public Optional<Trip> findById(String tripId) {
+        if (tripsById == null) {
+            return tripRepository.findById(tripId);
+        }
+        CompletableFuture<Trip> pending = new CompletableFuture<>();
+        CompletableFuture<Trip> entry = tripsById.get(tripId, (id, executor) -> pending);
+        if (entry == pending) {
+            // Missing trips complete with null, which the cache drops, so a trip created right after a miss is visible
+            try {
+                pending.complete(tripRepository.findById(tripId).orElse(null));
+            } catch (RuntimeException e) {
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(entry.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    public Optional<Trip> findByCreatorUsernameAndId(String username, String tripId) {
+        if (tripsById == null) {
+            return tripRepository.findByCreatorUsernameAndId(username, tripId);
+        }
+        return findById(tripId).filter(trip -> username.equals(trip.creatorUsername()));
+    }
+
+    public Optional<Trip> findByName(String name) {
+        if (tripsById == null) {
+            return tripRepository.findByName(name);
+        }
+        String tripId = tripIdsByName.getIfPresent(name);
+        if (tripId != null) {
+            Optional<Trip> cached = findById(tripId).filter(trip -> name.equals(trip.name()));
+            if (cached.isPresent()) {
+                return cached;
+            }
+            tripIdsByName.invalidate(name);
+        }
+        Optional<Trip> trip = tripRepository.findByName(name);
+        trip.ifPresent(found -> tripIdsByName.put(name, found.id()));
+        return trip;
+    }
+
+    public void evict(String tripId) {
+        if (tripsById != null && tripId != null) {
+            tripsById.synchronous().invalidate(tripId);
+        }
+    }
+
+    public void evictAll() {
+        if (tripsById != null) {
+            tripsById.synchronous().invalidateAll();
+            tripIdsByName.invalidateAll();
+        }
+    }
+
+    long estimatedSize() {
+        if (tripsById == null) {
+            return 0;
+        }
+        tripsById.synchronous().cleanUp();
+        return tripsById.synchronous().estimatedSize();
+    }
+}
@@ -0,0 +1,17 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+
+import java.util.Set;
+
+/**
+ * A change event together with the users it concerns: the creator and the participants of the trip before and after
+ * the change.
+ */
+public record TripChange(TripChangeEventDto event, Set<String> usernames) {
+
+    // Subscribers follow either one trip or every trip of a user
+    public boolean reaches(String username, String tripId) {
+        return tripId != null ? tripId.equals(event.getTripId()) : usernames.contains(username);
+    }
+}
@@ -0,0 +1,109 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the trips collection when the change stream is enabled, so that the writes of every instance evict the
+ * cached trip and reach this instance's subscribers. A stream that fails may have missed changes: the cache is
+ * emptied, every subscriber is told to resync and the stream is opened again from the current position.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TripChangeStream {
+
+    private static final Duration MAX_AWAIT = Duration.ofSeconds(1);
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final TripCache tripCache;
+    private final TripEventService tripEvents;
+    private final TripEventsProperties properties;
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void watchOnStartup() {
+        if (!properties.changeStream()) {
+            log.warn(TripEvents.LOCAL_ONLY_WARNING);
+            return;
+        }
+        running = true;
+        Thread.ofVirtual().name("trip-change-stream").start(this::watch);
+    }
+
+    // The watcher notices within the await time of its cursor
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    private void watch() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+                log.info("Watching trip changes");
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        handle(change);
+                    }
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Trip change stream failed, resyncing subscribers: {}", e.getMessage());
+                tripCache.evictAll();
+                tripEvents.resyncAll();
+                if (!pause()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Trip.class))
+                            .watch(TripEvents.changeStreamPipeline())
+                            .fullDocument(FullDocument.UPDATE_LOOKUP)
+                            .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+                            .maxAwaitTime(MAX_AWAIT.toMillis(), TimeUnit.MILLISECONDS)
+                            .cursor();
+    }
+
+    private void handle(ChangeStreamDocument<Document> change) {
+        String tripId = TripEvents.tripIdOf(change.getDocumentKey());
+        tripCache.evict(tripId);
+        TripChange tripChange = TripEvents.fromChangeStream(change.getOperationTypeString(), tripId, change.getFullDocument(),
+            change.getFullDocumentBeforeChange());
+        if (tripChange != null) {
+            tripEvents.publish(tripChange);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(RETRY_BACKOFF);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
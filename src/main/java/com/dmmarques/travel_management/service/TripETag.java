@@ -0,0 +1,79 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.model.Trip;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Strong entity tag of a trip, built from its id and version. Every write bumps the version, so two responses with the
+ * same tag carry the same trip. Trips written before versioning have no version and are tagged as version 0. A strong
+ * tag names one sequence of bytes, so CBOR responses carry a {@code -cbor} suffix that JSON ones, the default, do not;
+ * tagged responses still vary by {@code Accept} for caches.
+ */
+public final class TripETag {
+
+    // Versions are never negative, so no write guarded by it can match
+    public static final long NO_MATCH = -1;
+
+    private static final String ANY = "*";
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    private TripETag() {
+    }
+
+    public static String of(Trip trip) {
+        return of(trip.id(), trip.version());
+    }
+
+    public static String of(String tripId, Long version) {
+        return "\"" + tripId + "-" + (version != null ? version : 0) + "\"";
+    }
+
+    // Tag of the representation the Accept header negotiates: JSON unless CBOR is preferred over it
+    public static String negotiated(String eTag, List<MediaType> accept) {
+        return eTag != null && negotiatesCbor(accept) ? eTag.substring(0, eTag.length() - 1) + CBOR_SUFFIX + "\"" : eTag;
+    }
+
+    // Mirrors the converter order of both stacks: the most preferred acceptable type wins, and JSON wins ties
+    private static boolean negotiatesCbor(List<MediaType> accept) {
+        return accept.stream()
+                     .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                     .filter(type -> type.getQualityValue() > 0)
+                     .filter(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON) || type.isCompatibleWith(MediaType.APPLICATION_CBOR))
+                     .findFirst()
+                     .map(type -> !type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                     .orElse(false);
+    }
+
+    /**
+     * Version an {@code If-Match} header requires the trip to have, null when the write is unconditional and
+     * {@link #NO_MATCH} when none of the listed tags belongs to the trip. Weak tags never match, as If-Match uses
+     * strong comparison. The tags of both representations name the same version, so either guards a write.
+     */
+    public static Long expectedVersion(String tripId, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String prefix = "\"" + tripId + "-";
+        for (String tag : ifMatch.split(",")) {
+            String candidate = tag.trim();
+            if (ANY.equals(candidate)) {
+                return null;
+            }
+            if (candidate.startsWith(prefix) && candidate.endsWith("\"") && candidate.length() > prefix.length() + 1) {
+                String version = candidate.substring(prefix.length(), candidate.length() - 1);
+                if (version.endsWith(CBOR_SUFFIX)) {
+                    version = version.substring(0, version.length() - CBOR_SUFFIX.length());
+                }
+                try {
+                    return Long.parseLong(version);
+                } catch (NumberFormatException e) {
+                    // Not one of our tags; keep looking
+                }
+            }
+        }
+        return NO_MATCH;
+    }
+}
@@ -0,0 +1,163 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes trip change events to server-sent event streams. Every subscriber has a bounded buffer that writes are
+ * published into without waiting on any client; a subscriber whose buffer is full has its pending events replaced by
+ * a {@value TripEvents#RESYNC} event, after which its stream ends and the client syncs before it subscribes again.
+ * Unless the change stream is enabled only the writes of this instance are published, and a write is only read back
+ * for its audience while someone is subscribed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TripEventService {
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final MongoTemplate mongoTemplate;
+    private final TripEventsProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    public void streamTripsOf(String username, OutputStream out) throws IOException {
+        stream(subscribe(username, null), out);
+    }
+
+    public void streamTrip(String tripId, OutputStream out) throws IOException {
+        stream(subscribe(null, tripId), out);
+    }
+
+    public void tripChanged(String tripId) {
+        if (properties.changeStream() || subscriptions.isEmpty()) {
+            return;
+        }
+        try {
+            Trip current = mongoTemplate.findOne(TripEvents.audienceOf(tripId), Trip.class);
+            if (current != null) {
+                publish(TripEvents.changed(current, null));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Subscribers of trip {} were not told about a change: {}", tripId, e.getMessage());
+        }
+    }
+
+    // The written trip is at hand, so it is not read back
+    public void tripChanged(Trip current, Trip previous) {
+        if (!properties.changeStream()) {
+            publish(TripEvents.changed(current, previous));
+        }
+    }
+
+    public void tripDeleted(Trip removed) {
+        if (!properties.changeStream()) {
+            publish(TripEvents.deleted(removed));
+        }
+    }
+
+    public void publish(TripChange change) {
+        subscriptions.forEach(subscription -> {
+            if (change.reaches(subscription.username, subscription.tripId)) {
+                subscription.offer(change.event());
+            }
+        });
+    }
+
+    // Changes may have been missed, so every subscriber starts over from a sync
+    public void resyncAll() {
+        subscriptions.forEach(subscription -> subscription.offer(TripEvents.resync()));
+    }
+
+    Subscription subscribe(String username, String tripId) {
+        Subscription subscription = new Subscription(username, tripId, properties.bufferSize());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Returns once the subscriber is told to resync; a client that went away fails the next write, at the latest the heartbeat
+    void stream(Subscription subscription, OutputStream out) throws IOException {
+        try {
+            // Opens the stream right away, so that clients know they are subscribed before they sync
+            out.write(HEARTBEAT);
+            out.flush();
+            while (true) {
+                TripChangeEventDto event = subscription.next(properties.heartbeat());
+                out.write(event != null ? frameOf(event) : HEARTBEAT);
+                out.flush();
+                if (event != null && TripEvents.RESYNC.equals(event.getType())) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscriptions.remove(subscription);
+        }
+    }
+
+    int subscribers() {
+        return subscriptions.size();
+    }
+
+    private byte[] frameOf(TripChangeEventDto event) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(("event:" + event.getType() + "\ndata:").getBytes(StandardCharsets.UTF_8));
+        objectMapper.writeValue(frame, event);
+        frame.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        return frame.toByteArray();
+    }
+
+    static final class Subscription {
+
+        private final String username;
+        private final String tripId;
+        private final BlockingQueue<TripChangeEventDto> events;
+        private boolean resyncing;
+
+        Subscription(String username, String tripId, int bufferSize) {
+            this.username = username;
+            this.tripId = tripId;
+            this.events = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        // Pending events are dropped once a resync is due, since the client refetches everything they announce
+        synchronized void offer(TripChangeEventDto event) {
+            if (resyncing) {
+                return;
+            }
+            if (!events.offer(event) || TripEvents.RESYNC.equals(event.getType())) {
+                resyncing = true;
+                events.clear();
+                events.offer(TripEvents.resync());
+            }
+        }
+
+        TripChangeEventDto next(Duration timeout) throws InterruptedException {
+            return events.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        int pending() {
+            return events.size();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+import com.dmmarques.travel_management.model.Trip;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.dmmarques.travel_management.service.TripQueries.VERSION;
+
+/**
+ * Change events pushed to the subscribers of a trip or of a user, shared by the blocking and the reactive event
+ * services. An event only names the trip and its version, so clients fetch the trip, or sync, to see what changed and
+ * drop events older than the version they hold. A {@value #RESYNC} event ends the stream of a subscriber that fell
+ * too far behind or may have missed changes.
+ */
+public final class TripEvents {
+
+    public static final String CHANGED = "changed";
+    public static final String DELETED = "deleted";
+    public static final String RESYNC = "resync";
+
+    // Logged at startup, since nothing else shows that the subscribers of a scaled-out service miss other writes
+    public static final String LOCAL_ONLY_WARNING = "Trip change stream is disabled: event subscribers only hear about "
+        + "writes made by this instance. Set travel-management.trip-events.change-stream=true when running more than one.";
+
+    private static final List<String> MEMBER_FIELDS = List.of("creatorUsername", "participantUsernames", VERSION);
+
+    private TripEvents() {
+    }
+
+    // Reads whom to tell about a write to the trip
+    public static Query audienceOf(String tripId) {
+        return TripQueries.withMembers(TripQueries.byTripId(tripId));
+    }
+
+    // A trip handed to another user is also announced to the users it left
+    public static TripChange changed(Trip current, Trip previous) {
+        Set<String> usernames = new LinkedHashSet<>();
+        addMembers(usernames, current.creatorUsername(), current.participantUsernames());
+        if (previous != null) {
+            addMembers(usernames, previous.creatorUsername(), previous.participantUsernames());
+        }
+        return new TripChange(new TripChangeEventDto(CHANGED, current.id(), current.version()), usernames);
+    }
+
+    public static TripChange deleted(Trip removed) {
+        Set<String> usernames = new LinkedHashSet<>();
+        addMembers(usernames, removed.creatorUsername(), removed.participantUsernames());
+        return new TripChange(new TripChangeEventDto(DELETED, removed.id(), removed.version()), usernames);
+    }
+
+    public static TripChangeEventDto resync() {
+        return new TripChangeEventDto(RESYNC, null, null);
+    }
+
+    /**
+     * Change stream stages that keep the writes to trips and only the fields events are made of. The trip after an
+     * update is looked up, and the trip before it is only there when pre-images are enabled on the collection.
+     */
+    public static List<Document> changeStreamPipeline() {
+        Document fields = new Document("operationType", 1).append("documentKey", 1);
+        MEMBER_FIELDS.forEach(field -> fields.append("fullDocument." + field, 1).append("fullDocumentBeforeChange." + field, 1));
+        return List.of(
+            new Document("$match", new Document("operationType", new Document("$in", List.of("insert", "update", "replace", "delete")))),
+            new Document("$project", fields));
+    }
+
+    public static String tripIdOf(BsonDocument documentKey) {
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.isString() ? id.asString().getValue() : null;
+    }
+
+    /**
+     * The change a change stream event stands for, or null for one that is not about a trip. Without a pre-image a
+     * deletion only reaches the subscribers of the trip, and a trip handed to another user is not announced to the
+     * users it left.
+     */
+    public static TripChange fromChangeStream(String operationType, String tripId, Document fullDocument, Document before) {
+        if (tripId == null || operationType == null) {
+            return null;
+        }
+        Set<String> usernames = new LinkedHashSet<>();
+        addMembers(usernames, fullDocument);
+        addMembers(usernames, before);
+        if ("delete".equals(operationType)) {
+            return new TripChange(new TripChangeEventDto(DELETED, tripId, versionOf(before)), usernames);
+        }
+        // An update whose trip was deleted before it was looked up is followed by the deletion
+        if (fullDocument == null) {
+            return null;
+        }
+        return new TripChange(new TripChangeEventDto(CHANGED, tripId, versionOf(fullDocument)), usernames);
+    }
+
+    private static void addMembers(Set<String> usernames, Document trip) {
+        if (trip != null) {
+            addMembers(usernames, trip.getString("creatorUsername"), trip.getList("participantUsernames", String.class));
+        }
+    }
+
+    private static void addMembers(Set<String> usernames, String creatorUsername, List<String> participantUsernames) {
+        if (creatorUsername != null) {
+            usernames.add(creatorUsername);
+        }
+        if (participantUsernames != null) {
+            usernames.addAll(participantUsernames);
+        }
+    }
+
+    private static Long versionOf(Document trip) {
+        return trip != null && trip.get(VERSION) instanceof Number version ? version.longValue() : null;
+    }
+}
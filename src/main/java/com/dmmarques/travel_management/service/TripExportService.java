@@ -0,0 +1,53 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripExportProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's trips as newline-delimited JSON straight from a Mongo cursor. Only the current cursor batch and the
+ * output buffers are held in memory, and a slow client blocks the write, which in turn stops the cursor from fetching
+ * the next batch.
+ */
+@Service
+@Slf4j
+public class TripExportService {
+
+    private final MongoTemplate mongoTemplate;
+    private final TripExportProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter tripWriter;
+
+    public TripExportService(MongoTemplate mongoTemplate, TripExportProperties properties, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        // Flushing is left to the output buffers, so trips are not pushed to the client one syscall at a time
+        this.tripWriter = objectMapper.writerFor(Trip.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public long exportTripsByUsername(String username, OutputStream out) throws IOException {
+        long exported = 0;
+        try (Stream<Trip> trips = mongoTemplate.stream(TripQueries.exportOf(username, properties.batchSize()), Trip.class);
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            for (Iterator<Trip> it = trips.iterator(); it.hasNext(); exported++) {
+                tripWriter.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+            }
+        }
+        log.info("Exported {} trips of {}", exported, username);
+        return exported;
+    }
+}
@@ -0,0 +1,98 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripImportProperties;
+import com.dmmarques.travel_management.dto.TripImportLineDto;
+import com.dmmarques.travel_management.dto.TripImportReportDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripImports.ParsedLine;
+import com.dmmarques.travel_management.service.TripImports.RawLine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads newline-delimited trips from the request body one line at a time and inserts them in unordered bulk writes, so
+ * only one batch of trips is held in memory and a duplicate or invalid trip does not stop the others of its batch.
+ * Lines over the configured length are rejected as they are read, and the report only lists the first failed lines.
+ * The statistics and subscribers learn of the inserted trips once per batch.
+ */
+@Service
+@Slf4j
+public class TripImportService {
+
+    private static final int CHUNK_BYTES = 8192;
+
+    private final MongoTemplate mongoTemplate;
+    private final TripStatsService tripStats;
+    private final TripEventService tripEvents;
+    private final TripImportProperties properties;
+    private final Validator validator;
+    private final ObjectReader tripReader;
+
+    public TripImportService(MongoTemplate mongoTemplate, TripStatsService tripStats, TripEventService tripEvents,
+                             TripImportProperties properties, ObjectMapper objectMapper, Validator validator) {
+        this.mongoTemplate = mongoTemplate;
+        this.tripStats = tripStats;
+        this.tripEvents = tripEvents;
+        this.properties = properties;
+        this.validator = validator;
+        this.tripReader = TripImports.tripReader(objectMapper);
+    }
+
+    public TripImportReportDto importTrips(InputStream in) throws IOException {
+        TripImports.Tally tally = new TripImports.Tally(properties.maxReportedFailures());
+        TripImports.LineSplitter splitter = new TripImports.LineSplitter(properties.maxLineBytes());
+        List<ParsedLine> batch = new ArrayList<>(properties.batchSize());
+        byte[] chunk = new byte[CHUNK_BYTES];
+        for (int read = in.read(chunk); read != -1; read = in.read(chunk)) {
+            for (RawLine line : splitter.feed(chunk, 0, read)) {
+                add(line, batch, tally);
+            }
+        }
+        splitter.finish().ifPresent(line -> add(line, batch, tally));
+        tally.add(insert(batch));
+        TripImportReportDto report = tally.report();
+        log.info("Imported trips: {} inserted, {} duplicates, {} invalid", report.getInserted(), report.getDuplicates(),
+            report.getInvalid());
+        return report;
+    }
+
+    private void add(RawLine line, List<ParsedLine> batch, TripImports.Tally tally) {
+        if (line.isBlank()) {
+            return;
+        }
+        batch.add(TripImports.parse(tripReader, validator, line, properties.maxLineBytes()));
+        if (batch.size() == properties.batchSize()) {
+            tally.add(insert(batch));
+            batch.clear();
+        }
+    }
+
+    private List<TripImportLineDto> insert(List<ParsedLine> batch) {
+        List<Trip> trips = TripImports.tripsOf(batch);
+        List<BulkWriteError> writeErrors = List.of();
+        if (!trips.isEmpty()) {
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trip.class).insert(trips).execute();
+            } catch (BulkOperationException e) {
+                writeErrors = e.getErrors();
+            }
+        }
+        List<TripImportLineDto> results = TripImports.results(batch, writeErrors);
+        List<Trip> inserted = TripImports.insertedOf(batch, results);
+        tripStats.tripsInserted(inserted);
+        inserted.forEach(trip -> tripEvents.tripChanged(trip, null));
+        return results;
+    }
+}
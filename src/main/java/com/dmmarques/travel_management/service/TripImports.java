@@ -0,0 +1,224 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.TripImportLineDto;
+import com.dmmarques.travel_management.dto.TripImportReportDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Line handling shared by the servlet and reactive NDJSON imports. The body is split into lines of bounded length,
+ * every line is parsed and validated on its own, so a bad line is reported without aborting the import, and the write
+ * errors of an unordered bulk insert are mapped back to the lines they came from. Only counters and the first failed
+ * lines are kept, so an import holds no more than one batch of trips whatever the size of its body.
+ */
+public final class TripImports {
+
+    private TripImports() {
+    }
+
+    // A line either carries a trip to insert or already has its result
+    public record ParsedLine(long line, Trip trip, TripImportLineDto rejected) {
+    }
+
+    public static ObjectReader tripReader(ObjectMapper objectMapper) {
+        return objectMapper.readerFor(Trip.class).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    }
+
+    public static ParsedLine parse(ObjectReader tripReader, Validator validator, long line, String json) {
+        Trip trip;
+        try {
+            trip = tripReader.readValue(json);
+        } catch (JsonProcessingException e) {
+            return rejected(line, "Malformed trip: " + e.getOriginalMessage());
+        }
+        if (trip == null) {
+            return rejected(line, "Malformed trip: null");
+        }
+        Set<ConstraintViolation<Trip>> violations = validator.validate(trip);
+        if (!violations.isEmpty()) {
+            return rejected(line, violations.stream()
+                                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                                            .sorted()
+                                            .collect(Collectors.joining(", ")));
+        }
+        // Ids are assigned before the insert so that the report can name every inserted trip
+        String id = trip.id() != null ? trip.id() : new ObjectId().toHexString();
+        return new ParsedLine(line, trip.withId(id).withVersion(0L).withLastModified(TripQueries.modifiedNow()), null);
+    }
+
+    public static List<Trip> tripsOf(List<ParsedLine> batch) {
+        return batch.stream().map(ParsedLine::trip).filter(Objects::nonNull).toList();
+    }
+
+    // The trips of the batch that its bulk write inserted
+    public static List<Trip> insertedOf(List<ParsedLine> batch, List<TripImportLineDto> results) {
+        Set<String> insertedIds = results.stream()
+                                         .filter(result -> result.getStatus() == TripImportLineDto.Status.INSERTED)
+                                         .map(TripImportLineDto::getTripId)
+                                         .collect(Collectors.toSet());
+        return tripsOf(batch).stream().filter(trip -> insertedIds.contains(trip.id())).toList();
+    }
+
+    // Write errors carry the position of the failed trip among the inserted ones, not among the lines
+    public static List<TripImportLineDto> results(List<ParsedLine> batch, List<BulkWriteError> writeErrors) {
+        Map<Integer, BulkWriteError> errorsByIndex = new HashMap<>();
+        writeErrors.forEach(error -> errorsByIndex.put(error.getIndex(), error));
+        List<TripImportLineDto> results = new ArrayList<>(batch.size());
+        int index = 0;
+        for (ParsedLine parsed : batch) {
+            if (parsed.rejected() != null) {
+                results.add(parsed.rejected());
+                continue;
+            }
+            BulkWriteError error = errorsByIndex.get(index++);
+            Trip trip = parsed.trip();
+            if (error == null) {
+                results.add(new TripImportLineDto(parsed.line(), TripImportLineDto.Status.INSERTED, trip.id(), null));
+            } else if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+                && error.getMessage().contains(Trip.CREATOR_NAME_INDEX)) {
+                results.add(new TripImportLineDto(parsed.line(), TripImportLineDto.Status.DUPLICATE_NAME, null,
+                    "Trip with name " + trip.name() + " already exists."));
+            } else {
+                results.add(new TripImportLineDto(parsed.line(), TripImportLineDto.Status.INVALID, null, error.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    // A line over the length limit is rejected without being parsed; its content was never kept
+    public static ParsedLine parse(ObjectReader tripReader, Validator validator, RawLine line, int maxLineBytes) {
+        return line.tooLong() ? rejected(line.number(), "Line longer than " + maxLineBytes + " bytes")
+                              : parse(tripReader, validator, line.number(), line.json());
+    }
+
+    private static ParsedLine rejected(long line, String error) {
+        return new ParsedLine(line, null, new TripImportLineDto(line, TripImportLineDto.Status.INVALID, null, error));
+    }
+
+    // A line of the body, numbered from 1; the json of a line over the limit is dropped as it is read
+    public record RawLine(long number, String json, boolean tooLong) {
+
+        public boolean isBlank() {
+            return !tooLong && json.isBlank();
+        }
+    }
+
+    /**
+     * Splits a body fed in chunks into UTF-8 lines, holding at most {@code maxLineBytes} of the current line. The bytes
+     * of a longer line are skipped up to its end, so that a single huge line cannot exhaust memory.
+     */
+    public static final class LineSplitter {
+
+        private final int maxLineBytes;
+        private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+        private long number;
+        private boolean tooLong;
+
+        public LineSplitter(int maxLineBytes) {
+            this.maxLineBytes = maxLineBytes;
+        }
+
+        public List<RawLine> feed(byte[] chunk, int offset, int length) {
+            List<RawLine> lines = new ArrayList<>();
+            int start = offset;
+            for (int i = offset; i < offset + length; i++) {
+                if (chunk[i] == '\n') {
+                    append(chunk, start, i - start);
+                    lines.add(endLine());
+                    start = i + 1;
+                }
+            }
+            append(chunk, start, offset + length - start);
+            return lines;
+        }
+
+        // The last line, when the body does not end with a newline
+        public Optional<RawLine> finish() {
+            return current.size() > 0 || tooLong ? Optional.of(endLine()) : Optional.empty();
+        }
+
+        private void append(byte[] chunk, int offset, int length) {
+            if (tooLong || length == 0) {
+                return;
+            }
+            if (current.size() + length > maxLineBytes + 1) {
+                // One byte of slack for the carriage return of a CRLF line
+                tooLong = true;
+                current.reset();
+                return;
+            }
+            current.write(chunk, offset, length);
+        }
+
+        private RawLine endLine() {
+            number++;
+            RawLine line;
+            if (tooLong) {
+                line = new RawLine(number, null, true);
+            } else {
+                String json = current.toString(StandardCharsets.UTF_8);
+                json = json.endsWith("\r") ? json.substring(0, json.length() - 1) : json;
+                line = json.getBytes(StandardCharsets.UTF_8).length > maxLineBytes ? new RawLine(number, null, true)
+                                                                                    : new RawLine(number, json, false);
+            }
+            current.reset();
+            tooLong = false;
+            return line;
+        }
+    }
+
+    /**
+     * Running totals of an import. Inserted lines are only counted; failed lines are listed up to a cap and counted
+     * beyond it.
+     */
+    public static final class Tally {
+
+        private final int maxReportedFailures;
+        private final List<TripImportLineDto> failures = new ArrayList<>();
+        private int inserted;
+        private int duplicates;
+        private int invalid;
+
+        public Tally(int maxReportedFailures) {
+            this.maxReportedFailures = maxReportedFailures;
+        }
+
+        public Tally add(List<TripImportLineDto> results) {
+            for (TripImportLineDto result : results) {
+                switch (result.getStatus()) {
+                    case INSERTED -> inserted++;
+                    case DUPLICATE_NAME -> duplicates++;
+                    case INVALID -> invalid++;
+                }
+                if (result.getStatus() != TripImportLineDto.Status.INSERTED && failures.size() < maxReportedFailures) {
+                    failures.add(result);
+                }
+            }
+            return this;
+        }
+
+        public TripImportReportDto report() {
+            return new TripImportReportDto(inserted, duplicates, invalid, List.copyOf(failures),
+                duplicates + invalid - failures.size());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.dmmarques.travel_management.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last trip of a page in the (startDate, _id) listing order, exchanged with clients as an opaque
+ * continuation token.
+ */
+record TripPageCursor(LocalDate startDate, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        String raw = startDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TripPageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid continuation token " + token);
+            }
+            return new TripPageCursor(LocalDate.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token " + token, e);
+        }
+    }
+}
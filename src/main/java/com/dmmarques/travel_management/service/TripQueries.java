@@ -0,0 +1,514 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.CostBucketDto;
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyDto;
+import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.dto.TripBatchEntryDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Coordinates;
+import com.dmmarques.travel_management.model.Trip;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators.AngularUnit;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GeoNearOperation;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Queries, updates and aggregations shared by the blocking and the reactive trip services, so that both stacks send
+ * Mongo the same commands and only differ in how they wait for the results.
+ */
+public final class TripQueries {
+
+    public static final String ACTIVITY_LIST = "activityList";
+    public static final String ACCOMMODATIONS = "accommodations";
+    public static final String TRAVEL_LIST = "travelList";
+    public static final String VERSION = "version";
+    public static final String LAST_MODIFIED = "lastModified";
+    // Cost categories of the sub-documents that have no category of their own
+    public static final String ACCOMMODATION_COSTS = "ACCOMMODATION";
+    public static final String TRAVEL_COSTS = "TRAVEL";
+    // Keeps a bulk insert of activities well below Mongo's 16 MB document limit
+    public static final int MAX_BULK_ACTIVITIES = 1000;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_NEARBY_LIMIT = 100;
+    private static final Decimal128 DECIMAL_ZERO = Decimal128.parse("0");
+    private static final Sort PAGE_ORDER = Sort.by(Sort.Direction.ASC, "startDate", "id");
+    // The sphere $geoNear measures on, so that both distances agree
+    private static final double EARTH_RADIUS_METERS = 6_378_100;
+
+    private TripQueries() {
+    }
+
+    // Counts are computed server-side so the nested arrays never cross the wire
+    public static TypedAggregation<Trip> summariesOf(String username) {
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(Criteria.where("creatorUsername").is(username)),
+            summaryProjection());
+    }
+
+    // Fetches one extra trip to find out whether another page follows
+    public static Query pageOf(String username, String continuationToken, int pageSize) {
+        return Query.query(pageCriteria(username, continuationToken)).with(PAGE_ORDER).limit(pageSize + 1);
+    }
+
+    public static TypedAggregation<Trip> summaryPageOf(String username, String continuationToken, int pageSize) {
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(pageCriteria(username, continuationToken)),
+            Aggregation.sort(PAGE_ORDER),
+            Aggregation.limit(pageSize + 1),
+            summaryProjection());
+    }
+
+    public static <T> TripPageDto<T> toPage(List<T> results, int pageSize,
+                                            Function<T, LocalDate> startDateOf, Function<T, String> idOf) {
+        if (results.size() <= pageSize) {
+            return new TripPageDto<>(results, null);
+        }
+        List<T> items = results.subList(0, pageSize);
+        T last = items.get(pageSize - 1);
+        return new TripPageDto<>(items, new TripPageCursor(startDateOf.apply(last), idOf.apply(last)).encode());
+    }
+
+    public static TripPageDto<Activity> toActivityPage(List<Activity> results, int pageSize) {
+        if (results.size() <= pageSize) {
+            return new TripPageDto<>(results, null);
+        }
+        List<Activity> items = results.subList(0, pageSize);
+        Activity last = items.get(pageSize - 1);
+        return new TripPageDto<>(items, new ActivityPageCursor(last.activityDate(), last.id()).encode());
+    }
+
+    /**
+     * One page of the activities embedded in a trip, in (activityDate, _id) order, optionally limited to a day or to a
+     * time window. $filter keeps the activities of the window past the cursor, and the page is sorted and cut on the
+     * server so that only its activities leave Mongo.
+     */
+    public static TypedAggregation<Trip> tripActivityPageOf(String username, String tripId, LocalDate day, LocalDateTime from,
+                                                            LocalDateTime to, String continuationToken, int pageSize) {
+        if (day != null) {
+            if (from != null || to != null) {
+                throw new IllegalArgumentException("Activities are filtered by either a day or a time window.");
+            }
+            from = day.atStartOfDay();
+            to = day.plusDays(1).atStartOfDay();
+        }
+        if (from != null && to != null) {
+            requireOrdered(from, to);
+        }
+        List<Document> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add(new Document("$gte", List.of("$$entry.activityDate", dateOf(from))));
+        }
+        if (to != null) {
+            conditions.add(new Document("$lt", List.of("$$entry.activityDate", dateOf(to))));
+        }
+        if (continuationToken != null && !continuationToken.isBlank()) {
+            conditions.add(after(ActivityPageCursor.decode(continuationToken)));
+        }
+        Document activities = new Document("$filter", new Document("input", new Document("$ifNull", List.of("$" + ACTIVITY_LIST, List.of())))
+            .append("as", "entry")
+            .append("cond", conditions.isEmpty() ? Boolean.TRUE : new Document("$and", conditions)));
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(Criteria.where("id").is(tripId).and("creatorUsername").is(username)),
+            Aggregation.project().and(context -> activities).as("activities"),
+            Aggregation.unwind("activities"),
+            Aggregation.sort(Sort.Direction.ASC, "activities.activityDate", "activities._id"),
+            Aggregation.limit(pageSize + 1),
+            Aggregation.replaceRoot("activities"));
+    }
+
+    // Walks the (creatorUsername, startDate, _id) index, so the export needs no in-memory sort
+    public static Query exportOf(String username, int batchSize) {
+        return Query.query(Criteria.where("creatorUsername").is(username)).with(PAGE_ORDER).cursorBatchSize(batchSize);
+    }
+
+    // Bounded on the (creatorUsername, endDate, startDate) index by trips not ended before from; startDate is checked on the same keys
+    public static TypedAggregation<Trip> overlappingOf(String username, LocalDate from, LocalDate to) {
+        requireOrdered(from, to);
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(Criteria.where("creatorUsername").is(username).and("endDate").gte(from).and("startDate").lte(to)),
+            Aggregation.sort(PAGE_ORDER),
+            summaryProjection());
+    }
+
+    /**
+     * Activities, travels and accommodations of a user that start in {@code [from, to)}. Each branch of the $or is
+     * answered by the multikey index on its array's date, and $filter drops the entries outside the window before the
+     * trips leave the server.
+     */
+    public static TypedAggregation<Trip> scheduleOf(String username, LocalDateTime from, LocalDateTime to) {
+        requireOrdered(from, to);
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(new Criteria().orOperator(
+                scheduledIn(username, ACTIVITY_LIST, "activityDate", from, to),
+                scheduledIn(username, TRAVEL_LIST, "departureDate", from, to),
+                scheduledIn(username, ACCOMMODATIONS, "checkInDate", from, to))),
+            Aggregation.sort(PAGE_ORDER),
+            Aggregation.project("name", "startDate", "endDate")
+                       .and(inWindow(ACTIVITY_LIST, "activityDate", from, to)).as("activities")
+                       .and(inWindow(TRAVEL_LIST, "departureDate", from, to)).as("travels")
+                       .and(inWindow(ACCOMMODATIONS, "checkInDate", from, to)).as("accommodations"));
+    }
+
+    public static TypedAggregation<Trip> tripCostsOf(String tripId) {
+        return costsOf(Criteria.where("id").is(tripId));
+    }
+
+    public static TypedAggregation<Trip> userCostsOf(String username) {
+        return costsOf(Criteria.where("creatorUsername").is(username));
+    }
+
+    // Null when the aggregation matched no trip
+    public static CostSummaryDto toCostSummary(Document result) {
+        List<Document> budget = result.getList("budget", Document.class);
+        if (budget.isEmpty()) {
+            return null;
+        }
+        List<CostBucketDto> byCategory = costBuckets(result.getList("byCategory", Document.class));
+        BigDecimal total = byCategory.stream().map(CostBucketDto::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new CostSummaryDto(decimalOf(budget.get(0).get("budget")), total, byCategory,
+            costBuckets(result.getList("byDay", Document.class)));
+    }
+
+    // A single $in on _id, scoped to the creator so that other users' trips read as not found
+    public static Query batchOf(String username, List<String> tripIds) {
+        return Query.query(batchCriteria(username, tripIds));
+    }
+
+    public static TypedAggregation<Trip> summaryBatchOf(String username, List<String> tripIds) {
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(batchCriteria(username, tripIds)),
+            summaryProjection());
+    }
+
+    // Answers every requested id in request order, repeating duplicates and marking the ids that were not found
+    public static <T> List<TripBatchEntryDto<T>> inRequestOrder(List<String> tripIds, List<T> results, Function<T, String> idOf) {
+        Map<String, T> resultsById = results.stream().collect(Collectors.toMap(idOf, Function.identity()));
+        return tripIds.stream()
+                      .map(id -> new TripBatchEntryDto<>(id, resultsById.containsKey(id), resultsById.get(id)))
+                      .toList();
+    }
+
+    /**
+     * The {@code limit} activities or accommodations of a user closest to a point, optionally within {@code radius}
+     * meters. {@code $geoNear} walks the 2dsphere index of the array and orders trips by their closest element, so the
+     * closest elements overall lie within the first {@code limit} trips; only those are unwound and measured.
+     */
+    public static Aggregation nearbyOf(String username, String arrayField, GeoJsonPoint point, Double radius, int limit) {
+        String location = arrayField + ".location";
+        // Without a metric Spring Data would send the radius as radians; with one it converts it to the meters GeoJSON uses
+        NearQuery nearQuery = NearQuery.near(point, Metrics.KILOMETERS)
+                                       .spherical(true)
+                                       .query(Query.query(Criteria.where("creatorUsername").is(username)))
+                                       .limit(limit);
+        if (radius != null) {
+            nearQuery.maxDistance(new Distance(radius / 1000, Metrics.KILOMETERS));
+        }
+        List<AggregationOperation> stages = new ArrayList<>(List.of(
+            new GeoNearOperation(nearQuery, "nearest").useIndex(location),
+            Aggregation.unwind(arrayField),
+            Aggregation.match(Criteria.where(location).ne(null)),
+            Aggregation.project()
+                       .and("_id").as("tripId")
+                       .and("name").as("tripName")
+                       .and(arrayField).as("place")
+                       .and(distanceFrom(point, location)).as("distance")));
+        if (radius != null) {
+            stages.add(Aggregation.match(Criteria.where("distance").lte(radius)));
+        }
+        stages.add(Aggregation.sort(Sort.Direction.ASC, "distance"));
+        stages.add(Aggregation.limit(limit));
+        return Aggregation.newAggregation(stages);
+    }
+
+    public static <T> NearbyDto<T> toNearby(Document result, Class<T> placeType, MongoConverter converter) {
+        return new NearbyDto<>(String.valueOf(result.get("tripId")), result.getString("tripName"),
+            ((Number) result.get("distance")).doubleValue(), converter.read(placeType, result.get("place", Document.class)));
+    }
+
+    public static GeoJsonPoint nearbyPoint(double latitude, double longitude, Double radius) {
+        if (!Coordinates.isValid(latitude, longitude)) {
+            throw new IllegalArgumentException("Latitude must be within [-90, 90] and longitude within [-180, 180].");
+        }
+        if (radius != null && !(radius > 0)) {
+            throw new IllegalArgumentException("Radius must be a positive number of meters.");
+        }
+        return new GeoJsonPoint(longitude, latitude);
+    }
+
+    public static int nearbyLimit(int requestedLimit) {
+        return Math.max(1, Math.min(requestedLimit, MAX_NEARBY_LIMIT));
+    }
+
+    public static int pageSize(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+    }
+
+    public static Query byTripId(String tripId) {
+        return Query.query(Criteria.where("id").is(tripId));
+    }
+
+    public static Query byTripId(String tripId, Criteria condition) {
+        Query query = byTripId(tripId);
+        if (condition != null) {
+            query.addCriteria(condition);
+        }
+        return query;
+    }
+
+    public static Query versionOf(String tripId) {
+        Query query = byTripId(tripId);
+        query.fields().include(VERSION);
+        return query;
+    }
+
+    public static Query versionOf(String username, String tripId) {
+        return versionOf(tripId).addCriteria(Criteria.where("creatorUsername").is(username));
+    }
+
+    // Only the creator, the participants and the version are read back, which is all a write needs to know about the
+    // trip it replaces or removes and whom to tell about it
+    public static Query withMembers(Query query) {
+        query.fields().include("creatorUsername", "participantUsernames", VERSION);
+        return query;
+    }
+
+    // Mongo keeps milliseconds, so stamps are truncated the way they are read back
+    public static Instant modifiedNow() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    // Every update of a trip bumps its version and stamps it for the delta sync
+    public static Update touched(Update update) {
+        return update.inc(VERSION, 1).set(LAST_MODIFIED, modifiedNow());
+    }
+
+    // Trips written before versioning have no version, which compare-and-set writes treat as version 0
+    public static Criteria versionIs(Long version) {
+        if (version == null || version == 0) {
+            return Criteria.where(VERSION).in(Arrays.asList(0L, null));
+        }
+        return Criteria.where(VERSION).is(version);
+    }
+
+    // Guard of a write conditional on the version a client read; null when the write is unconditional
+    public static Criteria guardedBy(Criteria condition, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return condition;
+        }
+        return condition == null ? versionIs(expectedVersion) : new Criteria().andOperator(condition, versionIs(expectedVersion));
+    }
+
+    // Budget is only taken from the request when it also carries an end date
+    public static Update partialUpdate(Trip trip, PartialTripDto partialTripDto) {
+        return new Update()
+            .set("name", partialTripDto.getName() != null ? partialTripDto.getName() : trip.name())
+            .set("startDate", partialTripDto.getStartDate() != null ? partialTripDto.getStartDate() : trip.startDate())
+            .set("endDate", partialTripDto.getEndDate() != null ? partialTripDto.getEndDate() : trip.endDate())
+            .set("budget", partialTripDto.getEndDate() != null ? partialTripDto.getBudget() : trip.budget());
+    }
+
+    public static Activity withGeneratedId(Activity activity) {
+        return activity.id() != null ? activity : withNewId(activity);
+    }
+
+    public static Activity withNewId(Activity activity) {
+        return activity.withId(new ObjectId().toString());
+    }
+
+    // One $push with $each appends the whole batch atomically, in order
+    public static Update pushActivities(List<Activity> activities) {
+        return new Update().push(ACTIVITY_LIST).each(activities.toArray());
+    }
+
+    public static RuntimeException duplicateNameOr(DuplicateKeyException e, String tripName) {
+        if (e.getMessage() != null && e.getMessage().contains(Trip.CREATOR_NAME_INDEX)) {
+            return new IllegalArgumentException("Trip with name " + tripName + " already exists.");
+        }
+        return e;
+    }
+
+    public static boolean matched(UpdateResult result) {
+        return result != null && result.getMatchedCount() > 0;
+    }
+
+    private static Criteria batchCriteria(String username, List<String> tripIds) {
+        if (tripIds.isEmpty() || tripIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch must request between 1 and " + MAX_BATCH_SIZE + " trips.");
+        }
+        return Criteria.where("creatorUsername").is(username).and("id").in(new LinkedHashSet<>(tripIds));
+    }
+
+    // Seeks past the cursor on the (creatorUsername, startDate, _id) index, so every page costs the same as the first
+    private static Criteria pageCriteria(String username, String continuationToken) {
+        Criteria criteria = Criteria.where("creatorUsername").is(username);
+        if (continuationToken == null || continuationToken.isBlank()) {
+            return criteria;
+        }
+        TripPageCursor after = TripPageCursor.decode(continuationToken);
+        return criteria.orOperator(
+            Criteria.where("startDate").gt(after.startDate()),
+            Criteria.where("startDate").is(after.startDate()).and("id").gt(after.id())
+        );
+    }
+
+    /**
+     * Budget and costs of the matched trips, summed by category and by day in one round trip. Amounts are stored as
+     * strings, so each one is converted to Decimal128 and summed exactly; missing or unparsable amounts count as zero.
+     */
+    private static TypedAggregation<Trip> costsOf(Criteria trips) {
+        return Aggregation.newAggregation(Trip.class,
+            Aggregation.match(trips),
+            Aggregation.project().and(context -> decimal("$budget")).as("budget").and(context -> costEntries()).as("costs"),
+            Aggregation.facet(Aggregation.group().sum("budget").as("budget")).as("budget")
+                       .and(Aggregation.unwind("costs"),
+                            Aggregation.group("costs.category").sum("costs.amount").as("total"),
+                            Aggregation.sort(Sort.Direction.ASC, "_id")).as("byCategory")
+                       .and(Aggregation.unwind("costs"),
+                            Aggregation.group("costs.day").sum("costs.amount").as("total"),
+                            Aggregation.sort(Sort.Direction.ASC, "_id")).as("byDay"));
+    }
+
+    // One {category, day, amount} entry per activity, accommodation and travel
+    private static Document costEntries() {
+        return new Document("$concatArrays", List.of(
+            costEntriesOf(ACTIVITY_LIST, "$$entry.category", "activityDate", decimal("$$entry.cost")),
+            costEntriesOf(ACCOMMODATIONS, ACCOMMODATION_COSTS, "checkInDate", new Document("$add", List.of(
+                decimal("$$entry.priceForAdult"), decimal("$$entry.priceForChild"), decimal("$$entry.priceForPet")))),
+            costEntriesOf(TRAVEL_LIST, TRAVEL_COSTS, "departureDate", decimal("$$entry.genTravelCost.totalCost"))));
+    }
+
+    // Days are taken in the zone Spring Data converts LocalDateTime with when writing
+    private static Document costEntriesOf(String arrayField, String category, String dateField, Document amount) {
+        Document day = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+            .append("date", "$$entry." + dateField)
+            .append("timezone", ZoneId.systemDefault().getId()));
+        return new Document("$map", new Document("input", new Document("$ifNull", List.of("$" + arrayField, List.of())))
+            .append("as", "entry")
+            .append("in", new Document("category", category).append("day", day).append("amount", amount)));
+    }
+
+    // Embedded ids are written the way Spring Data writes any id, as an ObjectId when the string is a valid one
+    private static Document after(ActivityPageCursor cursor) {
+        Object id = ObjectId.isValid(cursor.id()) ? new ObjectId(cursor.id()) : cursor.id();
+        Date activityDate = dateOf(cursor.activityDate());
+        return new Document("$or", List.of(
+            new Document("$gt", List.of("$$entry.activityDate", activityDate)),
+            new Document("$and", List.of(
+                new Document("$eq", List.of("$$entry.activityDate", activityDate)),
+                new Document("$gt", List.of("$$entry._id", id))))));
+    }
+
+    // Raw expressions bypass the converter, so dates are converted in the zone it writes LocalDateTime with
+    private static Date dateOf(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static Document decimal(String value) {
+        return new Document("$convert", new Document("input", value)
+            .append("to", "decimal")
+            .append("onError", DECIMAL_ZERO)
+            .append("onNull", DECIMAL_ZERO));
+    }
+
+    private static List<CostBucketDto> costBuckets(List<Document> buckets) {
+        return buckets.stream()
+                      .map(bucket -> new CostBucketDto(bucket.getString("_id"), decimalOf(bucket.get("total"))))
+                      .toList();
+    }
+
+    private static BigDecimal decimalOf(Object value) {
+        return value instanceof Decimal128 decimal ? decimal.bigDecimalValue() : BigDecimal.ZERO;
+    }
+
+    private static <T extends Comparable<? super T>> void requireOrdered(T from, T to) {
+        if (from.compareTo(to) > 0) {
+            throw new IllegalArgumentException("The range must not end before it starts.");
+        }
+    }
+
+    private static Criteria scheduledIn(String username, String arrayField, String dateField, LocalDateTime from, LocalDateTime to) {
+        return Criteria.where("creatorUsername").is(username)
+                       .and(arrayField).elemMatch(Criteria.where(dateField).gte(from).lt(to));
+    }
+
+    private static ArrayOperators.Filter inWindow(String arrayField, String dateField, LocalDateTime from, LocalDateTime to) {
+        String date = "entry." + dateField;
+        return ArrayOperators.Filter.filter(ConditionalOperators.ifNull(arrayField).then(List.of()))
+                                    .as("entry")
+                                    .by(BooleanOperators.And.and(
+                                        ComparisonOperators.valueOf(date).greaterThanEqualToValue(from),
+                                        ComparisonOperators.valueOf(date).lessThanValue(to)));
+    }
+
+    private static ProjectionOperation summaryProjection() {
+        return Aggregation.project("name", "startDate", "endDate", "budget", VERSION)
+                          .and(sizeOf(ACTIVITY_LIST)).as("activityCount")
+                          .and(sizeOf(ACCOMMODATIONS)).as("accommodationCount")
+                          .and(sizeOf(TRAVEL_LIST)).as("travelCount");
+    }
+
+    // Haversine distance in meters between the point and each unwound element; GeoJSON stores [longitude, latitude]
+    private static AggregationExpression distanceFrom(GeoJsonPoint point, String location) {
+        String coordinates = location + ".coordinates";
+        AggregationExpression longitude = ArrayOperators.ArrayElemAt.arrayOf(coordinates).elementAt(0);
+        AggregationExpression latitude = ArrayOperators.ArrayElemAt.arrayOf(coordinates).elementAt(1);
+        AggregationExpression latitudeTerm = squaredSinOfHalf(ArithmeticOperators.valueOf(latitude).subtract(point.getY()));
+        AggregationExpression longitudeTerm = ArithmeticOperators.valueOf(ArithmeticOperators.valueOf(latitude).cos(AngularUnit.DEGREES))
+                                                                 .multiplyBy(Math.cos(Math.toRadians(point.getY())))
+                                                                 .multiplyBy(squaredSinOfHalf(
+                                                                     ArithmeticOperators.valueOf(longitude).subtract(point.getX())));
+        AggregationExpression haversine = ArithmeticOperators.valueOf(latitudeTerm).add(longitudeTerm);
+        return ArithmeticOperators.valueOf(ArithmeticOperators.valueOf(ArithmeticOperators.valueOf(haversine).sqrt()).asin())
+                                  .multiplyBy(2 * EARTH_RADIUS_METERS);
+    }
+
+    private static AggregationExpression squaredSinOfHalf(AggregationExpression degrees) {
+        AggregationExpression half = ArithmeticOperators.valueOf(degrees).divideBy(2);
+        return ArithmeticOperators.valueOf(ArithmeticOperators.valueOf(half).sin(AngularUnit.DEGREES)).pow(2);
+    }
+
+    private static ArrayOperators.Size sizeOf(String arrayField) {
+        return ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull(arrayField).then(List.of()));
+    }
+}
@@ -1,263 +1,468 @@
 package com.dmmarques.travel_management.service;
 
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyDto;
+import com.dmmarques.travel_management.dto.NearbyPlacesDto;
 import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.dto.TripBatchEntryDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.dto.TripScheduleDto;
+import com.dmmarques.travel_management.dto.TripSummaryDto;
+import com.dmmarques.travel_management.dto.TripSyncDto;
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
 import com.dmmarques.travel_management.model.Accommodation;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.model.Travel;
 import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripTombstone;
 import com.dmmarques.travel_management.repository.TripRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static com.dmmarques.travel_management.service.TripQueries.ACCOMMODATIONS;
+import static com.dmmarques.travel_management.service.TripQueries.ACTIVITY_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.TRAVEL_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.byTripId;
+import static com.dmmarques.travel_management.service.TripQueries.duplicateNameOr;
+import static com.dmmarques.travel_management.service.TripQueries.matched;
+
 @Service
 @RequiredArgsConstructor
+@Timed(value = "trip.service", histogram = true)
 public class TripService {
 
     private final TripRepository tripRepository;
+    private final MongoTemplate mongoTemplate;
+    private final TripWriteRetrier writeRetrier;
+    private final TripCache tripCache;
+    private final TripStatsService tripStats;
+    private final TripSyncProperties syncProperties;
+    private final TripEventService tripEvents;
 
     public List<Trip> listAllTripsByUsername(String username) {
         return tripRepository.findAllByCreatorUsername(username);
     }
 
+    public List<TripSummaryDto> listTripSummariesByUsername(String username) {
+        return mongoTemplate.aggregate(TripQueries.summariesOf(username), TripSummaryDto.class).getMappedResults();
+    }
+
+    public TripPageDto<Trip> listTripPageByUsername(String username, int size, String continuationToken) {
+        int pageSize = TripQueries.pageSize(size);
+        List<Trip> trips = mongoTemplate.find(TripQueries.pageOf(username, continuationToken, pageSize), Trip.class);
+        return TripQueries.toPage(trips, pageSize, Trip::startDate, Trip::id);
+    }
+
+    public TripPageDto<TripSummaryDto> listTripSummaryPageByUsername(String username, int size, String continuationToken) {
+        int pageSize = TripQueries.pageSize(size);
+        List<TripSummaryDto> summaries = mongoTemplate.aggregate(
+            TripQueries.summaryPageOf(username, continuationToken, pageSize), TripSummaryDto.class).getMappedResults();
+        return TripQueries.toPage(summaries, pageSize, TripSummaryDto::getStartDate, TripSummaryDto::getId);
+    }
+
+    public List<TripBatchEntryDto<Trip>> listTripBatchByUsername(String username, List<String> tripIds) {
+        List<Trip> trips = mongoTemplate.find(TripQueries.batchOf(username, tripIds), Trip.class);
+        return TripQueries.inRequestOrder(tripIds, trips, Trip::id);
+    }
+
+    public List<TripBatchEntryDto<TripSummaryDto>> listTripSummaryBatchByUsername(String username, List<String> tripIds) {
+        List<TripSummaryDto> summaries = mongoTemplate.aggregate(
+            TripQueries.summaryBatchOf(username, tripIds), TripSummaryDto.class).getMappedResults();
+        return TripQueries.inRequestOrder(tripIds, summaries, TripSummaryDto::getId);
+    }
+
+    public List<TripSummaryDto> listTripsOverlapping(String username, LocalDate from, LocalDate to) {
+        return mongoTemplate.aggregate(TripQueries.overlappingOf(username, from, to), TripSummaryDto.class).getMappedResults();
+    }
+
+    public List<TripScheduleDto> listScheduleBetween(String username, LocalDateTime from, LocalDateTime to) {
+        return mongoTemplate.aggregate(TripQueries.scheduleOf(username, from, to), TripScheduleDto.class).getMappedResults();
+    }
+
+    // Null when the user has no such trip
+    public TripPageDto<Activity> listTripActivityPage(String username, String tripId, LocalDate day, LocalDateTime from, LocalDateTime to,
+                                                      int size, String continuationToken) {
+        int pageSize = TripQueries.pageSize(size);
+        List<Activity> activities = mongoTemplate.aggregate(
+            TripQueries.tripActivityPageOf(username, tripId, day, from, to, continuationToken, pageSize), Activity.class).getMappedResults();
+        if (activities.isEmpty() && !mongoTemplate.exists(TripQueries.versionOf(username, tripId), Trip.class)) {
+            return null;
+        }
+        return TripQueries.toActivityPage(activities, pageSize);
+    }
+
+    public CostSummaryDto summarizeTripCosts(String tripId) {
+        return TripQueries.toCostSummary(mongoTemplate.aggregate(TripQueries.tripCostsOf(tripId), Document.class).getUniqueMappedResult());
+    }
+
+    public CostSummaryDto summarizeUserCosts(String username) {
+        CostSummaryDto summary = TripQueries.toCostSummary(
+            mongoTemplate.aggregate(TripQueries.userCostsOf(username), Document.class).getUniqueMappedResult());
+        return summary != null ? summary : new CostSummaryDto(BigDecimal.ZERO, BigDecimal.ZERO, List.of(), List.of());
+    }
+
+    public UserTripStatsDto userStats(String username) {
+        return tripStats.statsOf(username);
+    }
+
+    public NearbyPlacesDto listPlacesNearby(String username, double latitude, double longitude, Double radius, int limit) {
+        GeoJsonPoint point = TripQueries.nearbyPoint(latitude, longitude, radius);
+        int nearbyLimit = TripQueries.nearbyLimit(limit);
+        return new NearbyPlacesDto(
+            nearby(username, ACTIVITY_LIST, point, radius, nearbyLimit, Activity.class),
+            nearby(username, ACCOMMODATIONS, point, radius, nearbyLimit, Accommodation.class));
+    }
+
     public Trip listAllTripsByTripName(String tripName) {
-        return tripRepository.findByName(tripName).get();
+        return tripCache.findByName(tripName).get();
     }
 
     public Trip listTripByIdAndUsername(String username, String tripId) {
-        return tripRepository.findByCreatorUsernameAndId(username, tripId).get();
+        return tripCache.findByCreatorUsernameAndId(username, tripId).get();
     }
 
     public Trip createTrip(Trip trip) {
-        if(existsTripWithName(trip.creatorUsername(), trip.name())) {
-            throw new IllegalArgumentException("Trip with name " + trip.name() + " already exists.");
+        // The unique (creatorUsername, name) index rejects duplicates atomically in the same round trip
+        try {
+            Trip created = tripRepository.insert(trip.withLastModified(TripQueries.modifiedNow()));
+            tripStats.tripChanged(created.id());
+            tripEvents.tripChanged(created, null);
+            return created;
+        } catch (DuplicateKeyException e) {
+            throw duplicateNameOr(e, trip.name());
         }
-        
-        return tripRepository.save(trip);
     }
 
-    private boolean existsTripWithName(String username, String tripName) {
-        return tripRepository.existsByCreatorUsernameAndName(username, tripName);
+    public void updateTrip(@Valid Trip trip) {
+        updateTrip(trip, null);
     }
 
-    public void updateTrip(@Valid Trip trip) {
-        tripRepository.save(trip);
+    // An If-Match version takes precedence over the version in the body
+    public void updateTrip(@Valid Trip trip, Long expectedVersion) {
+        Long clientVersion = expectedVersion != null ? expectedVersion : trip.version();
+        if (clientVersion != null) {
+            // The client edited a known version; a mismatch means its copy is stale and must not be overwritten
+            if (!replaceIfVersionMatches(trip, clientVersion)) {
+                throw new OptimisticLockingFailureException("Trip " + trip.id() + " was modified concurrently.");
+            }
+            return;
+        }
+
+        writeRetrier.execute("updateTrip", () -> {
+            Trip current = findVersion(trip.id());
+            if (current == null) {
+                createTrip(trip);
+            } else if (!replaceIfVersionMatches(trip, current.version())) {
+                throw new OptimisticLockingFailureException("Trip " + trip.id() + " was modified concurrently.");
+            }
+            return trip.id();
+        });
+    }
+
+    // Reads the version alone, so that conditional requests are answered without loading the nested arrays
+    public String currentETag(String tripId) {
+        Trip current = findVersion(tripId);
+        return current != null ? TripETag.of(tripId, current.version()) : null;
+    }
+
+    public String currentETag(String username, String tripId) {
+        Trip current = mongoTemplate.findOne(TripQueries.versionOf(username, tripId), Trip.class);
+        return current != null ? TripETag.of(tripId, current.version()) : null;
+    }
+
+    public boolean deleteTrip(String tripId, Long expectedVersion) {
+        Trip removed;
+        try {
+            removed = mongoTemplate.findAndRemove(TripQueries.withMembers(byTripId(tripId, TripQueries.guardedBy(null, expectedVersion))),
+                Trip.class);
+        } finally {
+            tripCache.evict(tripId);
+        }
+        if (removed == null) {
+            if (expectedVersion != null) {
+                rejectIfStale(tripId, expectedVersion);
+            }
+            return false;
+        }
+        leftTrips(removed.creatorUsername(), tripId);
+        tripStats.tripDeleted(tripId);
+        tripEvents.tripDeleted(removed);
+        return true;
+    }
+
+    /**
+     * The trips of the user created, changed or deleted since the sync token, one page at a time. Changes are only
+     * handed out once they have settled, so a change may show up one sync later than it was written.
+     */
+    public TripSyncDto syncTrips(String username, String syncToken, int size) {
+        int pageSize = TripQueries.pageSize(size);
+        Instant until = TripSync.settledBefore(syncProperties.settle());
+        List<Trip> changed = mongoTemplate.find(TripSync.changesOf(username, syncToken, until, pageSize), Trip.class);
+        Query deletions = TripSync.deletionsOf(username, syncToken, until, pageSize);
+        List<TripTombstone> deleted = deletions != null ? mongoTemplate.find(deletions, TripTombstone.class) : List.of();
+        return TripSync.toSync(changed, deleted, pageSize, until, syncToken);
     }
 
     public Activity addActivityToTrip(String tripId, @Valid Activity activity) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Activity> activityList = trip.activityList();
-
-            Activity activityWithId = activity.id() == null ?
-                                      new Activity(
-                                          new ObjectId().toString(),
-                                          activity.name(),
-                                          activity.address(),
-                                          activity.category(),
-                                          activity.creatorUsername(),
-                                          activity.creationDate(),
-                                          activity.activityDate(),
-                                          activity.cost(),
-                                          activity.description(),
-                                          activity.latitude(),
-                                          activity.longitude()
-                                      ) : activity;
-            activityList.add(activityWithId);
-            tripRepository.save(trip);
-        });
-        return activity;
+        return addActivityToTrip(tripId, activity, null);
     }
 
-    public void deleteActivity(String tripId, String activityId) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            trip.activityList().removeIf(activity -> activity.id().equals(activityId));
-            tripRepository.save(trip);
-        });
+    public Activity addActivityToTrip(String tripId, @Valid Activity activity, Long expectedVersion) {
+        return pushIfVersion(tripId, expectedVersion, ACTIVITY_LIST, TripQueries.withGeneratedId(activity)) ? activity : null;
+    }
+
+    // Server-side ids are assigned to every activity so that an imported itinerary cannot collide with existing ones
+    public List<String> addActivitiesToTrip(String tripId, @Valid List<Activity> activities) {
+        List<Activity> withIds = activities.stream().map(TripQueries::withNewId).toList();
+        return push(tripId, null, TripQueries.pushActivities(withIds), withIds) ? withIds.stream().map(Activity::id).toList() : null;
+    }
+
+    public boolean deleteActivity(String tripId, String activityId) {
+        return pull(tripId, ACTIVITY_LIST, "id", activityId);
     }
 
     public Activity updateActivityFromTrip(String tripId, @Valid Activity activity) {
-        final Activity[] updatedActivity = {null};
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Activity> activityList = trip.activityList();
-            activityList.removeIf(a -> a.id().equals(activity.id()));
-            activityList.add(activity);
-            tripRepository.save(trip);
-            updatedActivity[0] = activity;
-        });
-        return updatedActivity[0];
+        return updateActivityFromTrip(tripId, activity, null);
+    }
+
+    public Activity updateActivityFromTrip(String tripId, @Valid Activity activity, Long expectedVersion) {
+        return setOrPush(tripId, expectedVersion, ACTIVITY_LIST, "id", activity.id(), activity) ? activity : null;
     }
 
     public String updateTripWithPartialInfo(String tripId, @Valid PartialTripDto partialTripDto) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            Trip updatedTrip = new Trip(
-                trip.id(),
-                partialTripDto.getName() != null ? partialTripDto.getName() : trip.name(),
-                trip.description(),
-                trip.creatorUsername(),
-                trip.creationDate(),
-                partialTripDto.getStartDate() != null ? partialTripDto.getStartDate() : trip.startDate(),
-                partialTripDto.getEndDate() != null ? partialTripDto.getEndDate() : trip.endDate(),
-                trip.participantUsernames(),
-                trip.accommodations(),
-                trip.activityList(),
-                trip.travelList(),
-                partialTripDto.getEndDate() != null ? partialTripDto.getBudget() : trip.budget()
-            );
-            tripRepository.save(updatedTrip);
-        });
-        return tripId;
+        return updateTripWithPartialInfo(tripId, partialTripDto, null);
+    }
+
+    // A client-supplied version is not retried: a lost race means the client's copy is stale
+    public String updateTripWithPartialInfo(String tripId, @Valid PartialTripDto partialTripDto, Long expectedVersion) {
+        if (expectedVersion != null) {
+            return updatePartially(tripId, partialTripDto, expectedVersion);
+        }
+        return writeRetrier.execute("updateTripWithPartialInfo", () -> updatePartially(tripId, partialTripDto, null));
     }
 
     public String updateTripWithAccommodation(String tripId, @Valid Accommodation accommodation) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Accommodation> accommodations = trip.accommodations();
-            if (accommodation.getId() == null || accommodation.getId().isBlank()) {
-                accommodation.setId(new ObjectId().toString());
-            }
-            if (accommodations == null) {
-                accommodations = new ArrayList<>();
-                Trip updatedTrip = new Trip(
-                    trip.id(),
-                    trip.name(),
-                    trip.description(),
-                    trip.creatorUsername(),
-                    trip.creationDate(),
-                    trip.startDate(),
-                    trip.endDate(),
-                    trip.participantUsernames(),
-                    accommodations,
-                    trip.activityList(),
-                    trip.travelList(),
-                    trip.budget()
-                );
-                accommodations.add(accommodation);
-                tripRepository.save(updatedTrip);
-            } else {
-                accommodations.add(accommodation);
-                tripRepository.save(trip);
-            }
-        });
-        return tripId;
+        return updateTripWithAccommodation(tripId, accommodation, null);
+    }
+
+    public String updateTripWithAccommodation(String tripId, @Valid Accommodation accommodation, Long expectedVersion) {
+        if (accommodation.getId() == null || accommodation.getId().isBlank()) {
+            accommodation.setId(new ObjectId().toString());
+        }
+        return pushIfVersion(tripId, expectedVersion, ACCOMMODATIONS, accommodation) ? tripId : null;
     }
 
     public List<Accommodation> listAllTripAccomodations(String tripId) {
-        return tripRepository.findById(tripId).map(Trip::accommodations).orElse(List.of());
-    }
-
-    public void addTravelToTrip(String tripId, @Valid Travel activity) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Travel> travelList = trip.travelList() == null ? new ArrayList<>() : new ArrayList<>(trip.travelList());
-            travelList.add(activity);
-
-            Trip updatedTrip = new Trip(
-                trip.id(),
-                trip.name(),
-                trip.description(),
-                trip.creatorUsername(),
-                trip.creationDate(),
-                trip.startDate(),
-                trip.endDate(),
-                trip.participantUsernames(),
-                trip.accommodations(),
-                trip.activityList(),
-                travelList,
-                trip.budget()
-            );
-            tripRepository.save(updatedTrip);
-        });
+        return tripCache.findById(tripId).map(Trip::accommodations).orElse(List.of());
     }
 
-    public void updateTravelFromTrip(String tripId, @Valid Travel travel) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Travel> travelList = trip.travelList() == null ? new ArrayList<>() : new ArrayList<>(trip.travelList());
+    public boolean addTravelToTrip(String tripId, @Valid Travel activity) {
+        return addTravelToTrip(tripId, activity, null);
+    }
 
-            // Check if travel with the same name exists and update it
-            boolean found = false;
-            for (int i = 0; i < travelList.size(); i++) {
-                if (travelList.get(i).getName().equals(travel.getName())) {
-                    travelList.set(i, travel);
-                    found = true;
-                    break;
-                }
-            }
+    public boolean addTravelToTrip(String tripId, @Valid Travel activity, Long expectedVersion) {
+        return pushIfVersion(tripId, expectedVersion, TRAVEL_LIST, activity);
+    }
 
-            // If not found, you might want to add it (optional)
-            if (!found) {
-                travelList.add(travel);
-            }
+    public boolean updateTravelFromTrip(String tripId, @Valid Travel travel) {
+        return updateTravelFromTrip(tripId, travel, null);
+    }
 
-            Trip updatedTrip = new Trip(
-                trip.id(),
-                trip.name(),
-                trip.description(),
-                trip.creatorUsername(),
-                trip.creationDate(),
-                trip.startDate(),
-                trip.endDate(),
-                trip.participantUsernames(),
-                trip.accommodations(),
-                trip.activityList(),
-                travelList,
-                trip.budget()
-            );
-            tripRepository.save(updatedTrip);
-        });
+    public boolean updateTravelFromTrip(String tripId, @Valid Travel travel, Long expectedVersion) {
+        return setOrPush(tripId, expectedVersion, TRAVEL_LIST, "name", travel.getName(), travel);
     }
 
-    public void updateAccommodationFromTrip(String tripId, @Valid Accommodation accommodation) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Accommodation> accommodations = trip.accommodations() == null ? new ArrayList<>() : new ArrayList<>(trip.accommodations());
-            
-            // Check if accommodation with the same name exists and update it
-            boolean found = false;
-            for (int i = 0; i < accommodations.size(); i++) {
-                if (accommodations.get(i).getName().equals(accommodation.getName())) {
-                    accommodations.set(i, accommodation);
-                    found = true;
-                    break;
-                }
-            }
-            
-            // If not found, you might want to add it (optional)
-            if (!found) {
-                accommodations.add(accommodation);
+    public boolean updateAccommodationFromTrip(String tripId, @Valid Accommodation accommodation) {
+        return updateAccommodationFromTrip(tripId, accommodation, null);
+    }
+
+    public boolean updateAccommodationFromTrip(String tripId, @Valid Accommodation accommodation, Long expectedVersion) {
+        return setOrPush(tripId, expectedVersion, ACCOMMODATIONS, "name", accommodation.getName(), accommodation);
+    }
+
+    public boolean deleteAccommodation(String tripId, String accommodationId) {
+        return pull(tripId, ACCOMMODATIONS, "id", accommodationId);
+    }
+
+    public boolean deleteTravelFromTrip(String tripId, String travelName) {
+        return pull(tripId, TRAVEL_LIST, "name", travelName);
+    }
+
+    private <T> List<NearbyDto<T>> nearby(String username, String arrayField, GeoJsonPoint point, Double radius, int limit,
+                                          Class<T> placeType) {
+        return mongoTemplate.aggregate(TripQueries.nearbyOf(username, arrayField, point, radius, limit), Trip.class, Document.class)
+                            .getMappedResults().stream()
+                            .map(result -> TripQueries.toNearby(result, placeType, mongoTemplate.getConverter()))
+                            .toList();
+    }
+
+    private String updatePartially(String tripId, PartialTripDto partialTripDto, Long expectedVersion) {
+        Trip trip = tripRepository.findById(tripId).orElse(null);
+        if (trip == null) {
+            return null;
+        }
+
+        Update update = TripQueries.partialUpdate(trip, partialTripDto);
+        Long version = expectedVersion != null ? expectedVersion : trip.version();
+        try {
+            if (!matched(applyUpdate(tripId, TripQueries.versionIs(version), update))) {
+                throw new OptimisticLockingFailureException("Trip " + tripId + " was modified concurrently.");
             }
-            
-            Trip updatedTrip = new Trip(
-                trip.id(),
-                trip.name(),
-                trip.description(),
-                trip.creatorUsername(),
-                trip.creationDate(),
-                trip.startDate(),
-                trip.endDate(),
-                trip.participantUsernames(),
-                accommodations,
-                trip.activityList(),
-                trip.travelList(),
-                trip.budget()
-            );
-            tripRepository.save(updatedTrip);
-        });
+        } catch (DuplicateKeyException e) {
+            throw duplicateNameOr(e, partialTripDto.getName());
+        }
+        return tripId;
     }
 
-    public void deleteAccommodation(String tripId, String accommodationId) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Accommodation> accommodations = trip.accommodations();
-            accommodations.removeIf(accommodation -> accommodation.getId().equals(accommodationId));
-            tripRepository.save(trip);
-        });
+    // Replaces the element matching key in place, or appends it when the trip has no such entry yet.
+    // Returns whether the trip exists.
+    private boolean setOrPush(String tripId, Long expectedVersion, String arrayField, String key, Object value, Object element) {
+        Criteria existing = Criteria.where(arrayField + "." + key).is(value);
+        if (modifyElement(tripId, TripQueries.guardedBy(existing, expectedVersion), new Update().set(arrayField + ".$", element),
+            arrayField, key, value, List.of(element))) {
+            return true;
+        }
+
+        Criteria missing = Criteria.where(arrayField + "." + key).ne(value);
+        if (push(tripId, TripQueries.guardedBy(missing, expectedVersion), new Update().push(arrayField, element), List.of(element))) {
+            return true;
+        }
+
+        if (expectedVersion != null) {
+            rejectIfStale(tripId, expectedVersion);
+            return false;
+        }
+        // The element may have been added concurrently between both updates
+        return modifyElement(tripId, existing, new Update().set(arrayField + ".$", element), arrayField, key, value, List.of(element));
     }
 
-    public void deleteTravelFromTrip(String tripId, String travelName) {
-        tripRepository.findById(tripId).ifPresent(trip -> {
-            List<Travel> travelList = trip.travelList();
-            travelList.removeIf(travel -> travel.getName().equals(travelName));
-            tripRepository.save(trip);
-        });
+    // Returns whether the trip exists
+    private boolean pull(String tripId, String arrayField, String key, Object value) {
+        Update update = new Update().pull(arrayField, Query.query(Criteria.where(key).is(value)));
+        return modifyElement(tripId, null, update, arrayField, key, value, List.of());
+    }
+
+    // Returns whether the trip exists; a null expected version writes unconditionally
+    private boolean pushIfVersion(String tripId, Long expectedVersion, String arrayField, Object element) {
+        if (push(tripId, TripQueries.guardedBy(null, expectedVersion), new Update().push(arrayField, element), List.of(element))) {
+            return true;
+        }
+        if (expectedVersion != null) {
+            rejectIfStale(tripId, expectedVersion);
+        }
+        return false;
+    }
+
+    // A guarded write that matched nothing either targets a missing trip or one that moved past the expected version
+    private void rejectIfStale(String tripId, Long expectedVersion) {
+        if (findVersion(tripId) != null) {
+            throw new OptimisticLockingFailureException("Trip " + tripId + " is no longer at version " + expectedVersion + ".");
+        }
+    }
+
+    private boolean replaceIfVersionMatches(Trip trip, Long expectedVersion) {
+        Query query = TripQueries.withMembers(byTripId(trip.id()).addCriteria(TripQueries.versionIs(expectedVersion)));
+        long nextVersion = expectedVersion == null ? 1 : expectedVersion + 1;
+        Trip replacement = trip.withVersion(nextVersion).withLastModified(TripQueries.modifiedNow());
+        Trip previous;
+        try {
+            previous = mongoTemplate.findAndReplace(query, replacement);
+        } catch (DuplicateKeyException e) {
+            throw duplicateNameOr(e, trip.name());
+        } finally {
+            tripCache.evict(trip.id());
+        }
+        if (previous == null) {
+            return false;
+        }
+        leftTrips(TripSync.formerOwner(previous, trip), trip.id());
+        tripStats.tripChanged(trip.id());
+        tripEvents.tripChanged(replacement, previous);
+        return true;
+    }
+
+    // Leaves a tombstone for the delta sync of a user the trip no longer belongs to
+    private void leftTrips(String username, String tripId) {
+        if (username != null) {
+            mongoTemplate.upsert(TripSync.tombstoneOf(username, tripId), TripSync.deletedAt(TripQueries.modifiedNow()), TripTombstone.class);
+        }
+    }
+
+    private Trip findVersion(String tripId) {
+        return mongoTemplate.findOne(TripQueries.versionOf(tripId), Trip.class);
+    }
+
+    // Writes to the whole trip are counted again from the trip as written
+    private UpdateResult applyUpdate(String tripId, Criteria condition, Update update) {
+        UpdateResult result = write(tripId, condition, update);
+        announceIfMatched(tripId, matched(result));
+        return result;
+    }
+
+    // Appends to an array of the trip; the statistics count the added elements
+    private boolean push(String tripId, Criteria condition, Update update, List<?> added) {
+        boolean matched = matched(write(tripId, condition, update));
+        if (matched) {
+            tripStats.elementsChanged(tripId, List.of(), added);
+            tripEvents.tripChanged(tripId);
+        }
+        return matched;
+    }
+
+    // Every write bumps the version so that compare-and-set writers notice concurrent sub-document changes, stamps the
+    // trip for the delta sync and evicts the cached trip so that the next read observes it
+    private UpdateResult write(String tripId, Criteria condition, Update update) {
+        try {
+            return mongoTemplate.updateFirst(byTripId(tripId, condition), TripQueries.touched(update), Trip.class);
+        } finally {
+            tripCache.evict(tripId);
+        }
+    }
+
+    // Replaces or removes the first element of the array whose key has the value. The same write reads that element
+    // back as it was, so that the statistics swap what it counted for what the added elements count.
+    private boolean modifyElement(String tripId, Criteria condition, Update update, String arrayField, String key, Object value,
+                                  List<?> added) {
+        Query query = TripStatistics.withElement(byTripId(tripId, condition), arrayField, key, value,
+            mongoTemplate.getConverter());
+        Trip previous;
+        try {
+            previous = mongoTemplate.findAndModify(query, TripQueries.touched(update), Trip.class);
+        } finally {
+            tripCache.evict(tripId);
+        }
+        if (previous == null) {
+            return false;
+        }
+        tripStats.elementsChanged(tripId, TripStatistics.elementsOf(previous, arrayField), added);
+        tripEvents.tripChanged(tripId);
+        return true;
+    }
+
+    // Statistics and subscribers follow every write that reached a trip; a failure to update them does not fail the write
+    private void announceIfMatched(String tripId, boolean matched) {
+        if (matched) {
+            tripStats.tripChanged(tripId);
+            tripEvents.tripChanged(tripId);
+        }
     }
 }
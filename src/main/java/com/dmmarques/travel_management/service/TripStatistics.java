@@ -0,0 +1,292 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripStatsEntry;
+import com.dmmarques.travel_management.model.UserTripStats;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.dmmarques.travel_management.service.TripQueries.ACCOMMODATIONS;
+import static com.dmmarques.travel_management.service.TripQueries.ACTIVITY_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.TRAVEL_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.VERSION;
+
+/**
+ * Queries and updates behind the per-user trip statistics, shared by the blocking and the reactive statistics
+ * services. The planned spend of a trip is the sum of the costs its cost summary is made of. Writes to a single
+ * activity, accommodation or travel are counted from the elements they add and remove, without reading the trip.
+ */
+public final class TripStatistics {
+
+    static final String TRIPS = "trips";
+    static final String TRIPS_BY_START_DATE = "tripsByStartDate";
+    static final String PLANNED_SPEND = "plannedSpend";
+    static final String ACTIVITIES_BY_CATEGORY = "activitiesByCategory";
+
+    private TripStatistics() {
+    }
+
+    // Reads only the fields the statistics are made of
+    public static Query contributionOf(String tripId) {
+        return withContributionFields(TripQueries.byTripId(tripId));
+    }
+
+    public static Query contributionsOf(String username) {
+        return withContributionFields(Query.query(Criteria.where("creatorUsername").is(username)));
+    }
+
+    // Null for a trip without a creator, which no user's statistics count
+    public static TripStatsEntry entryOf(Trip trip) {
+        if (trip.creatorUsername() == null) {
+            return null;
+        }
+        Map<String, Long> activitiesByCategory = new TreeMap<>();
+        BigDecimal plannedSpend = BigDecimal.ZERO;
+        for (Activity activity : orEmpty(trip.activityList())) {
+            if (activity.category() != null) {
+                activitiesByCategory.merge(statsKey(activity.category()), 1L, Long::sum);
+            }
+            plannedSpend = plannedSpend.add(costOf(activity));
+        }
+        for (Accommodation accommodation : orEmpty(trip.accommodations())) {
+            plannedSpend = plannedSpend.add(costOf(accommodation));
+        }
+        for (Travel travel : orEmpty(trip.travelList())) {
+            plannedSpend = plannedSpend.add(costOf(travel));
+        }
+        long version = trip.version() != null ? trip.version() : 0;
+        return new TripStatsEntry(trip.id(), trip.creatorUsername(), version, trip.startDate(), plannedSpend, activitiesByCategory);
+    }
+
+    public static Query entryById(String tripId) {
+        return Query.query(Criteria.where("tripId").is(tripId));
+    }
+
+    // Entries of the user for trips that were deleted or handed to someone else without being recorded
+    public static Query entriesOf(String username, List<String> exceptTripIds) {
+        return Query.query(Criteria.where("username").is(username).and("tripId").nin(exceptTripIds));
+    }
+
+    // Matches the recorded entry of the trip unless it already counts this or a newer version of it
+    public static Query olderThan(TripStatsEntry entry) {
+        return Query.query(Criteria.where("tripId").is(entry.tripId()).and(VERSION).lt(entry.version()));
+    }
+
+    /**
+     * Reads back, as it was before the write, only the first element of the array whose key has the given value. A
+     * projection is not mapped the way a query is, so the key and value are mapped to how the element stores them, as
+     * an {@code id} that is stored as {@code _id}.
+     */
+    public static Query withElement(Query query, String arrayField, String key, Object value, MongoConverter converter) {
+        Document element = new QueryMapper(converter).getMappedObject(new Document(key, value),
+            converter.getMappingContext().getPersistentEntity(elementTypeOf(arrayField)));
+        Map.Entry<String, Object> mapped = element.entrySet().iterator().next();
+        query.fields().elemMatch(arrayField, Criteria.where(mapped.getKey()).is(mapped.getValue()));
+        return query;
+    }
+
+    public static List<?> elementsOf(Trip trip, String arrayField) {
+        List<?> elements = switch (arrayField) {
+            case ACTIVITY_LIST -> trip.activityList();
+            case ACCOMMODATIONS -> trip.accommodations();
+            case TRAVEL_LIST -> trip.travelList();
+            default -> throw new IllegalArgumentException("Trips have no array " + arrayField + ".");
+        };
+        return orEmpty(elements);
+    }
+
+    private static Class<?> elementTypeOf(String arrayField) {
+        return switch (arrayField) {
+            case ACTIVITY_LIST -> Activity.class;
+            case ACCOMMODATIONS -> Accommodation.class;
+            case TRAVEL_LIST -> Travel.class;
+            default -> throw new IllegalArgumentException("Trips have no array " + arrayField + ".");
+        };
+    }
+
+    /**
+     * The increments that take a trip's entry, and the statistics of the user it counts towards, from counting the
+     * {@code removed} activities, accommodations or travels to counting the {@code added} ones; null when nothing
+     * changes.
+     */
+    public static Update elementDeltaOf(List<?> removed, List<?> added) {
+        Delta delta = new Delta();
+        removed.forEach(element -> delta.addElement(element, -1));
+        added.forEach(element -> delta.addElement(element, 1));
+        return delta.isEmpty() ? null : delta.toUpdate();
+    }
+
+    public static Query statsOf(String username) {
+        return Query.query(Criteria.where("username").is(username));
+    }
+
+    /**
+     * The increments that take the statistics of each user from counting {@code previous} to counting
+     * {@code current}; either may be null. Both belong to the same user unless the trip changed hands, and users whose
+     * statistics do not change are left out.
+     */
+    public static Map<String, Update> deltasOf(TripStatsEntry previous, TripStatsEntry current) {
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        if (previous != null) {
+            deltas.computeIfAbsent(previous.username(), username -> new Delta()).add(previous, -1);
+        }
+        if (current != null) {
+            deltas.computeIfAbsent(current.username(), username -> new Delta()).add(current, 1);
+        }
+        return toUpdates(deltas);
+    }
+
+    // The increments that count newly written trips, one per user they belong to
+    public static Map<String, Update> deltasOf(List<TripStatsEntry> added) {
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        added.forEach(entry -> deltas.computeIfAbsent(entry.username(), username -> new Delta()).add(entry, 1));
+        return toUpdates(deltas);
+    }
+
+    private static Map<String, Update> toUpdates(Map<String, Delta> deltas) {
+        Map<String, Update> updates = new LinkedHashMap<>();
+        deltas.forEach((username, delta) -> {
+            if (!delta.isEmpty()) {
+                updates.put(username, delta.toUpdate());
+            }
+        });
+        return updates;
+    }
+
+    // The statistics a full rebuild writes for the user's trips
+    public static UserTripStats statsOf(String username, List<TripStatsEntry> entries) {
+        Map<String, Long> tripsByStartDate = new TreeMap<>();
+        Map<String, Long> activitiesByCategory = new TreeMap<>();
+        BigDecimal plannedSpend = BigDecimal.ZERO;
+        for (TripStatsEntry entry : entries) {
+            if (entry.startDate() != null) {
+                tripsByStartDate.merge(entry.startDate().toString(), 1L, Long::sum);
+            }
+            orEmpty(entry.activitiesByCategory()).forEach((key, count) -> activitiesByCategory.merge(key, count, Long::sum));
+            plannedSpend = add(plannedSpend, entry.plannedSpend());
+        }
+        return new UserTripStats(username, entries.size(), tripsByStartDate, plannedSpend, activitiesByCategory);
+    }
+
+    // Trips starting today or later are upcoming; start dates are ISO dates, which sort as strings
+    public static UserTripStatsDto toStats(String username, UserTripStats stats, LocalDate today) {
+        if (stats == null) {
+            return new UserTripStatsDto(username, 0, 0, BigDecimal.ZERO, Map.of());
+        }
+        String from = today.toString();
+        long upcomingTrips = orEmpty(stats.tripsByStartDate()).entrySet().stream()
+                                                               .filter(trips -> trips.getKey().compareTo(from) >= 0)
+                                                               .mapToLong(Map.Entry::getValue)
+                                                               .sum();
+        Map<String, Long> activitiesByCategory = new TreeMap<>();
+        orEmpty(stats.activitiesByCategory()).forEach((key, count) -> {
+            if (count != 0) {
+                activitiesByCategory.put(categoryOf(key), count);
+            }
+        });
+        BigDecimal plannedSpend = stats.plannedSpend() != null ? stats.plannedSpend() : BigDecimal.ZERO;
+        return new UserTripStatsDto(username, stats.trips(), upcomingTrips, plannedSpend, activitiesByCategory);
+    }
+
+    // Categories become field names, in which dots would nest and a leading dollar would read as an operator
+    static String statsKey(String category) {
+        return category.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
+    }
+
+    static String categoryOf(String statsKey) {
+        return statsKey.replace("%2E", ".").replace("%24", "$").replace("%25", "%");
+    }
+
+    private static Query withContributionFields(Query query) {
+        query.fields().include("creatorUsername", "startDate", VERSION,
+            ACTIVITY_LIST + ".category", ACTIVITY_LIST + ".cost",
+            ACCOMMODATIONS + ".priceForAdult", ACCOMMODATIONS + ".priceForChild", ACCOMMODATIONS + ".priceForPet",
+            TRAVEL_LIST + ".genTravelCost.totalCost");
+        return query;
+    }
+
+    // What one activity, accommodation or travel adds to the planned spend of its trip
+    static BigDecimal costOf(Object element) {
+        return switch (element) {
+            case Activity activity -> add(BigDecimal.ZERO, activity.cost());
+            case Accommodation accommodation -> add(add(add(BigDecimal.ZERO, accommodation.getPriceForAdult()),
+                accommodation.getPriceForChild()), accommodation.getPriceForPet());
+            case Travel travel -> travel.getGenTravelCost() != null ? add(BigDecimal.ZERO, travel.getGenTravelCost().getTotalCost())
+                                                                    : BigDecimal.ZERO;
+            default -> BigDecimal.ZERO;
+        };
+    }
+
+    private static BigDecimal add(BigDecimal total, BigDecimal amount) {
+        return amount != null ? total.add(amount) : total;
+    }
+
+    private static <T> List<T> orEmpty(List<T> values) {
+        return values != null ? values : List.of();
+    }
+
+    private static <K, V> Map<K, V> orEmpty(Map<K, V> values) {
+        return values != null ? values : Map.of();
+    }
+
+    // Increments by field path, merged so that an entry's removal and its replacement cancel out
+    private static final class Delta {
+
+        private final Map<String, Long> counts = new TreeMap<>();
+        private BigDecimal plannedSpend = BigDecimal.ZERO;
+
+        void add(TripStatsEntry entry, long sign) {
+            counts.merge(TRIPS, sign, Long::sum);
+            if (entry.startDate() != null) {
+                counts.merge(TRIPS_BY_START_DATE + "." + entry.startDate(), sign, Long::sum);
+            }
+            orEmpty(entry.activitiesByCategory())
+                .forEach((key, count) -> counts.merge(ACTIVITIES_BY_CATEGORY + "." + key, sign * count, Long::sum));
+            if (entry.plannedSpend() != null) {
+                plannedSpend = plannedSpend.add(sign < 0 ? entry.plannedSpend().negate() : entry.plannedSpend());
+            }
+        }
+
+        void addElement(Object element, long sign) {
+            if (element instanceof Activity activity && activity.category() != null) {
+                counts.merge(ACTIVITIES_BY_CATEGORY + "." + statsKey(activity.category()), sign, Long::sum);
+            }
+            BigDecimal cost = costOf(element);
+            plannedSpend = plannedSpend.add(sign < 0 ? cost.negate() : cost);
+        }
+
+        boolean isEmpty() {
+            return plannedSpend.signum() == 0 && counts.values().stream().allMatch(count -> count == 0);
+        }
+
+        // Decimal128 is passed as is, since the converter would write a BigDecimal as a string that $inc rejects
+        Update toUpdate() {
+            Update update = new Update();
+            counts.forEach((path, count) -> {
+                if (count != 0) {
+                    update.inc(path, count);
+                }
+            });
+            if (plannedSpend.signum() != 0) {
+                update.inc(PLANNED_SPEND, new Decimal128(plannedSpend));
+            }
+            return update;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripStatsEntry;
+import com.dmmarques.travel_management.model.UserTripStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the {@link UserTripStats} of every user up to date as their trips change, so that the dashboard reads them
+ * with a single point lookup. After a write to the whole trip the fields that count are read back and swapped for the
+ * entry recorded for its previous version, and the user's statistics are incremented by the difference; an entry
+ * already counting a newer version is left alone. A write to a single activity, accommodation or travel increments the
+ * entry and the statistics by what the elements it added and removed count, without reading the trip. A failure leaves
+ * the statistics behind without failing the write, and the scheduled rebuild recomputes them from the trips.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TripStatsService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserTripStatsDto statsOf(String username) {
+        return TripStatistics.toStats(username, mongoTemplate.findById(username, UserTripStats.class), LocalDate.now());
+    }
+
+    public void tripChanged(String tripId) {
+        try {
+            Trip trip = mongoTemplate.findOne(TripStatistics.contributionOf(tripId), Trip.class);
+            TripStatsEntry current = trip != null ? TripStatistics.entryOf(trip) : null;
+            if (current != null) {
+                record(current);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Statistics of trip {} were not updated until the next rebuild: {}", tripId, e.getMessage());
+        }
+    }
+
+    // Trips inserted in bulk are counted from the trips as written, with one bulk write for their entries and one for
+    // the statistics of their users
+    public void tripsInserted(List<Trip> trips) {
+        List<TripStatsEntry> entries = trips.stream().map(TripStatistics::entryOf).filter(Objects::nonNull).toList();
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations entryBulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TripStatsEntry.class);
+            entries.forEach(entry -> entryBulk.replaceOne(TripStatistics.entryById(entry.tripId()), entry,
+                FindAndReplaceOptions.options().upsert()));
+            entryBulk.execute();
+            BulkOperations statsBulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserTripStats.class);
+            TripStatistics.deltasOf(entries).forEach((username, delta) -> statsBulk.upsert(TripStatistics.statsOf(username), delta));
+            statsBulk.execute();
+        } catch (DataAccessException e) {
+            log.warn("Statistics of {} imported trips were not updated until the next rebuild: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    // A trip not counted yet is counted whole. A concurrent change to the whole trip that read it before this write may
+    // count the elements twice until the next rebuild.
+    public void elementsChanged(String tripId, List<?> removed, List<?> added) {
+        Update delta = TripStatistics.elementDeltaOf(removed, added);
+        if (delta == null) {
+            return;
+        }
+        try {
+            TripStatsEntry entry = mongoTemplate.findAndModify(TripStatistics.entryById(tripId), delta, TripStatsEntry.class);
+            if (entry == null) {
+                tripChanged(tripId);
+                return;
+            }
+            mongoTemplate.upsert(TripStatistics.statsOf(entry.username()), delta, UserTripStats.class);
+        } catch (DataAccessException e) {
+            log.warn("Statistics of trip {} were not updated until the next rebuild: {}", tripId, e.getMessage());
+        }
+    }
+
+    // A concurrent change that still read the trip may count it again until the next rebuild
+    public void tripDeleted(String tripId) {
+        try {
+            TripStatsEntry previous = mongoTemplate.findAndRemove(TripStatistics.entryById(tripId), TripStatsEntry.class);
+            TripStatistics.deltasOf(previous, null)
+                          .forEach((username, delta) -> mongoTemplate.upsert(TripStatistics.statsOf(username), delta, UserTripStats.class));
+        } catch (DataAccessException e) {
+            log.warn("Statistics of trip {} were not updated until the next rebuild: {}", tripId, e.getMessage());
+        }
+    }
+
+    // Users with statistics but no trips left are rebuilt too, so that what their deleted trips counted is dropped
+    @Scheduled(cron = "${travel-management.trip-stats.rebuild-cron}")
+    public void rebuildAll() {
+        Set<String> usernames = new TreeSet<>(mongoTemplate.findDistinct(new Query(), "creatorUsername", Trip.class, String.class));
+        usernames.addAll(mongoTemplate.findDistinct(new Query(), "username", UserTripStats.class, String.class));
+        usernames.addAll(mongoTemplate.findDistinct(new Query(), "username", TripStatsEntry.class, String.class));
+        usernames.forEach(this::rebuild);
+        log.info("Rebuilt the trip statistics of {} users", usernames.size());
+    }
+
+    // Changes written while the user's trips are read are only counted again by the next rebuild
+    public void rebuild(String username) {
+        List<TripStatsEntry> entries = mongoTemplate.find(TripStatistics.contributionsOf(username), Trip.class).stream()
+                                                    .map(TripStatistics::entryOf)
+                                                    .filter(Objects::nonNull)
+                                                    .toList();
+        if (!entries.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TripStatsEntry.class);
+            entries.forEach(entry -> bulk.replaceOne(TripStatistics.entryById(entry.tripId()), entry,
+                FindAndReplaceOptions.options().upsert()));
+            bulk.execute();
+        }
+        mongoTemplate.remove(TripStatistics.entriesOf(username, entries.stream().map(TripStatsEntry::tripId).toList()), TripStatsEntry.class);
+        mongoTemplate.save(TripStatistics.statsOf(username, entries));
+    }
+
+    private void record(TripStatsEntry current) {
+        TripStatsEntry previous;
+        try {
+            previous = mongoTemplate.findAndReplace(TripStatistics.olderThan(current), current, FindAndReplaceOptions.options().upsert());
+        } catch (DuplicateKeyException e) {
+            // The upsert found the trip's entry already counting this or a newer version
+            return;
+        }
+        TripStatistics.deltasOf(previous, current)
+                      .forEach((username, delta) -> mongoTemplate.upsert(TripStatistics.statsOf(username), delta, UserTripStats.class));
+    }
+}
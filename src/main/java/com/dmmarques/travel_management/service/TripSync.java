@@ -0,0 +1,127 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.TripSyncDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripTombstone;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.dmmarques.travel_management.service.TripQueries.LAST_MODIFIED;
+
+/**
+ * Queries behind the delta sync, shared by the blocking and the reactive trip services. Changed trips and tombstones
+ * are both walked in (time, tripId) order up to a settled bound and merged into one page, and the sync token is the
+ * position of the last change the page holds. Trips written before they were stamped count as modified at the epoch.
+ */
+public final class TripSync {
+
+    private static final Sort CHANGE_ORDER = Sort.by(Sort.Direction.ASC, LAST_MODIFIED, "id");
+    private static final Sort TOMBSTONE_ORDER = Sort.by(Sort.Direction.ASC, "deletedAt", "tripId");
+    private static final Comparator<Change> SYNC_ORDER = Comparator.comparing(Change::modified).thenComparing(Change::tripId);
+
+    private TripSync() {
+    }
+
+    // Changes newer than this are held back until they have settled
+    public static Instant settledBefore(Duration settle) {
+        return TripQueries.modifiedNow().minus(settle);
+    }
+
+    // Without a token the whole list is sent, so that the client starts from a known state
+    public static Query changesOf(String username, String syncToken, Instant until, int pageSize) {
+        Criteria settled = new Criteria().orOperator(Criteria.where(LAST_MODIFIED).lt(until), Criteria.where(LAST_MODIFIED).is(null));
+        TripSyncCursor after = cursorOf(syncToken);
+        Criteria criteria = Criteria.where("creatorUsername").is(username);
+        if (after == null) {
+            criteria.andOperator(settled);
+        } else if (Instant.EPOCH.equals(after.modified())) {
+            criteria.andOperator(settled, new Criteria().orOperator(
+                Criteria.where(LAST_MODIFIED).gt(Instant.EPOCH),
+                Criteria.where(LAST_MODIFIED).in(Instant.EPOCH, null).and("id").gt(after.tripId())));
+        } else {
+            criteria.andOperator(settled, new Criteria().orOperator(
+                Criteria.where(LAST_MODIFIED).gt(after.modified()),
+                Criteria.where(LAST_MODIFIED).is(after.modified()).and("id").gt(after.tripId())));
+        }
+        return Query.query(criteria).with(CHANGE_ORDER).limit(pageSize + 1);
+    }
+
+    // Null without a token, since a client starting over has nothing to delete
+    public static Query deletionsOf(String username, String syncToken, Instant until, int pageSize) {
+        TripSyncCursor after = cursorOf(syncToken);
+        if (after == null) {
+            return null;
+        }
+        Criteria criteria = Criteria.where("username").is(username).andOperator(
+            Criteria.where("deletedAt").lt(until),
+            new Criteria().orOperator(
+                Criteria.where("deletedAt").gt(after.modified()),
+                Criteria.where("deletedAt").is(after.modified()).and("tripId").gt(after.tripId())));
+        return Query.query(criteria).with(TOMBSTONE_ORDER).limit(pageSize + 1);
+    }
+
+    /**
+     * The first {@code pageSize} changes of both lists in sync order. A trip listed as changed is newer than any
+     * tombstone of it, so clients apply the deletions of a page before its changes. The next page's token keeps the
+     * start of the sync it continues, so that its expiry follows the trips the client holds rather than its position.
+     */
+    public static TripSyncDto toSync(List<Trip> changed, List<TripTombstone> deleted, int pageSize, Instant until, String syncToken) {
+        List<Change> changes = new ArrayList<>();
+        changed.forEach(trip -> changes.add(new Change(modifiedOf(trip), trip.id(), trip)));
+        deleted.forEach(tombstone -> changes.add(new Change(tombstone.deletedAt(), tombstone.tripId(), null)));
+        changes.sort(SYNC_ORDER);
+        boolean hasMore = changes.size() > pageSize;
+        List<Change> page = hasMore ? changes.subList(0, pageSize) : changes;
+        // A complete sync resumes from the bound, before which every change has been sent
+        Instant since = hasMore && syncToken != null && !syncToken.isBlank() ? TripSyncCursor.decode(syncToken).since() : until;
+        TripSyncCursor next = hasMore ? new TripSyncCursor(since, page.get(pageSize - 1).modified(), page.get(pageSize - 1).tripId())
+                                      : new TripSyncCursor(until, until, "");
+        return new TripSyncDto(
+            page.stream().filter(change -> change.trip() != null).map(Change::trip).toList(),
+            page.stream().filter(change -> change.trip() == null).map(Change::tripId).toList(),
+            next.encode(), hasMore);
+    }
+
+    public static Query tombstoneOf(String username, String tripId) {
+        return Query.query(Criteria.where("username").is(username).and("tripId").is(tripId));
+    }
+
+    public static Update deletedAt(Instant deletedAt) {
+        return new Update().set("deletedAt", deletedAt);
+    }
+
+    // A trip leaves its previous creator's trips when it is handed to another user
+    public static String formerOwner(Trip previous, Trip replacement) {
+        if (previous == null || previous.creatorUsername() == null
+            || previous.creatorUsername().equals(replacement.creatorUsername())) {
+            return null;
+        }
+        return previous.creatorUsername();
+    }
+
+    private static TripSyncCursor cursorOf(String syncToken) {
+        if (syncToken == null || syncToken.isBlank()) {
+            return null;
+        }
+        TripSyncCursor cursor = TripSyncCursor.decode(syncToken);
+        if (cursor.since().isBefore(TripQueries.modifiedNow().minus(TripTombstone.RETENTION))) {
+            throw new TripSyncExpiredException("Sync token " + syncToken + " is older than the deletions are kept.");
+        }
+        return cursor;
+    }
+
+    private static Instant modifiedOf(Trip trip) {
+        return trip.lastModified() != null ? trip.lastModified() : Instant.EPOCH;
+    }
+
+    private record Change(Instant modified, String tripId, Trip trip) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.dmmarques.travel_management.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last change handed to a client in the (lastModified, tripId) order of the delta sync, exchanged as
+ * an opaque sync token. {@code since} is when the sync the token continues started: the client may hold trips deleted
+ * any time after it, so the token expires once the tombstones of that time are gone, however old the position is.
+ */
+record TripSyncCursor(Instant since, Instant modified, String tripId) {
+
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        String raw = since + SEPARATOR + modified + SEPARATOR + tripId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TripSyncCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            if (parts.length < 3) {
+                throw new IllegalArgumentException("Invalid sync token " + token);
+            }
+            return new TripSyncCursor(Instant.parse(parts[0]), Instant.parse(parts[1]), parts[2]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid sync token " + token, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.dmmarques.travel_management.service;
+
+/**
+ * Thrown for a sync token older than the tombstones are kept, since deletions since then may no longer be known.
+ */
+public class TripSyncExpiredException extends RuntimeException {
+
+    public TripSyncExpiredException(String message) {
+        super(message);
+    }
+}
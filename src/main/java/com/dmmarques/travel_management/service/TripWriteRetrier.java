@@ -0,0 +1,58 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a compare-and-set write against fresh trip state when it loses a version race.
+ * Attempts signal a lost race by throwing {@link OptimisticLockingFailureException}; every conflict and every retry
+ * is counted per operation, and retries back off exponentially with full jitter.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TripWriteRetrier {
+
+    public static final String CONFLICTS_METRIC = "trip.write.conflicts";
+    public static final String RETRIES_METRIC = "trip.write.retries";
+
+    private final TripWriteRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public <T> T execute(String operation, Supplier<T> attempt) {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter(CONFLICTS_METRIC, "operation", operation).increment();
+                if (attemptNumber >= properties.maxAttempts()) {
+                    log.warn("Giving up {} after {} conflicting attempts", operation, attemptNumber);
+                    throw e;
+                }
+                meterRegistry.counter(RETRIES_METRIC, "operation", operation).increment();
+                backOff(attemptNumber);
+            }
+        }
+    }
+
+    private void backOff(int attemptNumber) {
+        long ceiling = Math.min(properties.maxBackoff().toMillis(),
+            properties.initialBackoff().toMillis() << Math.min(attemptNumber - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OptimisticLockingFailureException("Interrupted while waiting to retry trip write", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.dmmarques.travel_management.reactive.controller;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.config.TripExportProperties;
+import com.dmmarques.travel_management.config.TripImportProperties;
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import com.dmmarques.travel_management.controller.TripApiContractTest;
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+import com.dmmarques.travel_management.reactive.config.ReactiveCborConfig;
+import com.dmmarques.travel_management.reactive.repository.ReactiveTripRepository;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripEventService;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripImportService;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripService;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripStatsService;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReactiveTripApiContractTest extends TripApiContractTest {
+
+    private MongoClient mongoClient;
+
+    @Override
+    protected WebTestClient connect(String connectionString, String database) {
+        mongoClient = MongoClients.create(connectionString);
+        ReactiveMongoTemplate mongoTemplate = new ReactiveMongoTemplate(mongoClient, database);
+        ReactiveTripRepository tripRepository = new ReactiveMongoRepositoryFactory(mongoTemplate)
+            .getRepository(ReactiveTripRepository.class);
+        ReactiveTripEventService tripEventService = new ReactiveTripEventService(mongoTemplate,
+            new TripEventsProperties(64, Duration.ofSeconds(15), false));
+        ReactiveTripStatsService tripStats = new ReactiveTripStatsService(mongoTemplate);
+        ReactiveTripService tripService = new ReactiveTripService(tripRepository, mongoTemplate,
+            new TripWriteRetryProperties(3, Duration.ZERO, Duration.ZERO), tripStats,
+            new TripSyncProperties(Duration.ZERO), tripEventService, new SimpleMeterRegistry());
+        ReactiveTripImportService tripImportService = new ReactiveTripImportService(mongoTemplate, tripStats, tripEventService,
+            new TripImportProperties(IMPORT_BATCH_SIZE, IMPORT_MAX_LINE_BYTES, IMPORT_MAX_REPORTED_FAILURES), Jackson2ObjectMapperBuilder.json().build(),
+            Validation.buildDefaultValidatorFactory().getValidator());
+        return WebTestClient.bindToController(new ReactiveTripController(tripService),
+                                              new ReactiveTripExportController(tripService, new TripExportProperties(EXPORT_BATCH_SIZE)),
+                                              new ReactiveTripImportController(tripImportService),
+                                              new ReactiveTripEventController(tripEventService))
+                            .httpMessageCodecs(ReactiveCborConfig.cborCodecs(Jackson2ObjectMapperBuilder.json().build(),
+                                                                           Jackson2ObjectMapperBuilder.cbor().build())::customize)
+                            .build();
+    }
+
+    @Override
+    protected void close() {
+        mongoClient.close();
+    }
+
+    // The servlet stack streams the same events, but a mock MVC exchange only completes once the response does
+    @Test
+    @DisplayName("GET /trips/events/{username} pushes the changes of the trips the user takes part in")
+    void streamTripEventsOf_pushesParticipantChanges() {
+        Flux<ServerSentEvent<TripChangeEventDto>> events =
+            client.get().uri("/trips/events/jane").accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                  .expectStatus().isOk()
+                  .returnResult(new ParameterizedTypeReference<ServerSentEvent<TripChangeEventDto>>() {
+                  })
+                  .getResponseBody();
+
+        // The stream opens with a comment once the subscription is in place
+        AtomicBoolean subscribed = new AtomicBoolean();
+        AtomicReference<String> tripId = new AtomicReference<>();
+        List<ServerSentEvent<TripChangeEventDto>> received =
+            events.doOnNext(event -> {
+                      if (subscribed.compareAndSet(false, true)) {
+                          Mono.fromRunnable(() -> {
+                              createTrip("Others", "mike");
+                              tripId.set(createTrip("Shared", "jane"));
+                              client.delete().uri("/trips/trip/{tripId}", tripId.get()).exchange().expectStatus().isOk();
+                          }).subscribeOn(Schedulers.boundedElastic()).subscribe();
+                      }
+                  })
+                  .filter(event -> event.event() != null)
+                  .take(2)
+                  .collectList()
+                  .block(Duration.ofSeconds(10));
+
+        assertEquals(List.of("changed", "deleted"), received.stream().map(ServerSentEvent::event).toList());
+        assertEquals(List.of(tripId.get(), tripId.get()), received.stream().map(event -> event.data().getTripId()).toList());
+        assertEquals(0L, received.get(0).data().getVersion());
+    }
+
+    private String createTrip(String name, String participant) {
+        String body = "{\"name\":\"" + name + "\",\"description\":\"Desc\",\"creatorUsername\":\"john\"," +
+            "\"creationDate\":\"2025-12-01T10:00:00\",\"startDate\":\"2026-01-01\",\"endDate\":\"2026-01-04\"," +
+            "\"participantUsernames\":[\"john\",\"" + participant + "\"]," +
+            "\"accommodations\":[],\"activityList\":[],\"travelList\":[],\"budget\":100}";
+        return client.post().uri("/trips/trip").contentType(MediaType.APPLICATION_JSON).bodyValue(body).exchange()
+                     .expectStatus().isCreated()
+                     .expectBody(String.class)
+                     .returnResult().getResponseBody();
+    }
+}
@@ -0,0 +1,104 @@
+package com.dmmarques.travel_management.reactive.service;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.reactive.repository.ReactiveTripRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ReactiveTripServiceTest {
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private ReactiveMongoTemplate mongoTemplate;
+    private ReactiveTripRepository tripRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReactiveTripService tripService;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new ReactiveMongoTemplate(mongoClient, "trips");
+        tripRepository = Mockito.mock(ReactiveTripRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        tripService = new ReactiveTripService(tripRepository, mongoTemplate, new TripWriteRetryProperties(3, Duration.ZERO, Duration.ZERO),
+            new ReactiveTripStatsService(mongoTemplate), new TripSyncProperties(Duration.ZERO),
+            new ReactiveTripEventService(mongoTemplate, new TripEventsProperties(64, Duration.ofSeconds(15), false)), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("a lost version race is retried and counted on the same meters as the blocking service")
+    void updateTripWithPartialInfo_countsConflictAndRetry() {
+        Trip stored = mongoTemplate.insert(trip(0L)).block();
+        readsReturn(trip(7L), stored);
+
+        assertEquals("t1", tripService.updateTripWithPartialInfo("t1", rename(), null).block());
+
+        assertEquals(1, meterRegistry.counter("trip.write.conflicts", "operation", "updateTripWithPartialInfo").count());
+        assertEquals(1, meterRegistry.counter("trip.write.retries", "operation", "updateTripWithPartialInfo").count());
+    }
+
+    @Test
+    @DisplayName("every conflicting attempt is counted, and the last one is not retried")
+    void updateTripWithPartialInfo_countsExhaustedRetries() {
+        mongoTemplate.insert(trip(0L)).block();
+        readsReturn(trip(7L), trip(7L), trip(7L));
+
+        assertThrows(OptimisticLockingFailureException.class,
+            () -> tripService.updateTripWithPartialInfo("t1", rename(), null).block());
+
+        assertEquals(3, meterRegistry.counter("trip.write.conflicts", "operation", "updateTripWithPartialInfo").count());
+        assertEquals(2, meterRegistry.counter("trip.write.retries", "operation", "updateTripWithPartialInfo").count());
+    }
+
+    // Every subscription reads the next trip, as every retry of a real repository query reads the trip again
+    private void readsReturn(Trip... reads) {
+        Deque<Trip> pending = new ArrayDeque<>(List.of(reads));
+        when(tripRepository.findById("t1")).thenReturn(Mono.fromSupplier(pending::poll));
+    }
+
+    private static PartialTripDto rename() {
+        PartialTripDto partialTripDto = new PartialTripDto();
+        partialTripDto.setName("Renamed");
+        return partialTripDto;
+    }
+
+    private static Trip trip(Long version) {
+        return new Trip("t1", "Trip", null, "john", LocalDateTime.now(), LocalDate.now(), LocalDate.now().plusDays(3), List.of("john"),
+            List.of(), List.of(), List.of(), BigDecimal.valueOf(100), version);
+    }
+}
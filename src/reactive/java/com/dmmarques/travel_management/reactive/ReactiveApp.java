@@ -0,0 +1,36 @@
+package com.dmmarques.travel_management.reactive;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.config.TripExportProperties;
+import com.dmmarques.travel_management.config.TripImportProperties;
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Entry point of the non-blocking variant of the trip API, built with the {@code reactive} Maven profile. It only
+ * scans this package and leaves the blocking Mongo client out, so the servlet stack stays untouched when both are
+ * packaged together.
+ */
+@SpringBootApplication(exclude = MongoAutoConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableReactiveMongoAuditing
+@EnableScheduling
+@EnableConfigurationProperties({TripWriteRetryProperties.class, TripExportProperties.class, TripImportProperties.class,
+	TripSyncProperties.class, TripEventsProperties.class})
+public class ReactiveApp {
+
+	public static void main(String[] args) {
+		new SpringApplicationBuilder(ReactiveApp.class)
+			.web(WebApplicationType.REACTIVE)
+			.run(args);
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.dmmarques.travel_management.reactive.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive counterpart of {@link com.dmmarques.travel_management.config.CborConfig}. WebFlux does not register the
+ * Jackson CBOR codecs by default, so they are added here with Spring Boot's Jackson settings.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCborConfig {
+
+    @Bean
+    public CodecCustomizer cborCodecCustomizer(ObjectMapper jsonMapper, Jackson2ObjectMapperBuilder builder) {
+        return cborCodecs(jsonMapper, builder.factory(new CBORFactory()).build());
+    }
+
+    public static CodecCustomizer cborCodecs(ObjectMapper jsonMapper, ObjectMapper cborMapper) {
+        return configurer -> {
+            // Custom writers are consulted before the default ones, so JSON is registered first to stay the answer to */*
+            configurer.customCodecs().register(new Jackson2JsonEncoder(jsonMapper));
+            configurer.customCodecs().register(new CollectingCborEncoder(cborMapper));
+            // Without explicit mime types the Jackson codecs would claim JSON as well
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+        };
+    }
+
+    /**
+     * Spring's CBOR encoder rejects every {@link Publisher}. A {@link Mono} is written as its single value and a
+     * {@link Flux} as one CBOR array, the same shapes the servlet stack sends.
+     */
+    static class CollectingCborEncoder extends Jackson2CborEncoder {
+
+        CollectingCborEncoder(ObjectMapper cborMapper) {
+            super(cborMapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+            return Flux.from(inputStream)
+                       .collectList()
+                       .map(values -> encodeValue(values, bufferFactory, listType, mimeType, hints))
+                       .flux();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.dmmarques.travel_management.reactive.controller;
+
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyPlacesDto;
+import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.dto.TripBatchEntryDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.dto.TripScheduleDto;
+import com.dmmarques.travel_management.dto.TripSummaryDto;
+import com.dmmarques.travel_management.dto.TripSyncDto;
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripService;
+import com.dmmarques.travel_management.service.TripETag;
+import com.dmmarques.travel_management.service.TripSyncExpiredException;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.dmmarques.travel_management.service.TripQueries.MAX_BULK_ACTIVITIES;
+
+/**
+ * Same URL contract as {@link com.dmmarques.travel_management.controller.TripController}, served by
+ * {@link ReactiveTripService}.
+ */
+@RestController
+@RequestMapping("/trips")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTripController {
+
+    private final ReactiveTripService tripService;
+
+    @GetMapping("/{username}")
+    public Flux<Trip> listAllTripsByUsername(@PathVariable String username) {
+        return tripService.listAllTripsByUsername(username);
+    }
+
+    @GetMapping("/summary/{username}")
+    public Flux<TripSummaryDto> listTripSummariesByUsername(@PathVariable String username) {
+        return tripService.listTripSummariesByUsername(username);
+    }
+
+    @GetMapping("/page/{username}")
+    public Mono<ResponseEntity<TripPageDto<Trip>>> listTripPageByUsername(@PathVariable String username,
+                                                                          @RequestParam(defaultValue = "20") int size,
+                                                                          @RequestParam(required = false) String continuationToken) {
+        return tripService.listTripPageByUsername(username, size, continuationToken)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("trip page", e));
+    }
+
+    @GetMapping("/summary/page/{username}")
+    public Mono<ResponseEntity<TripPageDto<TripSummaryDto>>> listTripSummaryPageByUsername(@PathVariable String username,
+                                                                                           @RequestParam(defaultValue = "20") int size,
+                                                                                           @RequestParam(required = false) String continuationToken) {
+        return tripService.listTripSummaryPageByUsername(username, size, continuationToken)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("trip summary page", e));
+    }
+
+    @GetMapping("/batch/{username}")
+    public Mono<ResponseEntity<List<TripBatchEntryDto<Trip>>>> listTripBatchByUsername(@PathVariable String username,
+                                                                                      @RequestParam List<String> tripIds) {
+        return tripService.listTripBatchByUsername(username, tripIds)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("trip batch", e));
+    }
+
+    @GetMapping("/summary/batch/{username}")
+    public Mono<ResponseEntity<List<TripBatchEntryDto<TripSummaryDto>>>> listTripSummaryBatchByUsername(@PathVariable String username,
+                                                                                                       @RequestParam List<String> tripIds) {
+        return tripService.listTripSummaryBatchByUsername(username, tripIds)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("trip summary batch", e));
+    }
+
+    @GetMapping("/overlapping/{username}")
+    public Mono<ResponseEntity<List<TripSummaryDto>>> listTripsOverlapping(@PathVariable String username,
+                                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return tripService.listTripsOverlapping(username, from, to)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("overlapping trips", e));
+    }
+
+    @GetMapping("/schedule/{username}")
+    public Mono<ResponseEntity<List<TripScheduleDto>>> listScheduleBetween(@PathVariable String username,
+                                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return tripService.listScheduleBetween(username, from, to)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("schedule", e));
+    }
+
+    @GetMapping("/costs/{username}")
+    public Mono<ResponseEntity<CostSummaryDto>> summarizeUserCosts(@PathVariable String username) {
+        return tripService.summarizeUserCosts(username).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/stats/{username}")
+    public Mono<ResponseEntity<UserTripStatsDto>> userStats(@PathVariable String username) {
+        return tripService.userStats(username).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/sync/{username}")
+    public Mono<ResponseEntity<TripSyncDto>> syncTrips(@PathVariable String username,
+                                                       @RequestParam(required = false) String syncToken,
+                                                       @RequestParam(defaultValue = "100") int size) {
+        return tripService.syncTrips(username, syncToken, size)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(TripSyncExpiredException.class, e -> {
+                              log.info("Trip sync of {} must start over: {}", username, e.getMessage());
+                              return Mono.just(new ResponseEntity<>(HttpStatus.GONE));
+                          })
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("trip sync", e));
+    }
+
+    @GetMapping("/trip/{tripId}/costs")
+    public Mono<ResponseEntity<CostSummaryDto>> summarizeTripCosts(@PathVariable String tripId) {
+        return okOrNotFound(tripService.summarizeTripCosts(tripId));
+    }
+
+    @GetMapping("/trip/{tripId}/activities")
+    public Mono<ResponseEntity<TripPageDto<Activity>>> listTripActivityPage(@PathVariable String tripId,
+                                                                            @RequestParam String username,
+                                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day,
+                                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                            @RequestParam(defaultValue = "20") int size,
+                                                                            @RequestParam(required = false) String continuationToken) {
+        return okOrNotFound(tripService.listTripActivityPage(username, tripId, day, from, to, size, continuationToken))
+                   .onErrorResume(IllegalArgumentException.class, e -> badRequest("trip activity page", e));
+    }
+
+    @GetMapping("/nearby/{username}")
+    public Mono<ResponseEntity<NearbyPlacesDto>> listPlacesNearby(@PathVariable String username,
+                                                                  @RequestParam double latitude,
+                                                                  @RequestParam double longitude,
+                                                                  @RequestParam(required = false) Double radius,
+                                                                  @RequestParam(defaultValue = "20") int limit) {
+        return tripService.listPlacesNearby(username, latitude, longitude, radius, limit)
+                          .map(ResponseEntity::ok)
+                          .onErrorResume(IllegalArgumentException.class, e -> badRequest("nearby places", e));
+    }
+
+    @GetMapping("/trip/{tripname}")
+    public Mono<ResponseEntity<Trip>> listAllTripsByName(@PathVariable String tripname) {
+        log.info("listAllTripsByName: {}", tripname);
+        return okOrNotFound(tripService.listAllTripsByTripName(tripname));
+    }
+
+    @GetMapping()
+    public Mono<ResponseEntity<Trip>> listAllTripsByName(@RequestParam String username, @RequestParam String tripId,
+                                                         ServerWebExchange exchange) {
+        log.info("Fetching trip {} of {}", tripId, username);
+        List<MediaType> accept = exchange.getRequest().getHeaders().getAccept();
+        return tripService.currentETag(username, tripId)
+                          .map(eTag -> TripETag.negotiated(eTag, accept))
+                          .flatMap(eTag -> exchange.checkNotModified(eTag)
+                              ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).<Trip>build())
+                              : tripService.listTripByIdAndUsername(username, tripId)
+                                           .map(trip -> ResponseEntity.ok().eTag(TripETag.negotiated(TripETag.of(trip), accept))
+                                                                      .varyBy(HttpHeaders.ACCEPT).body(trip)))
+                          .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping("/trip")
+    public Mono<ResponseEntity<String>> createTrip(@Valid @RequestBody Trip trip) {
+        log.info("Creating new trip");
+        return tripService.createTrip(trip)
+                          .map(savedTrip -> {
+                              log.info("Trip created with id: {}", savedTrip.id());
+                              return ResponseEntity.created(URI.create("/trip/" + savedTrip.id())).body(savedTrip.id());
+                          });
+    }
+
+    @PutMapping("/trip")
+    public Mono<ResponseEntity<String>> updateTrip(@Valid @RequestBody Trip trip,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Updating trip {}", trip.id());
+        return tripService.updateTrip(trip, TripETag.expectedVersion(trip.id(), ifMatch)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+    }
+
+    @PutMapping("/trip/{tripId}")
+    public Mono<ResponseEntity<Activity>> addActivityToTrip(@PathVariable String tripId, @Valid @RequestBody Activity activity,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Adding activity to trip {}", tripId);
+        return okOrNotFound(tripService.addActivityToTrip(tripId, activity, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @PostMapping("/trip/{tripId}/activities")
+    public Mono<ResponseEntity<List<String>>> addActivitiesToTrip(@PathVariable String tripId,
+                                                                  @RequestBody @NotEmpty @Size(max = MAX_BULK_ACTIVITIES) List<@Valid Activity> activities) {
+        log.info("Adding {} activities to trip {}", activities.size(), tripId);
+        return okOrNotFound(tripService.addActivitiesToTrip(tripId, activities));
+    }
+
+    @PutMapping("/trip/partial/{tripId}")
+    public Mono<ResponseEntity<String>> updateTrip(@PathVariable String tripId, @Valid @RequestBody PartialTripDto partialTripDto,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Updating trip {}", tripId);
+        return okOrNotFound(tripService.updateTripWithPartialInfo(tripId, partialTripDto, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @PutMapping("/trip/{tripId}/accommodation")
+    public Mono<ResponseEntity<String>> updateTripWithAccommodation(@PathVariable String tripId, @Valid @RequestBody Accommodation accommodation,
+                                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Adding accommodation to trip {}", tripId);
+        return okOrNotFound(tripService.updateTripWithAccommodation(tripId, accommodation, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @PutMapping("/trip/{tripId}/accommodation/update")
+    public Mono<ResponseEntity<HttpStatus>> updateAccommodationFromTrip(@PathVariable String tripId, @Valid @RequestBody Accommodation accommodation,
+                                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Updating accommodation from trip {}", tripId);
+        return foundOrNotFound(tripService.updateAccommodationFromTrip(tripId, accommodation, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @DeleteMapping("/trip/{tripId}/accommodation")
+    public Mono<ResponseEntity<HttpStatus>> deleteAccommodationFromTrip(@PathVariable String tripId, @RequestParam String accommodationId) {
+        log.info("Deleting accommodation from trip {}", tripId);
+        return foundOrNotFound(tripService.deleteAccommodation(tripId, accommodationId));
+    }
+
+    @GetMapping("/trip/{tripId}/accommodation")
+    public Mono<ResponseEntity<List<Accommodation>>> getTripAccommodations(@PathVariable String tripId, ServerWebExchange exchange) {
+        log.info("Fectching trip {} accommodations ", tripId);
+        return tripService.currentETag(tripId)
+                          .map(eTag -> TripETag.negotiated(eTag, exchange.getRequest().getHeaders().getAccept()))
+                          .flatMap(eTag -> exchange.checkNotModified(eTag)
+                              ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).<List<Accommodation>>build())
+                              : tripService.listAllTripAccomodations(tripId).map(accommodations -> ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(accommodations)))
+                          .defaultIfEmpty(ResponseEntity.ok(List.of()));
+    }
+
+    @PutMapping("/activity/{tripId}")
+    public Mono<ResponseEntity<Activity>> updateActivityFromTrip(@PathVariable String tripId, @Valid @RequestBody Activity activity,
+                                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Updating activity from trip {}", tripId);
+        return okOrNotFound(tripService.updateActivityFromTrip(tripId, activity, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @DeleteMapping(path = "/trip/{tripId}", params = "!activityId")
+    public Mono<ResponseEntity<HttpStatus>> deleteTrip(@PathVariable String tripId,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Deleting trip {}", tripId);
+        return foundOrNotFound(tripService.deleteTrip(tripId, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @DeleteMapping("/trip/{tripId}")
+    public Mono<ResponseEntity<HttpStatus>> deleteActivityFromTrip(@PathVariable String tripId, @RequestParam String activityId) {
+        log.info("Updating trip {}", tripId);
+        return foundOrNotFound(tripService.deleteActivity(tripId, activityId));
+    }
+
+    @PutMapping("/trip/{tripId}/travel")
+    public Mono<ResponseEntity<HttpStatus>> addTravelToTrip(@PathVariable String tripId, @Valid @RequestBody Travel travel,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Adding travel details to trip {}", tripId);
+        return foundOrNotFound(tripService.addTravelToTrip(tripId, travel, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @PutMapping("/trip/{tripId}/travel/update")
+    public Mono<ResponseEntity<HttpStatus>> updateTravelFromTrip(@PathVariable String tripId, @Valid @RequestBody Travel travel,
+                                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Updating travel details from trip {}", tripId);
+        return foundOrNotFound(tripService.updateTravelFromTrip(tripId, travel, TripETag.expectedVersion(tripId, ifMatch)));
+    }
+
+    @DeleteMapping("/trip/{tripId}/travel")
+    public Mono<ResponseEntity<HttpStatus>> deleteTravelFromTrip(@PathVariable String tripId, @RequestParam(required = false) String travelName) {
+        log.info("Updating travel details from trip {}", tripId);
+        return foundOrNotFound(tripService.deleteTravelFromTrip(tripId, travelName));
+    }
+
+    // A stale If-Match is a failed precondition; a stale version in the body is a conflict
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentModification(OptimisticLockingFailureException e, ServerWebExchange exchange) {
+        log.warn("Rejecting conflicting trip update: {}", e.getMessage());
+        boolean conditional = exchange.getRequest().getHeaders().containsKey(HttpHeaders.IF_MATCH);
+        return new ResponseEntity<>(e.getMessage(), conditional ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT);
+    }
+
+    private static <T> Mono<ResponseEntity<T>> okOrNotFound(Mono<T> result) {
+        return result.map(ResponseEntity::ok)
+                     .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    private static Mono<ResponseEntity<HttpStatus>> foundOrNotFound(Mono<Boolean> found) {
+        return found.map(exists -> new ResponseEntity<HttpStatus>(exists ? HttpStatus.OK : HttpStatus.NOT_FOUND));
+    }
+
+    private static <T> Mono<ResponseEntity<T>> badRequest(String request, IllegalArgumentException e) {
+        log.warn("Rejecting {} request: {}", request, e.getMessage());
+        return Mono.just(ResponseEntity.badRequest().build());
+    }
+}
@@ -0,0 +1,36 @@
+package com.dmmarques.travel_management.reactive.controller;
+
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/trips")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTripEventController {
+
+    private final ReactiveTripEventService tripEventService;
+
+    @GetMapping(value = "/events/{username}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TripChangeEventDto>> streamTripEventsOf(@PathVariable String username) {
+        log.info("Streaming trip events of {}", username);
+        return tripEventService.streamTripsOf(username);
+    }
+
+    @GetMapping(value = "/trip/{tripId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TripChangeEventDto>> streamTripEvents(@PathVariable String tripId) {
+        log.info("Streaming events of trip {}", tripId);
+        return tripEventService.streamTrip(tripId);
+    }
+}
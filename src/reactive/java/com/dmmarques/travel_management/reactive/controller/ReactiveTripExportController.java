@@ -0,0 +1,35 @@
+package com.dmmarques.travel_management.reactive.controller;
+
+import com.dmmarques.travel_management.config.TripExportProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Same URL contract as {@link com.dmmarques.travel_management.controller.TripExportController}. The NDJSON encoder
+ * requests trips from the cursor only as fast as the client reads them.
+ */
+@RestController
+@RequestMapping("/trips")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTripExportController {
+
+    private final ReactiveTripService tripService;
+    private final TripExportProperties properties;
+
+    @GetMapping(value = "/export/{username}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Trip> exportTripsByUsername(@PathVariable String username) {
+        log.info("Exporting trips of {}", username);
+        return tripService.exportTripsByUsername(username, properties.batchSize());
+    }
+}
@@ -0,0 +1,36 @@
+package com.dmmarques.travel_management.reactive.controller;
+
+import com.dmmarques.travel_management.dto.TripImportReportDto;
+import com.dmmarques.travel_management.reactive.service.ReactiveTripImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same URL contract as {@link com.dmmarques.travel_management.controller.TripImportController}. The body is handed
+ * over as raw buffers and split by the import itself, so malformed or overlong lines reach the import instead of
+ * failing the whole request in the decoder.
+ */
+@RestController
+@RequestMapping("/trips")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTripImportController {
+
+    private final ReactiveTripImportService tripImportService;
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<TripImportReportDto> importTrips(@RequestBody Flux<DataBuffer> body) {
+        log.info("Importing trips");
+        return tripImportService.importTrips(body);
+    }
+}
@@ -0,0 +1,18 @@
+package com.dmmarques.travel_management.reactive.repository;
+
+import com.dmmarques.travel_management.model.Trip;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveTripRepository extends ReactiveMongoRepository<Trip, String> {
+
+    Flux<Trip> findAllByCreatorUsername(String username);
+
+    Mono<Trip> findByName(String name);
+
+    Mono<Trip> findByCreatorUsernameAndId(String username, String id);
+
+}
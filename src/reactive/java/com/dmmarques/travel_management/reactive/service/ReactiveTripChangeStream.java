@@ -0,0 +1,85 @@
+package com.dmmarques.travel_management.reactive.service;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripChange;
+import com.dmmarques.travel_management.service.TripEvents;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking counterpart of {@link com.dmmarques.travel_management.service.TripChangeStream}. This stack keeps no
+ * trip cache, so the stream only feeds the subscribers.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveTripChangeStream {
+
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(5);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveTripEventService tripEvents;
+    private final TripEventsProperties properties;
+    private Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void watchOnStartup() {
+        if (!properties.changeStream()) {
+            log.warn(TripEvents.LOCAL_ONLY_WARNING);
+            return;
+        }
+        ChangeStreamOptions options = ChangeStreamOptions.builder()
+                                                         .filter(TripEvents.changeStreamPipeline().toArray(Document[]::new))
+                                                         .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                                                         .fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE)
+                                                         .build();
+        subscription = mongoTemplate.changeStream(mongoTemplate.getCollectionName(Trip.class), options, Document.class)
+                                    .doOnSubscribe(s -> log.info("Watching trip changes"))
+                                    .doOnNext(this::handle)
+                                    // Changes may have been missed, so every subscriber starts over from a sync
+                                    .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, RETRY_BACKOFF)
+                                                    .doBeforeRetry(signal -> {
+                                                        log.warn("Trip change stream failed, resyncing subscribers: {}",
+                                                            signal.failure().getMessage());
+                                                        tripEvents.resyncAll();
+                                                    }))
+                                    .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private void handle(ChangeStreamEvent<Document> event) {
+        ChangeStreamDocument<Document> change = event.getRaw();
+        if (change == null) {
+            return;
+        }
+        TripChange tripChange = TripEvents.fromChangeStream(change.getOperationTypeString(), TripEvents.tripIdOf(change.getDocumentKey()),
+            change.getFullDocument(), change.getFullDocumentBeforeChange());
+        if (tripChange != null) {
+            tripEvents.publish(tripChange);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.dmmarques.travel_management.reactive.service;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripChange;
+import com.dmmarques.travel_management.service.TripEvents;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Non-blocking counterpart of {@link com.dmmarques.travel_management.service.TripEventService}. Every subscriber's
+ * events are buffered up to the same bound, and a subscriber that overflows it is sent a
+ * {@value TripEvents#RESYNC} event in place of its pending ones, which ends its stream.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveTripEventService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TripEventsProperties properties;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public Flux<ServerSentEvent<TripChangeEventDto>> streamTripsOf(String username) {
+        return stream(username, null);
+    }
+
+    public Flux<ServerSentEvent<TripChangeEventDto>> streamTrip(String tripId) {
+        return stream(null, tripId);
+    }
+
+    // Completes once the subscribers were told; a failure to read the trip is logged rather than failing the write
+    public Mono<Void> tripChanged(String tripId) {
+        if (properties.changeStream() || subscribers.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.findOne(TripEvents.audienceOf(tripId), Trip.class)
+                            .doOnNext(current -> publish(TripEvents.changed(current, null)))
+                            .then()
+                            .onErrorResume(DataAccessException.class, e -> {
+                                log.warn("Subscribers of trip {} were not told about a change: {}", tripId, e.getMessage());
+                                return Mono.empty();
+                            });
+    }
+
+    public void tripChanged(Trip current, Trip previous) {
+        if (!properties.changeStream()) {
+            publish(TripEvents.changed(current, previous));
+        }
+    }
+
+    public void tripDeleted(Trip removed) {
+        if (!properties.changeStream()) {
+            publish(TripEvents.deleted(removed));
+        }
+    }
+
+    public void publish(TripChange change) {
+        subscribers.forEach(subscriber -> {
+            if (change.reaches(subscriber.username(), subscriber.tripId())) {
+                subscriber.sink().next(change.event());
+            }
+        });
+    }
+
+    public void resyncAll() {
+        subscribers.forEach(subscriber -> subscriber.sink().next(TripEvents.resync()));
+    }
+
+    // Opens with a comment, so that clients know they are subscribed before they sync
+    private Flux<ServerSentEvent<TripChangeEventDto>> stream(String username, String tripId) {
+        Flux<ServerSentEvent<TripChangeEventDto>> events =
+            Flux.<TripChangeEventDto>create(sink -> {
+                    Subscriber subscriber = new Subscriber(username, tripId, sink);
+                    subscribers.add(subscriber);
+                    sink.onDispose(() -> subscribers.remove(subscriber));
+                }, FluxSink.OverflowStrategy.IGNORE)
+                .onBackpressureBuffer(properties.bufferSize())
+                .onErrorResume(Exceptions::isOverflow, e -> Mono.just(TripEvents.resync()))
+                .map(event -> ServerSentEvent.builder(event).event(event.getType()).build());
+        Flux<ServerSentEvent<TripChangeEventDto>> heartbeats = Flux.interval(properties.heartbeat())
+                                                                   .onBackpressureDrop()
+                                                                   .map(tick -> heartbeat());
+        return Flux.merge(events, heartbeats)
+                   .startWith(heartbeat())
+                   .takeUntil(event -> TripEvents.RESYNC.equals(event.event()));
+    }
+
+    private static ServerSentEvent<TripChangeEventDto> heartbeat() {
+        return ServerSentEvent.<TripChangeEventDto>builder().comment("").build();
+    }
+
+    private record Subscriber(String username, String tripId, FluxSink<TripChangeEventDto> sink) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.dmmarques.travel_management.reactive.service;
+
+import com.dmmarques.travel_management.config.TripImportProperties;
+import com.dmmarques.travel_management.dto.TripImportLineDto;
+import com.dmmarques.travel_management.dto.TripImportReportDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripImports;
+import com.dmmarques.travel_management.service.TripImports.ParsedLine;
+import com.dmmarques.travel_management.service.TripImports.RawLine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.MongoBulkWriteException;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link com.dmmarques.travel_management.service.TripImportService}. The body is split
+ * into lines by the same bounded splitter, and batches are written one at a time, so the request body is only read as
+ * fast as Mongo accepts the trips. The statistics and subscribers learn of the inserted trips once per batch.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTripImportService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveTripStatsService tripStats;
+    private final ReactiveTripEventService tripEvents;
+    private final TripImportProperties properties;
+    private final Validator validator;
+    private final ObjectReader tripReader;
+
+    public ReactiveTripImportService(ReactiveMongoTemplate mongoTemplate, ReactiveTripStatsService tripStats,
+                                     ReactiveTripEventService tripEvents, TripImportProperties properties,
+                                     ObjectMapper objectMapper, Validator validator) {
+        this.mongoTemplate = mongoTemplate;
+        this.tripStats = tripStats;
+        this.tripEvents = tripEvents;
+        this.properties = properties;
+        this.validator = validator;
+        this.tripReader = TripImports.tripReader(objectMapper);
+    }
+
+    public Mono<TripImportReportDto> importTrips(Flux<DataBuffer> body) {
+        return Flux.defer(() -> lines(body, new TripImports.LineSplitter(properties.maxLineBytes())))
+                   .filter(line -> !line.isBlank())
+                   .map(line -> TripImports.parse(tripReader, validator, line, properties.maxLineBytes()))
+                   .buffer(properties.batchSize())
+                   .concatMap(batch -> insert(batch).flatMap(results -> announceInserted(batch, results)))
+                   .reduce(new TripImports.Tally(properties.maxReportedFailures()), TripImports.Tally::add)
+                   .map(TripImports.Tally::report);
+    }
+
+    private static Flux<RawLine> lines(Flux<DataBuffer> body, TripImports.LineSplitter splitter) {
+        return body.concatMapIterable(buffer -> {
+                       try {
+                           byte[] chunk = new byte[buffer.readableByteCount()];
+                           buffer.read(chunk);
+                           return splitter.feed(chunk, 0, chunk.length);
+                       } finally {
+                           DataBufferUtils.release(buffer);
+                       }
+                   })
+                   .concatWith(Mono.fromSupplier(() -> splitter.finish().orElse(null)));
+    }
+
+    private Mono<List<TripImportLineDto>> announceInserted(List<ParsedLine> batch, List<TripImportLineDto> results) {
+        List<Trip> inserted = TripImports.insertedOf(batch, results);
+        return tripStats.tripsInserted(inserted)
+                        .doOnSuccess(done -> inserted.forEach(trip -> tripEvents.tripChanged(trip, null)))
+                        .thenReturn(results);
+    }
+
+    private Mono<List<TripImportLineDto>> insert(List<ParsedLine> batch) {
+        List<Trip> trips = TripImports.tripsOf(batch);
+        if (trips.isEmpty()) {
+            return Mono.just(TripImports.results(batch, List.of()));
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trip.class)
+                            .insert(trips)
+                            .execute()
+                            .map(result -> TripImports.results(batch, List.of()))
+                            // Unlike the blocking template, the reactive one translates the bulk failure by its first error
+                            .onErrorResume(e -> e.getCause() instanceof MongoBulkWriteException,
+                                e -> Mono.just(TripImports.results(batch, ((MongoBulkWriteException) e.getCause()).getWriteErrors())));
+    }
+}
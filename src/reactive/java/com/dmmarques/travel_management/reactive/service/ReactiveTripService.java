@@ -0,0 +1,421 @@
+package com.dmmarques.travel_management.reactive.service;
+
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyDto;
+import com.dmmarques.travel_management.dto.NearbyPlacesDto;
+import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.dto.TripBatchEntryDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.dto.TripScheduleDto;
+import com.dmmarques.travel_management.dto.TripSummaryDto;
+import com.dmmarques.travel_management.dto.TripSyncDto;
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripTombstone;
+import com.dmmarques.travel_management.reactive.repository.ReactiveTripRepository;
+import com.dmmarques.travel_management.service.TripETag;
+import com.dmmarques.travel_management.service.TripQueries;
+import com.dmmarques.travel_management.service.TripStatistics;
+import com.dmmarques.travel_management.service.TripSync;
+import com.dmmarques.travel_management.service.TripWriteRetrier;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.dmmarques.travel_management.service.TripQueries.ACCOMMODATIONS;
+import static com.dmmarques.travel_management.service.TripQueries.ACTIVITY_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.TRAVEL_LIST;
+import static com.dmmarques.travel_management.service.TripQueries.byTripId;
+import static com.dmmarques.travel_management.service.TripQueries.duplicateNameOr;
+
+/**
+ * Non-blocking counterpart of {@link com.dmmarques.travel_management.service.TripService}. It issues the same
+ * commands through {@link TripQueries}; lookups that find no trip complete empty and boolean results report whether
+ * the trip exists.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveTripService {
+
+    private final ReactiveTripRepository tripRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TripWriteRetryProperties retryProperties;
+    private final ReactiveTripStatsService tripStats;
+    private final TripSyncProperties syncProperties;
+    private final ReactiveTripEventService tripEvents;
+    private final MeterRegistry meterRegistry;
+
+    public Flux<Trip> listAllTripsByUsername(String username) {
+        return tripRepository.findAllByCreatorUsername(username);
+    }
+
+    public Flux<TripSummaryDto> listTripSummariesByUsername(String username) {
+        return mongoTemplate.aggregate(TripQueries.summariesOf(username), TripSummaryDto.class);
+    }
+
+    public Mono<TripPageDto<Trip>> listTripPageByUsername(String username, int size, String continuationToken) {
+        int pageSize = TripQueries.pageSize(size);
+        return Mono.defer(() -> mongoTemplate.find(TripQueries.pageOf(username, continuationToken, pageSize), Trip.class)
+                                             .collectList())
+                   .map(trips -> TripQueries.toPage(trips, pageSize, Trip::startDate, Trip::id));
+    }
+
+    public Mono<TripPageDto<TripSummaryDto>> listTripSummaryPageByUsername(String username, int size, String continuationToken) {
+        int pageSize = TripQueries.pageSize(size);
+        return Mono.defer(() -> mongoTemplate.aggregate(TripQueries.summaryPageOf(username, continuationToken, pageSize),
+                                                        TripSummaryDto.class)
+                                             .collectList())
+                   .map(summaries -> TripQueries.toPage(summaries, pageSize, TripSummaryDto::getStartDate, TripSummaryDto::getId));
+    }
+
+    public Mono<List<TripBatchEntryDto<Trip>>> listTripBatchByUsername(String username, List<String> tripIds) {
+        return Mono.defer(() -> mongoTemplate.find(TripQueries.batchOf(username, tripIds), Trip.class).collectList())
+                   .map(trips -> TripQueries.inRequestOrder(tripIds, trips, Trip::id));
+    }
+
+    public Mono<List<TripBatchEntryDto<TripSummaryDto>>> listTripSummaryBatchByUsername(String username, List<String> tripIds) {
+        return Mono.defer(() -> mongoTemplate.aggregate(TripQueries.summaryBatchOf(username, tripIds), TripSummaryDto.class)
+                                             .collectList())
+                   .map(summaries -> TripQueries.inRequestOrder(tripIds, summaries, TripSummaryDto::getId));
+    }
+
+    public Flux<Trip> exportTripsByUsername(String username, int batchSize) {
+        return mongoTemplate.find(TripQueries.exportOf(username, batchSize), Trip.class);
+    }
+
+    public Mono<List<TripSummaryDto>> listTripsOverlapping(String username, LocalDate from, LocalDate to) {
+        return Mono.defer(() -> mongoTemplate.aggregate(TripQueries.overlappingOf(username, from, to), TripSummaryDto.class)
+                                             .collectList());
+    }
+
+    public Mono<List<TripScheduleDto>> listScheduleBetween(String username, LocalDateTime from, LocalDateTime to) {
+        return Mono.defer(() -> mongoTemplate.aggregate(TripQueries.scheduleOf(username, from, to), TripScheduleDto.class)
+                                             .collectList());
+    }
+
+    // Empty when the user has no such trip
+    public Mono<TripPageDto<Activity>> listTripActivityPage(String username, String tripId, LocalDate day, LocalDateTime from,
+                                                            LocalDateTime to, int size, String continuationToken) {
+        int pageSize = TripQueries.pageSize(size);
+        return Mono.defer(() -> mongoTemplate.aggregate(
+                       TripQueries.tripActivityPageOf(username, tripId, day, from, to, continuationToken, pageSize), Activity.class)
+                                             .collectList())
+                   .filterWhen(activities -> !activities.isEmpty() ? Mono.just(true)
+                       : mongoTemplate.exists(TripQueries.versionOf(username, tripId), Trip.class))
+                   .map(activities -> TripQueries.toActivityPage(activities, pageSize));
+    }
+
+    public Mono<Boolean> deleteTrip(String tripId, Long expectedVersion) {
+        Query query = TripQueries.withMembers(byTripId(tripId, TripQueries.guardedBy(null, expectedVersion)));
+        return Mono.defer(() -> mongoTemplate.findAndRemove(query, Trip.class))
+                   .flatMap(removed -> leftTrips(removed.creatorUsername(), tripId)
+                       .then(tripStats.tripDeleted(tripId))
+                       .doOnSuccess(done -> tripEvents.tripDeleted(removed))
+                       .thenReturn(true))
+                   .switchIfEmpty(Mono.defer(() -> expectedVersion != null ? rejectIfStale(tripId, expectedVersion) : Mono.just(false)));
+    }
+
+    // Same settled pages as the blocking service
+    public Mono<TripSyncDto> syncTrips(String username, String syncToken, int size) {
+        return Mono.defer(() -> {
+            int pageSize = TripQueries.pageSize(size);
+            Instant until = TripSync.settledBefore(syncProperties.settle());
+            Query changes = TripSync.changesOf(username, syncToken, until, pageSize);
+            Query deletions = TripSync.deletionsOf(username, syncToken, until, pageSize);
+            return Mono.zip(mongoTemplate.find(changes, Trip.class).collectList(),
+                            deletions != null ? mongoTemplate.find(deletions, TripTombstone.class).collectList() : Mono.just(List.<TripTombstone>of()),
+                            (changed, deleted) -> TripSync.toSync(changed, deleted, pageSize, until, syncToken));
+        });
+    }
+
+    public Mono<CostSummaryDto> summarizeTripCosts(String tripId) {
+        return mongoTemplate.aggregate(TripQueries.tripCostsOf(tripId), Document.class)
+                            .next()
+                            .mapNotNull(TripQueries::toCostSummary);
+    }
+
+    public Mono<CostSummaryDto> summarizeUserCosts(String username) {
+        return mongoTemplate.aggregate(TripQueries.userCostsOf(username), Document.class)
+                            .next()
+                            .mapNotNull(TripQueries::toCostSummary)
+                            .defaultIfEmpty(new CostSummaryDto(BigDecimal.ZERO, BigDecimal.ZERO, List.of(), List.of()));
+    }
+
+    public Mono<UserTripStatsDto> userStats(String username) {
+        return tripStats.statsOf(username);
+    }
+
+    public Mono<NearbyPlacesDto> listPlacesNearby(String username, double latitude, double longitude, Double radius, int limit) {
+        return Mono.defer(() -> {
+            GeoJsonPoint point = TripQueries.nearbyPoint(latitude, longitude, radius);
+            int nearbyLimit = TripQueries.nearbyLimit(limit);
+            return Mono.zip(nearby(username, ACTIVITY_LIST, point, radius, nearbyLimit, Activity.class),
+                            nearby(username, ACCOMMODATIONS, point, radius, nearbyLimit, Accommodation.class),
+                            NearbyPlacesDto::new);
+        });
+    }
+
+    public Mono<Trip> listAllTripsByTripName(String tripName) {
+        return tripRepository.findByName(tripName);
+    }
+
+    public Mono<Trip> listTripByIdAndUsername(String username, String tripId) {
+        return tripRepository.findByCreatorUsernameAndId(username, tripId);
+    }
+
+    public Mono<Trip> createTrip(Trip trip) {
+        return tripRepository.insert(trip.withLastModified(TripQueries.modifiedNow()))
+                             .onErrorMap(DuplicateKeyException.class, e -> duplicateNameOr(e, trip.name()))
+                             .flatMap(created -> tripStats.tripChanged(created.id())
+                                                         .doOnSuccess(done -> tripEvents.tripChanged(created, null))
+                                                         .thenReturn(created));
+    }
+
+    // An If-Match version takes precedence over the version in the body
+    public Mono<Void> updateTrip(Trip trip, Long expectedVersion) {
+        Long clientVersion = expectedVersion != null ? expectedVersion : trip.version();
+        if (clientVersion != null) {
+            return replaceIfVersionMatches(trip, clientVersion)
+                .flatMap(replaced -> replaced ? Mono.<Void>empty() : Mono.error(conflict(trip.id())));
+        }
+
+        return retryingConflicts("updateTrip",
+            Mono.defer(() -> mongoTemplate.findOne(TripQueries.versionOf(trip.id()), Trip.class)
+                                          .flatMap(current -> replaceIfVersionMatches(trip, current.version())
+                                              .flatMap(replaced -> replaced ? Mono.just(trip) : Mono.error(conflict(trip.id()))))
+                                          .switchIfEmpty(Mono.defer(() -> createTrip(trip)))))
+            .then();
+    }
+
+    // Reads the version alone, so that conditional requests are answered without loading the nested arrays
+    public Mono<String> currentETag(String tripId) {
+        return mongoTemplate.findOne(TripQueries.versionOf(tripId), Trip.class)
+                            .map(current -> TripETag.of(tripId, current.version()));
+    }
+
+    public Mono<String> currentETag(String username, String tripId) {
+        return mongoTemplate.findOne(TripQueries.versionOf(username, tripId), Trip.class)
+                            .map(current -> TripETag.of(tripId, current.version()));
+    }
+
+    public Mono<Activity> addActivityToTrip(String tripId, Activity activity, Long expectedVersion) {
+        return pushIfVersion(tripId, expectedVersion, ACTIVITY_LIST, TripQueries.withGeneratedId(activity))
+            .filter(Boolean::booleanValue)
+            .map(found -> activity);
+    }
+
+    public Mono<List<String>> addActivitiesToTrip(String tripId, List<Activity> activities) {
+        List<Activity> withIds = activities.stream().map(TripQueries::withNewId).toList();
+        return push(tripId, null, TripQueries.pushActivities(withIds), withIds)
+            .filter(Boolean::booleanValue)
+            .map(found -> withIds.stream().map(Activity::id).toList());
+    }
+
+    public Mono<Boolean> deleteActivity(String tripId, String activityId) {
+        return pull(tripId, ACTIVITY_LIST, "id", activityId);
+    }
+
+    public Mono<Activity> updateActivityFromTrip(String tripId, Activity activity, Long expectedVersion) {
+        return setOrPush(tripId, expectedVersion, ACTIVITY_LIST, "id", activity.id(), activity)
+            .filter(Boolean::booleanValue)
+            .map(found -> activity);
+    }
+
+    // A client-supplied version is not retried: a lost race means the client's copy is stale
+    public Mono<String> updateTripWithPartialInfo(String tripId, PartialTripDto partialTripDto, Long expectedVersion) {
+        Mono<String> update = tripRepository.findById(tripId)
+                                            .flatMap(trip -> applyUpdate(tripId,
+                                                TripQueries.versionIs(expectedVersion != null ? expectedVersion : trip.version()),
+                                                TripQueries.partialUpdate(trip, partialTripDto)))
+                                            .flatMap(updated -> updated ? Mono.just(tripId) : Mono.error(conflict(tripId)))
+                                            .onErrorMap(DuplicateKeyException.class, e -> duplicateNameOr(e, partialTripDto.getName()));
+        return expectedVersion != null ? update : retryingConflicts("updateTripWithPartialInfo", update);
+    }
+
+    public Mono<String> updateTripWithAccommodation(String tripId, Accommodation accommodation, Long expectedVersion) {
+        if (accommodation.getId() == null || accommodation.getId().isBlank()) {
+            accommodation.setId(new ObjectId().toString());
+        }
+        return pushIfVersion(tripId, expectedVersion, ACCOMMODATIONS, accommodation)
+            .filter(Boolean::booleanValue)
+            .map(found -> tripId);
+    }
+
+    public Mono<List<Accommodation>> listAllTripAccomodations(String tripId) {
+        return tripRepository.findById(tripId)
+                             .map(Trip::accommodations)
+                             .defaultIfEmpty(List.of());
+    }
+
+    public Mono<Boolean> addTravelToTrip(String tripId, Travel travel, Long expectedVersion) {
+        return pushIfVersion(tripId, expectedVersion, TRAVEL_LIST, travel);
+    }
+
+    public Mono<Boolean> updateTravelFromTrip(String tripId, Travel travel, Long expectedVersion) {
+        return setOrPush(tripId, expectedVersion, TRAVEL_LIST, "name", travel.getName(), travel);
+    }
+
+    public Mono<Boolean> updateAccommodationFromTrip(String tripId, Accommodation accommodation, Long expectedVersion) {
+        return setOrPush(tripId, expectedVersion, ACCOMMODATIONS, "name", accommodation.getName(), accommodation);
+    }
+
+    public Mono<Boolean> deleteAccommodation(String tripId, String accommodationId) {
+        return pull(tripId, ACCOMMODATIONS, "id", accommodationId);
+    }
+
+    public Mono<Boolean> deleteTravelFromTrip(String tripId, String travelName) {
+        return pull(tripId, TRAVEL_LIST, "name", travelName);
+    }
+
+    private <T> Mono<List<NearbyDto<T>>> nearby(String username, String arrayField, GeoJsonPoint point, Double radius, int limit,
+                                                Class<T> placeType) {
+        return mongoTemplate.aggregate(TripQueries.nearbyOf(username, arrayField, point, radius, limit), Trip.class, Document.class)
+                            .map(result -> TripQueries.toNearby(result, placeType, mongoTemplate.getConverter()))
+                            .collectList();
+    }
+
+    // Same positional $set / guarded $push / $set sequence as the blocking service
+    private Mono<Boolean> setOrPush(String tripId, Long expectedVersion, String arrayField, String key, Object value, Object element) {
+        Criteria existing = Criteria.where(arrayField + "." + key).is(value);
+        Criteria missing = Criteria.where(arrayField + "." + key).ne(value);
+        return modifyElement(tripId, TripQueries.guardedBy(existing, expectedVersion), new Update().set(arrayField + ".$", element),
+                arrayField, key, value, List.of(element))
+            .flatMap(found -> found ? Mono.just(true)
+                                    : push(tripId, TripQueries.guardedBy(missing, expectedVersion), new Update().push(arrayField, element),
+                                        List.of(element)))
+            .flatMap(found -> {
+                if (found) {
+                    return Mono.just(true);
+                }
+                return expectedVersion != null ? rejectIfStale(tripId, expectedVersion)
+                                               : modifyElement(tripId, existing, new Update().set(arrayField + ".$", element),
+                                                   arrayField, key, value, List.of(element));
+            });
+    }
+
+    // Completes with whether the trip exists
+    private Mono<Boolean> pull(String tripId, String arrayField, String key, Object value) {
+        Update update = new Update().pull(arrayField, Query.query(Criteria.where(key).is(value)));
+        return modifyElement(tripId, null, update, arrayField, key, value, List.of());
+    }
+
+    // Completes with whether the trip exists; a null expected version writes unconditionally
+    private Mono<Boolean> pushIfVersion(String tripId, Long expectedVersion, String arrayField, Object element) {
+        return push(tripId, TripQueries.guardedBy(null, expectedVersion), new Update().push(arrayField, element), List.of(element))
+            .flatMap(found -> found || expectedVersion == null ? Mono.just(found) : rejectIfStale(tripId, expectedVersion));
+    }
+
+    // A guarded write that matched nothing either targets a missing trip or one that moved past the expected version
+    private Mono<Boolean> rejectIfStale(String tripId, Long expectedVersion) {
+        return mongoTemplate.findOne(TripQueries.versionOf(tripId), Trip.class)
+                            .flatMap(current -> Mono.<Boolean>error(new OptimisticLockingFailureException(
+                                "Trip " + tripId + " is no longer at version " + expectedVersion + ".")))
+                            .defaultIfEmpty(false);
+    }
+
+    private Mono<Boolean> replaceIfVersionMatches(Trip trip, Long expectedVersion) {
+        long nextVersion = expectedVersion == null ? 1 : expectedVersion + 1;
+        Query query = TripQueries.withMembers(byTripId(trip.id(), TripQueries.versionIs(expectedVersion)));
+        Trip replacement = trip.withVersion(nextVersion).withLastModified(TripQueries.modifiedNow());
+        return mongoTemplate.findAndReplace(query, replacement)
+                            .onErrorMap(DuplicateKeyException.class, e -> duplicateNameOr(e, trip.name()))
+                            .flatMap(previous -> leftTrips(TripSync.formerOwner(previous, trip), trip.id())
+                                .then(tripStats.tripChanged(trip.id()))
+                                .doOnSuccess(done -> tripEvents.tripChanged(replacement, previous))
+                                .thenReturn(true))
+                            .defaultIfEmpty(false);
+    }
+
+    // Leaves a tombstone for the delta sync of a user the trip no longer belongs to
+    private Mono<Void> leftTrips(String username, String tripId) {
+        if (username == null) {
+            return Mono.empty();
+        }
+        return mongoTemplate.upsert(TripSync.tombstoneOf(username, tripId), TripSync.deletedAt(TripQueries.modifiedNow()),
+                                TripTombstone.class)
+                            .then();
+    }
+
+    // Writes to the whole trip are counted again from the trip as written
+    private Mono<Boolean> applyUpdate(String tripId, Criteria condition, Update update) {
+        return write(tripId, condition, update).flatMap(matched -> announceIfMatched(tripId, matched));
+    }
+
+    // Appends to an array of the trip; the statistics count the added elements
+    private Mono<Boolean> push(String tripId, Criteria condition, Update update, List<?> added) {
+        return write(tripId, condition, update)
+            .flatMap(matched -> !matched ? Mono.just(false)
+                : tripStats.elementsChanged(tripId, List.of(), added).then(tripEvents.tripChanged(tripId)).thenReturn(true));
+    }
+
+    // The reactive template raises its own optimistic lock failure when a version-guarded update matches nothing;
+    // it is reported as unmatched so that callers tell a missing trip from a stale version as the blocking service does
+    private Mono<Boolean> write(String tripId, Criteria condition, Update update) {
+        return Mono.defer(() -> mongoTemplate.updateFirst(byTripId(tripId, condition), TripQueries.touched(update), Trip.class))
+                   .map(TripQueries::matched)
+                   .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(false));
+    }
+
+    // Same single read-back of the replaced or removed element as the blocking service
+    private Mono<Boolean> modifyElement(String tripId, Criteria condition, Update update, String arrayField, String key, Object value,
+                                        List<?> added) {
+        Query query = TripStatistics.withElement(byTripId(tripId, condition), arrayField, key, value,
+            mongoTemplate.getConverter());
+        return Mono.defer(() -> mongoTemplate.findAndModify(query, TripQueries.touched(update), Trip.class))
+                   .flatMap(previous -> tripStats.elementsChanged(tripId, TripStatistics.elementsOf(previous, arrayField), added)
+                                                 .then(tripEvents.tripChanged(tripId))
+                                                 .thenReturn(true))
+                   .defaultIfEmpty(false);
+    }
+
+    // Statistics and subscribers follow every write that reached a trip; a failure to update them does not fail the write
+    private Mono<Boolean> announceIfMatched(String tripId, boolean matched) {
+        return matched ? tripStats.tripChanged(tripId).then(tripEvents.tripChanged(tripId)).thenReturn(true) : Mono.just(false);
+    }
+
+    // Non-blocking equivalent of TripWriteRetrier: exponential backoff with full jitter on lost version races, counted
+    // on the same meters per operation
+    private <T> Mono<T> retryingConflicts(String operation, Mono<T> write) {
+        return write.doOnError(OptimisticLockingFailureException.class,
+                        e -> meterRegistry.counter(TripWriteRetrier.CONFLICTS_METRIC, "operation", operation).increment())
+                    .retryWhen(conflictRetry(operation));
+    }
+
+    private Retry conflictRetry(String operation) {
+        return Retry.backoff(Math.max(0, retryProperties.maxAttempts() - 1), retryProperties.initialBackoff())
+                    .maxBackoff(retryProperties.maxBackoff())
+                    .jitter(1.0)
+                    .filter(OptimisticLockingFailureException.class::isInstance)
+                    .doBeforeRetry(signal -> meterRegistry.counter(TripWriteRetrier.RETRIES_METRIC, "operation", operation).increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private static OptimisticLockingFailureException conflict(String tripId) {
+        return new OptimisticLockingFailureException("Trip " + tripId + " was modified concurrently.");
+    }
+}
@@ -0,0 +1,146 @@
+package com.dmmarques.travel_management.reactive.service;
+
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripStatsEntry;
+import com.dmmarques.travel_management.model.UserTripStats;
+import com.dmmarques.travel_management.service.TripStatistics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@link com.dmmarques.travel_management.service.TripStatsService}, maintaining the same
+ * documents through {@link TripStatistics}.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveTripStatsService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public Mono<UserTripStatsDto> statsOf(String username) {
+        return mongoTemplate.findById(username, UserTripStats.class)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .map(stats -> TripStatistics.toStats(username, stats.orElse(null), LocalDate.now()));
+    }
+
+    // Completes once the statistics count the change; a failure is logged rather than failing the write
+    public Mono<Void> tripChanged(String tripId) {
+        return mongoTemplate.findOne(TripStatistics.contributionOf(tripId), Trip.class)
+                            .mapNotNull(TripStatistics::entryOf)
+                            .flatMap(this::record)
+                            .onErrorResume(DataAccessException.class, e -> {
+                                log.warn("Statistics of trip {} were not updated until the next rebuild: {}", tripId, e.getMessage());
+                                return Mono.empty();
+                            });
+    }
+
+    // Same two bulk writes as the blocking service
+    public Mono<Void> tripsInserted(List<Trip> trips) {
+        List<TripStatsEntry> entries = trips.stream().map(TripStatistics::entryOf).filter(Objects::nonNull).toList();
+        if (entries.isEmpty()) {
+            return Mono.empty();
+        }
+        return replaceEntries(entries)
+            .then(Mono.defer(() -> {
+                ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserTripStats.class);
+                TripStatistics.deltasOf(entries).forEach((username, delta) -> bulk.upsert(TripStatistics.statsOf(username), delta));
+                return bulk.execute().then();
+            }))
+            .onErrorResume(DataAccessException.class, e -> {
+                log.warn("Statistics of {} imported trips were not updated until the next rebuild: {}", entries.size(), e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    // Same increments as the blocking service: a trip not counted yet is counted whole
+    public Mono<Void> elementsChanged(String tripId, List<?> removed, List<?> added) {
+        Update delta = TripStatistics.elementDeltaOf(removed, added);
+        if (delta == null) {
+            return Mono.empty();
+        }
+        return mongoTemplate.findAndModify(TripStatistics.entryById(tripId), delta, TripStatsEntry.class)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(entry -> entry.isEmpty() ? tripChanged(tripId)
+                                : mongoTemplate.upsert(TripStatistics.statsOf(entry.get().username()), delta, UserTripStats.class).then())
+                            .onErrorResume(DataAccessException.class, e -> {
+                                log.warn("Statistics of trip {} were not updated until the next rebuild: {}", tripId, e.getMessage());
+                                return Mono.empty();
+                            });
+    }
+
+    // A concurrent change that still read the trip may count it again until the next rebuild
+    public Mono<Void> tripDeleted(String tripId) {
+        return mongoTemplate.findAndRemove(TripStatistics.entryById(tripId), TripStatsEntry.class)
+                            .flatMapMany(previous -> Flux.fromIterable(TripStatistics.deltasOf(previous, null).entrySet()))
+                            .concatMap(delta -> mongoTemplate.upsert(TripStatistics.statsOf(delta.getKey()), delta.getValue(),
+                                UserTripStats.class))
+                            .then()
+                            .onErrorResume(DataAccessException.class, e -> {
+                                log.warn("Statistics of trip {} were not updated until the next rebuild: {}", tripId, e.getMessage());
+                                return Mono.empty();
+                            });
+    }
+
+    @Scheduled(cron = "${travel-management.trip-stats.rebuild-cron}")
+    public Mono<Void> rebuildAll() {
+        return mongoTemplate.findDistinct(new Query(), "creatorUsername", Trip.class, String.class)
+                            .concatMap(username -> rebuild(username).thenReturn(username))
+                            .count()
+                            .doOnNext(users -> log.info("Rebuilt the trip statistics of {} users", users))
+                            .then();
+    }
+
+    // Changes written while the user's trips are read are only counted again by the next rebuild
+    public Mono<Void> rebuild(String username) {
+        return mongoTemplate.find(TripStatistics.contributionsOf(username), Trip.class)
+                            .mapNotNull(TripStatistics::entryOf)
+                            .collectList()
+                            .flatMap(entries -> replaceEntries(entries).then(mongoTemplate.save(TripStatistics.statsOf(username, entries))))
+                            .then();
+    }
+
+    private Mono<Void> replaceEntries(List<TripStatsEntry> entries) {
+        if (entries.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TripStatsEntry.class);
+        entries.forEach(entry -> bulk.replaceOne(TripStatistics.entryById(entry.tripId()), entry,
+            FindAndReplaceOptions.options().upsert()));
+        return bulk.execute().then();
+    }
+
+    private Mono<Void> record(TripStatsEntry current) {
+        return mongoTemplate.findAndReplace(TripStatistics.olderThan(current), current, FindAndReplaceOptions.options().upsert())
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            // The upsert found the trip's entry already counting this or a newer version
+                            .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                            .flatMapMany(previous -> Flux.fromIterable(TripStatistics.deltasOf(previous.orElse(null), current).entrySet()))
+                            .concatMap(delta -> mongoTemplate.upsert(TripStatistics.statsOf(delta.getKey()), delta.getValue(),
+                                UserTripStats.class))
+                            .then();
+    }
+}
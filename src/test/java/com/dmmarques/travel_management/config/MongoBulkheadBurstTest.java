@@ -0,0 +1,77 @@
+package com.dmmarques.travel_management.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends a burst of {@value #REQUESTS} requests, one virtual thread each, through the real {@link MongoBulkheadFilter}.
+ * Every request blocks on Mongo and then on other I/O while its permit is held, as requests do behind the filter. How
+ * virtual threads compare with the platform pool is measured end to end by {@code TripApiLoadIT} in the load-test
+ * profile, once with {@code VIRTUAL_THREADS_ENABLED=true} and once with {@code false}.
+ */
+class MongoBulkheadBurstTest {
+
+    private static final int REQUESTS = 500;
+    private static final int BULKHEAD_PERMITS = 20;
+    private static final long MONGO_MILLIS = 5;
+    private static final long OTHER_IO_MILLIS = 5;
+
+    @Test
+    @DisplayName("a burst on virtual threads is served in full without exceeding the Mongo limit")
+    void virtualThreadBurst_staysWithinBulkhead() throws Exception {
+        MongoBulkhead bulkhead = new MongoBulkhead(
+            new MongoBulkheadProperties(true, BULKHEAD_PERMITS, Duration.ofSeconds(30)), new SimpleMeterRegistry());
+        MongoBulkheadFilter filter = new MongoBulkheadFilter(bulkhead);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        FilterChain request = (req, resp) -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                sleep(MONGO_MILLIS);
+                sleep(OTHER_IO_MILLIS);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        List<Future<Integer>> statuses = new ArrayList<>(REQUESTS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                statuses.add(executor.submit(() -> {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(new MockHttpServletRequest("GET", "/trips/john"), response, request);
+                    return response.getStatus();
+                }));
+            }
+        }
+
+        for (Future<Integer> status : statuses) {
+            assertEquals(200, status.get());
+        }
+        assertTrue(peak.get() <= BULKHEAD_PERMITS, "the bulkhead must bound concurrent requests, peak was " + peak.get());
+        assertEquals(0, bulkhead.activeCalls());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
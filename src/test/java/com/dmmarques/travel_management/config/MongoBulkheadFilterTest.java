@@ -0,0 +1,120 @@
+package com.dmmarques.travel_management.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoBulkheadFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoBulkhead bulkhead;
+    private MongoBulkheadFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new MongoBulkhead(new MongoBulkheadProperties(true, 1, Duration.ZERO), meterRegistry);
+        filter = new MongoBulkheadFilter(bulkhead);
+    }
+
+    @Test
+    @DisplayName("passes requests through and releases the permit afterwards")
+    void doFilter_releasesPermitAfterRequest() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/trips/john"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(0, bulkhead.activeCalls());
+    }
+
+    @Test
+    @DisplayName("keeps the permit of an asynchronous request until it completes")
+    void doFilter_holdsPermitUntilAsyncCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/trips/export/john");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new StreamingServlet());
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(1, bulkhead.activeCalls());
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, bulkhead.activeCalls());
+    }
+
+    @Test
+    @DisplayName("serves API calls while event streams are open, since streams take no permit")
+    void doFilter_eventStreamsLeavePermitsToApiCalls() throws Exception {
+        MockHttpServletRequest tripsOf = streamRequest("/trips/events/john");
+        MockHttpServletRequest trip = streamRequest("/trips/trip/t1/events");
+        filter.doFilter(tripsOf, new MockHttpServletResponse(), new MockFilterChain(new StreamingServlet()));
+        filter.doFilter(trip, new MockHttpServletResponse(), new MockFilterChain(new StreamingServlet()));
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/trips/john"), response, chain);
+
+        assertTrue(tripsOf.isAsyncStarted());
+        assertTrue(trip.isAsyncStarted());
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(0, bulkhead.activeCalls());
+    }
+
+    @Test
+    @DisplayName("answers 503 when the bulkhead is saturated")
+    void doFilter_rejectsWhenSaturated() throws Exception {
+        assertTrue(bulkhead.tryAcquire());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/trips/john"), response, chain);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertNull(chain.getRequest());
+        assertEquals(1, meterRegistry.get(MongoBulkhead.REJECTED_METRIC).counter().count());
+        assertEquals(1, meterRegistry.get(MongoBulkhead.ACTIVE_METRIC).gauge().value());
+    }
+
+    @Test
+    @DisplayName("does not limit requests when disabled")
+    void doFilter_passesThroughWhenDisabled() throws Exception {
+        MongoBulkhead disabled = new MongoBulkhead(new MongoBulkheadProperties(false, 1, Duration.ZERO), meterRegistry);
+        MongoBulkheadFilter disabledFilter = new MongoBulkheadFilter(disabled);
+        assertTrue(disabled.tryAcquire());
+        MockFilterChain chain = new MockFilterChain();
+
+        disabledFilter.doFilter(new MockHttpServletRequest("GET", "/trips/john"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+    }
+
+    private static MockHttpServletRequest streamRequest(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    // Goes asynchronous and never completes, like a subscriber that keeps listening
+    private static class StreamingServlet extends HttpServlet {
+
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) {
+            req.startAsync();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.dmmarques.travel_management.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoCommandMetricsTest {
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private SimpleMeterRegistry meterRegistry;
+    private MongoCollection<Document> trips;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        meterRegistry = new SimpleMeterRegistry();
+        mongoClient = MongoClients.create(MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString("mongodb://" + address.getHostString() + ":" + address.getPort()))
+            .addCommandListener(new MongoCommandMetrics(meterRegistry))
+            .build());
+        trips = mongoClient.getDatabase("trips").getCollection("trip");
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("times each command by collection, operation and outcome")
+    void commands_areTimedPerCollectionAndOperation() {
+        trips.insertMany(List.of(new Document("name", "Beach"), new Document("name", "Mountains")));
+        trips.find().into(new ArrayList<>());
+        trips.find().into(new ArrayList<>());
+
+        assertEquals(1, meterRegistry.get(MongoCommandMetrics.COMMANDS_METRIC)
+                                     .tags("collection", "trip", "operation", "insert", "status", "success").timer().count());
+        assertEquals(2, meterRegistry.get(MongoCommandMetrics.COMMANDS_METRIC)
+                                     .tags("collection", "trip", "operation", "find", "status", "success").timer().count());
+    }
+
+    @Test
+    @DisplayName("records the documents and bytes of each reply")
+    void replies_recordDocumentsAndBytes() {
+        trips.insertMany(List.of(new Document("name", "Beach"), new Document("name", "Mountains")));
+        trips.deleteMany(Filters.eq("name", "Beach"));
+        trips.find().into(new ArrayList<>());
+
+        DistributionSummary found = meterRegistry.get(MongoCommandMetrics.DOCUMENTS_METRIC)
+                                                 .tags("collection", "trip", "operation", "find").summary();
+        assertEquals(1, found.totalAmount());
+        assertEquals(2, meterRegistry.get(MongoCommandMetrics.DOCUMENTS_METRIC)
+                                     .tags("collection", "trip", "operation", "insert").summary().totalAmount());
+        assertEquals(1, meterRegistry.get(MongoCommandMetrics.DOCUMENTS_METRIC)
+                                     .tags("collection", "trip", "operation", "delete").summary().totalAmount());
+        assertTrue(meterRegistry.get(MongoCommandMetrics.REPLY_SIZE_METRIC)
+                                .tags("collection", "trip", "operation", "find").summary().totalAmount() > 0);
+    }
+
+    @Test
+    @DisplayName("failed commands are timed with a failure status")
+    void failedCommands_areTimedAsFailures() {
+        assertThrows(RuntimeException.class, () -> mongoClient.getDatabase("trips").runCommand(new Document("noSuchCommand", "trip")));
+
+        assertEquals(1, meterRegistry.get(MongoCommandMetrics.COMMANDS_METRIC)
+                                     .tags("operation", "noSuchCommand", "status", "failure").timer().count());
+    }
+}
@@ -0,0 +1,119 @@
+package com.dmmarques.travel_management.config;
+
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripStatsEntry;
+import com.dmmarques.travel_management.model.UserTripStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MongoIndexVerifierTest {
+
+    private MongoTemplate mongoTemplate;
+    private IndexOperations indexOperations;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        indexOperations = Mockito.mock(IndexOperations.class);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.getCollectionName(Trip.class)).thenReturn("trip");
+        when(mongoTemplate.indexOps(Trip.class)).thenReturn(indexOperations);
+    }
+
+    @Test
+    @DisplayName("creates missing indexes and reports mismatched and undeclared ones")
+    void verify_reportsMissingMismatchedAndExtraIndexes() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(
+            index("_id_", false, "_id"),
+            index("creatorUsername_name", false, "creatorUsername", "name"),
+            index("name", false, "name"),
+            index("legacy_budget", false, "budget")
+        ));
+
+        MongoIndexVerifier.IndexReport report = new MongoIndexVerifier(mongoTemplate, new MongoIndexProperties(true)).verify(Trip.class);
+
+        assertEquals("trip", report.collection());
+        List<String> missing = List.of("creatorUsername_startDate_id", "creatorUsername_lastModified_id",
+            "creatorUsername_endDate_startDate", "creatorUsername_activityList.activityDate", "creatorUsername_travelList.departureDate",
+            "creatorUsername_accommodations.checkInDate", "creatorUsername_activityList.location",
+            "creatorUsername_accommodations.location");
+        assertEquals(missing, report.missing());
+        assertEquals(missing, report.created());
+        // Declared unique but present as a plain index
+        assertEquals(List.of("creatorUsername_name"), report.mismatched());
+        assertEquals(List.of("legacy_budget"), report.extra());
+        assertFalse(report.isClean());
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOperations, times(8)).createIndex(created.capture());
+        assertEquals(List.of("creatorUsername", "startDate", "_id"), List.copyOf(created.getAllValues().get(0).getIndexKeys().keySet()));
+        assertEquals("2dsphere", created.getAllValues().get(6).getIndexKeys().get("activityList.location"));
+    }
+
+    @Test
+    @DisplayName("only reports missing indexes when creation is disabled")
+    void verify_doesNotCreateIndexesWhenDisabled() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", false, "_id")));
+
+        MongoIndexVerifier.IndexReport report = new MongoIndexVerifier(mongoTemplate, new MongoIndexProperties(false)).verify(Trip.class);
+
+        assertEquals(10, report.missing().size());
+        assertTrue(report.created().isEmpty());
+        verify(indexOperations, never()).createIndex(any());
+    }
+
+    @Test
+    @DisplayName("keeps going when an index cannot be created")
+    void verify_reportsIndexesThatCouldNotBeCreated() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", false, "_id")));
+        when(indexOperations.createIndex(any())).thenThrow(new DuplicateKeyException("E11000")).thenReturn("ok");
+
+        MongoIndexVerifier.IndexReport report = new MongoIndexVerifier(mongoTemplate, new MongoIndexProperties(true)).verify(Trip.class);
+
+        assertEquals(10, report.missing().size());
+        assertEquals(9, report.created().size());
+    }
+
+    @Test
+    @DisplayName("statistics entries are indexed by user, and user statistics need no index beyond their id")
+    void verify_coversStatisticsDocuments() {
+        when(mongoTemplate.getCollectionName(TripStatsEntry.class)).thenReturn("tripStatsEntry");
+        when(mongoTemplate.indexOps(TripStatsEntry.class)).thenReturn(indexOperations);
+        when(mongoTemplate.getCollectionName(UserTripStats.class)).thenReturn("userTripStats");
+        when(mongoTemplate.indexOps(UserTripStats.class)).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", false, "_id")));
+        MongoIndexVerifier verifier = new MongoIndexVerifier(mongoTemplate, new MongoIndexProperties(false));
+
+        assertTrue(MongoIndexVerifier.INDEXED_DOCUMENTS.containsAll(List.of(TripStatsEntry.class, UserTripStats.class)));
+        assertEquals(List.of("username_id"), verifier.verify(TripStatsEntry.class).missing());
+        assertTrue(verifier.verify(UserTripStats.class).isClean());
+    }
+
+    private static IndexInfo index(String name, boolean unique, String... keys) {
+        List<IndexField> fields = Arrays.stream(keys).map(key -> IndexField.create(key, Sort.Direction.ASC)).toList();
+        return new IndexInfo(fields, name, unique, false, null);
+    }
+}
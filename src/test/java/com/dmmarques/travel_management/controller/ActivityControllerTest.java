@@ -1,5 +1,6 @@
 package com.dmmarques.travel_management.controller;
 
+import com.dmmarques.travel_management.dto.TripPageDto;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.service.ActivityService;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +18,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -39,21 +41,31 @@ class ActivityControllerTest {
     }
 
     @Test
-    @DisplayName("GET /activities?username&tripName returns list of activities")
+    @DisplayName("GET /activities?username&tripName returns a page of activities")
     void listActivities_returnsOk() throws Exception {
         Activity a = new Activity("a1", "Museum", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
-        when(activityService.listAllActivitiesByTripName("john", "Trip")).thenReturn(List.of(a));
+        when(activityService.listActivityPageByTripName("john", "Trip", 20, null)).thenReturn(new TripPageDto<>(List.of(a), "next"));
 
         mockMvc.perform(get("/activities").param("username", "john").param("tripName", "Trip"))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$[0].id").value("a1"))
-            .andExpect(jsonPath("$[0].name").value("Museum"));
+            .andExpect(jsonPath("$.items[0].id").value("a1"))
+            .andExpect(jsonPath("$.items[0].name").value("Museum"))
+            .andExpect(jsonPath("$.continuationToken").value("next"));
     }
 
     @Test
-    @DisplayName("POST /activities creates activity id and returns 201")
+    @DisplayName("GET /activities for an unknown trip returns 404")
+    void listActivities_unknownTrip_returnsNotFound() throws Exception {
+        when(activityService.listActivityPageByTripName("john", "Nope", 20, null)).thenReturn(null);
+
+        mockMvc.perform(get("/activities").param("username", "john").param("tripName", "Nope"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("POST /activities?tripId= adds the activity to its trip and returns 201")
     void createActivity_returnsCreated() throws Exception {
-        when(activityService.createActivity(any(Activity.class))).thenReturn("aid");
+        when(activityService.createActivity(eq("t1"), any(Activity.class))).thenReturn("aid");
 
         String body = "{" +
             "\"name\":\"Museum\"," +
@@ -63,7 +75,7 @@ class ActivityControllerTest {
             "\"creationDate\":\"" + LocalDateTime.now() + "\"," +
             "\"activityDate\":\"" + LocalDateTime.now() + "\"}";
 
-        mockMvc.perform(post("/activities")
+        mockMvc.perform(post("/activities").param("tripId", "t1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(body))
             .andExpect(status().isCreated())
@@ -0,0 +1,61 @@
+package com.dmmarques.travel_management.controller;
+
+import com.dmmarques.travel_management.config.TripCacheProperties;
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.config.TripExportProperties;
+import com.dmmarques.travel_management.config.TripImportProperties;
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import com.dmmarques.travel_management.repository.TripRepository;
+import com.dmmarques.travel_management.service.TripCache;
+import com.dmmarques.travel_management.service.TripEventService;
+import com.dmmarques.travel_management.service.TripExportService;
+import com.dmmarques.travel_management.service.TripImportService;
+import com.dmmarques.travel_management.service.TripService;
+import com.dmmarques.travel_management.service.TripStatsService;
+import com.dmmarques.travel_management.service.TripWriteRetrier;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.client.MockMvcWebTestClient;
+
+import java.time.Duration;
+
+class ServletTripApiContractTest extends TripApiContractTest {
+
+    private MongoClient mongoClient;
+
+    @Override
+    protected WebTestClient connect(String connectionString, String database) {
+        mongoClient = MongoClients.create(connectionString);
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, database);
+        TripRepository tripRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(TripRepository.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        TripStatsService tripStats = new TripStatsService(mongoTemplate);
+        TripEventService tripEvents = new TripEventService(mongoTemplate, new TripEventsProperties(64, Duration.ofSeconds(15), false),
+            objectMapper);
+        TripService tripService = new TripService(tripRepository, mongoTemplate,
+            new TripWriteRetrier(new TripWriteRetryProperties(3, Duration.ZERO, Duration.ZERO), meterRegistry),
+            new TripCache(tripRepository, new TripCacheProperties(true, 100, Duration.ofMinutes(1)), meterRegistry),
+            tripStats, new TripSyncProperties(Duration.ZERO), tripEvents);
+        TripExportService tripExportService = new TripExportService(mongoTemplate, new TripExportProperties(EXPORT_BATCH_SIZE),
+            objectMapper);
+        TripImportService tripImportService = new TripImportService(mongoTemplate, tripStats, tripEvents, new TripImportProperties(IMPORT_BATCH_SIZE, IMPORT_MAX_LINE_BYTES, IMPORT_MAX_REPORTED_FAILURES),
+            objectMapper, Validation.buildDefaultValidatorFactory().getValidator());
+        return MockMvcWebTestClient.bindToController(new TripController(tripService), new TripExportController(tripExportService),
+                                                     new TripImportController(tripImportService))
+                                   .build();
+    }
+
+    @Override
+    protected void close() {
+        mongoClient.close();
+    }
+}
@@ -0,0 +1,823 @@
+package com.dmmarques.travel_management.controller;
+
+import com.dmmarques.travel_management.config.MongoIndexProperties;
+import com.dmmarques.travel_management.config.MongoIndexVerifier;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * URL contract of the trip API, run against every implementation of it. Each implementation wires its real
+ * controller and service to a fresh database of an in-memory Mongo server, so the same requests must produce the same
+ * statuses and bodies on both stacks.
+ */
+public abstract class TripApiContractTest {
+
+    // Smaller than the trips a test exports or imports, so that both span several batches
+    protected static final int EXPORT_BATCH_SIZE = 2;
+    protected static final int IMPORT_BATCH_SIZE = 2;
+    protected static final int IMPORT_MAX_LINE_BYTES = 1024;
+    protected static final int IMPORT_MAX_REPORTED_FAILURES = 3;
+
+    private static MongoServer mongoServer;
+    private static String connectionString;
+
+    protected WebTestClient client;
+    private String database;
+
+    @BeforeAll
+    static void startMongo() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        connectionString = "mongodb://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        mongoServer.shutdownNow();
+    }
+
+    @BeforeEach
+    void connect() {
+        database = "trips_" + UUID.randomUUID().toString().replace("-", "");
+        // Both stacks rely on the declared indexes, e.g. the unique name index for duplicate detection
+        try (MongoClient mongoClient = MongoClients.create(connectionString)) {
+            new MongoIndexVerifier(new MongoTemplate(mongoClient, database), new MongoIndexProperties(true)).verify(Trip.class);
+        }
+        client = connect(connectionString, database);
+    }
+
+    @AfterEach
+    void disconnect() {
+        close();
+    }
+
+    /**
+     * Builds a client bound to the implementation under test, backed by the given Mongo database.
+     */
+    protected abstract WebTestClient connect(String connectionString, String database);
+
+    protected abstract void close();
+
+    @Test
+    @DisplayName("POST /trips/trip creates a trip that is then listed for its creator")
+    void createTrip_isListedForCreator() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        client.get().uri("/trips/john").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.length()").isEqualTo(1)
+              .jsonPath("$[0].id").isEqualTo(id)
+              .jsonPath("$[0].name").isEqualTo("Beach")
+              .jsonPath("$[0].version").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("GET /trips?username&tripId and /trips/trip/{tripname} return the trip")
+    void getTrip_byIdAndByName() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        client.get().uri(uri -> uri.path("/trips").queryParam("username", "john").queryParam("tripId", id).build())
+              .exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.id").isEqualTo(id);
+        client.get().uri("/trips/trip/{tripname}", "Beach").exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.id").isEqualTo(id);
+    }
+
+    @Test
+    @DisplayName("GET /trips/summary/{username} returns counts instead of sub-documents")
+    void listTripSummaries_returnsCounts() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        put("/trips/trip/{tripId}", id, activityJson(null)).expectStatus().isOk();
+        put("/trips/trip/{tripId}/travel", id, travelJson("Flight", "PLANE")).expectStatus().isOk();
+
+        client.get().uri("/trips/summary/john").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$[0].id").isEqualTo(id)
+              .jsonPath("$[0].activityCount").isEqualTo(1)
+              .jsonPath("$[0].accommodationCount").isEqualTo(0)
+              .jsonPath("$[0].travelCount").isEqualTo(1)
+              .jsonPath("$[0].activityList").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("GET /trips/overlapping/{username} returns the trips overlapping an inclusive date range")
+    void listTripsOverlapping_matchesInclusiveRange() {
+        String beach = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String mountains = createTrip("Mountains", LocalDate.of(2026, 3, 1));
+
+        client.get().uri("/trips/overlapping/john?from=2026-01-04&to=2026-03-01").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.length()").isEqualTo(2)
+              .jsonPath("$[0].id").isEqualTo(beach)
+              .jsonPath("$[1].id").isEqualTo(mountains);
+        client.get().uri("/trips/overlapping/john?from=2026-01-05&to=2026-02-28").exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.length()").isEqualTo(0);
+        client.get().uri("/trips/overlapping/john?from=2026-02-01&to=2026-01-01").exchange()
+              .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /trips/schedule/{username} returns only the sub-documents starting in the window")
+    void listSchedule_filtersSubDocumentsServerSide() {
+        String beach = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String mountains = createTrip("Mountains", LocalDate.of(2026, 3, 1));
+        put("/trips/trip/{tripId}", beach, activityJson(null)).expectStatus().isOk();
+        put("/trips/trip/{tripId}", beach, activityJson(null).replace("Museum", "Gallery").replace("2026-01-02", "2026-01-03"))
+            .expectStatus().isOk();
+        put("/trips/trip/{tripId}/travel", beach, travelJson("Flight", "PLANE")).expectStatus().isOk();
+        put("/trips/trip/{tripId}/travel", mountains, travelJson("Train", "TRAIN").replace("2026-01-01", "2026-03-01"))
+            .expectStatus().isOk();
+
+        client.get().uri("/trips/schedule/john?from=2026-01-02T00:00:00&to=2026-01-03T00:00:00").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.length()").isEqualTo(1)
+              .jsonPath("$[0].id").isEqualTo(beach)
+              .jsonPath("$[0].activities.length()").isEqualTo(1)
+              .jsonPath("$[0].activities[0].name").isEqualTo("Museum")
+              .jsonPath("$[0].travels.length()").isEqualTo(0)
+              .jsonPath("$[0].accommodations.length()").isEqualTo(0);
+        client.get().uri("/trips/schedule/john?from=2026-01-01T00:00:00&to=2026-03-02T00:00:00").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.length()").isEqualTo(2)
+              .jsonPath("$[0].activities.length()").isEqualTo(2)
+              .jsonPath("$[0].travels[0].name").isEqualTo("Flight")
+              .jsonPath("$[1].id").isEqualTo(mountains)
+              .jsonPath("$[1].travels[0].name").isEqualTo("Train");
+    }
+
+    @Test
+    @DisplayName("GET /trips/stats/{username} follows every change to the user's trips")
+    void userStats_followTripChanges() {
+        String past = createTrip("Past", LocalDate.now().minusDays(30));
+        String upcoming = createTrip("Upcoming", LocalDate.now().plusDays(30));
+        put("/trips/trip/{tripId}", past, activityJson("a1")).expectStatus().isOk();
+        put("/trips/activity/{tripId}", past, activityJson("a1").replace("\"cost\":10", "\"cost\":25")).expectStatus().isOk();
+        put("/trips/trip/{tripId}", upcoming, activityJson("a2").replace("CAT", "SIGHTS.CITY")).expectStatus().isOk();
+        put("/trips/trip/{tripId}", upcoming, activityJson("a3")).expectStatus().isOk();
+        client.delete().uri("/trips/trip/{tripId}?activityId=a3", upcoming).exchange().expectStatus().isOk();
+        put("/trips/trip/{tripId}/accommodation", upcoming, "{\"id\":\"h1\",\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\",\"priceForAdult\":100}")
+            .expectStatus().isOk();
+
+        client.get().uri("/trips/stats/john").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.trips").isEqualTo(2)
+              .jsonPath("$.upcomingTrips").isEqualTo(1)
+              .jsonPath("$.plannedSpend").isEqualTo(135)
+              .jsonPath("$.activitiesByCategory.CAT").isEqualTo(1)
+              .jsonPath("$.activitiesByCategory['SIGHTS.CITY']").isEqualTo(1);
+        client.get().uri("/trips/stats/jane").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.trips").isEqualTo(0)
+              .jsonPath("$.plannedSpend").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("GET /trips/page/{username} pages through trips with a continuation token")
+    void listTripPage_followsContinuationToken() {
+        createTrip("First", LocalDate.of(2026, 1, 1));
+        createTrip("Second", LocalDate.of(2026, 2, 1));
+
+        AtomicReference<String> continuationToken = new AtomicReference<>();
+        client.get().uri("/trips/page/john?size=1").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.items[0].name").isEqualTo("First")
+              .jsonPath("$.continuationToken").value(continuationToken::set);
+
+        client.get().uri("/trips/page/john?size=1&continuationToken={token}", continuationToken.get()).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.items[0].name").isEqualTo("Second")
+              .jsonPath("$.continuationToken").doesNotExist();
+        client.get().uri("/trips/summary/page/john?size=1&continuationToken={token}", continuationToken.get()).exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.items[0].name").isEqualTo("Second");
+    }
+
+    @Test
+    @DisplayName("GET /trips/trip/{tripId}/activities pages through a day of activities in date order")
+    void listTripActivityPage_filtersSortsAndPages() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String batch = "[" + activityJson(null).replace("2026-01-02", "2026-01-03").replace("Museum", "Late") + "," +
+            activityJson(null) + "," +
+            activityJson(null).replace("Museum", "Gallery") + "," +
+            activityJson(null).replace("T10:00", "T08:00").replace("Museum", "Breakfast") + "]";
+        post("/trips/trip/{tripId}/activities", id, batch).expectStatus().isOk();
+
+        AtomicReference<String> continuationToken = new AtomicReference<>();
+        client.get().uri("/trips/trip/{tripId}/activities?username=john&day=2026-01-02&size=2", id).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.items.length()").isEqualTo(2)
+              .jsonPath("$.items[0].name").isEqualTo("Breakfast")
+              .jsonPath("$.items[1].name").isEqualTo("Museum")
+              .jsonPath("$.continuationToken").value(continuationToken::set);
+        client.get().uri("/trips/trip/{tripId}/activities?username=john&day=2026-01-02&size=2&continuationToken={token}",
+                  id, continuationToken.get()).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.items.length()").isEqualTo(1)
+              .jsonPath("$.items[0].name").isEqualTo("Gallery")
+              .jsonPath("$.continuationToken").doesNotExist();
+        client.get().uri("/trips/trip/{tripId}/activities?username=john&from=2026-01-02T09:00:00", id).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.items[*].name").isEqualTo(List.of("Museum", "Gallery", "Late"));
+        client.get().uri("/trips/trip/{tripId}/activities?username=john&day=2026-02-01", id).exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.items.length()").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("GET /trips/trip/{tripId}/activities answers 404 for another user's trip and 400 for a mixed filter")
+    void listTripActivityPage_rejectsUnknownTripAndMixedFilter() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        client.get().uri("/trips/trip/{tripId}/activities?username=jane", id).exchange()
+              .expectStatus().isNotFound();
+        client.get().uri("/trips/trip/{tripId}/activities?username=john&day=2026-01-02&from=2026-01-02T09:00:00", id).exchange()
+              .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /trips/sync/{username} sends the whole list first and then only what changed or was deleted")
+    void syncTrips_sendsChangesAndDeletionsSinceToken() throws Exception {
+        String kept = createTrip("Kept", LocalDate.of(2026, 1, 1));
+        String changed = createTrip("Changed", LocalDate.of(2026, 2, 1));
+        String deleted = createTrip("Deleted", LocalDate.of(2026, 3, 1));
+        // The settle window is zero, but a change is only handed out once its millisecond has passed
+        Thread.sleep(5);
+
+        AtomicReference<String> syncToken = new AtomicReference<>();
+        client.get().uri("/trips/sync/john").exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.changed.length()").isEqualTo(3)
+              .jsonPath("$.deleted.length()").isEqualTo(0)
+              .jsonPath("$.hasMore").isEqualTo(false)
+              .jsonPath("$.syncToken").value(syncToken::set);
+
+        put("/trips/trip/partial/{tripId}", changed, "{\"name\":\"Renamed\"}").expectStatus().isOk();
+        client.delete().uri("/trips/trip/{tripId}", deleted).header("If-Match", "\"" + deleted + "-1\"").exchange()
+              .expectStatus().isEqualTo(412);
+        client.delete().uri("/trips/trip/{tripId}", deleted).exchange().expectStatus().isOk();
+        client.delete().uri("/trips/trip/{tripId}", deleted).exchange().expectStatus().isNotFound();
+        Thread.sleep(5);
+
+        AtomicReference<String> nextToken = new AtomicReference<>();
+        client.get().uri("/trips/sync/john?size=1&syncToken={token}", syncToken.get()).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.changed[0].id").isEqualTo(changed)
+              .jsonPath("$.changed[0].name").isEqualTo("Renamed")
+              .jsonPath("$.deleted.length()").isEqualTo(0)
+              .jsonPath("$.hasMore").isEqualTo(true)
+              .jsonPath("$.syncToken").value(nextToken::set);
+        client.get().uri("/trips/sync/john?size=1&syncToken={token}", nextToken.get()).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.changed.length()").isEqualTo(0)
+              .jsonPath("$.deleted").isEqualTo(List.of(deleted))
+              .jsonPath("$.hasMore").isEqualTo(false)
+              .jsonPath("$.syncToken").value(nextToken::set);
+        client.get().uri("/trips/sync/john?syncToken={token}", nextToken.get()).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.changed.length()").isEqualTo(0)
+              .jsonPath("$.deleted.length()").isEqualTo(0);
+
+        client.get().uri("/trips/john").exchange()
+              .expectBody().jsonPath("$[*].id").isEqualTo(List.of(kept, changed));
+    }
+
+    @Test
+    @DisplayName("GET /trips/sync/{username} pages through trips modified long ago or never stamped")
+    void syncTrips_pagesThroughOldAndUnstampedTrips() {
+        Date longAgo = Date.from(Instant.now().minus(Duration.ofDays(40)));
+        ObjectId unstamped = new ObjectId();
+        ObjectId old = new ObjectId();
+        ObjectId older = new ObjectId();
+        insertTrips(
+            rawTrip(unstamped, "Unstamped"),
+            rawTrip(old, "Old").append("lastModified", longAgo),
+            rawTrip(older, "Older").append("lastModified", Date.from(longAgo.toInstant().minusSeconds(60))));
+
+        List<String> synced = new ArrayList<>();
+        AtomicReference<String> syncToken = new AtomicReference<>();
+        AtomicReference<Boolean> hasMore = new AtomicReference<>(true);
+        // The first page is sent without a token, and every later one continues from the page before
+        for (int page = 0; hasMore.get(); page++) {
+            String uri = page == 0 ? "/trips/sync/john?size=1" : "/trips/sync/john?size=1&syncToken=" + syncToken.get();
+            client.get().uri(uri).exchange()
+                  .expectStatus().isOk()
+                  .expectBody()
+                  .jsonPath("$.changed[*].id").value((List<String> ids) -> synced.addAll(ids))
+                  .jsonPath("$.hasMore").value(hasMore::set)
+                  .jsonPath("$.syncToken").value(syncToken::set);
+        }
+
+        assertEquals(List.of(unstamped.toHexString(), older.toHexString(), old.toHexString()), synced);
+    }
+
+    @Test
+    @DisplayName("GET /trips/sync/{username} rejects an invalid sync token")
+    void syncTrips_rejectsInvalidToken() {
+        client.get().uri("/trips/sync/john?syncToken=bad").exchange()
+              .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /trips/summary/page/{username} rejects an invalid continuation token")
+    void listTripSummaryPage_rejectsInvalidToken() {
+        client.get().uri("/trips/summary/page/john?continuationToken=bad").exchange()
+              .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /trips/batch/{username} answers every requested id in order with not-found markers")
+    void listTripBatch_answersInRequestOrder() {
+        String beach = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String mountains = createTrip("Mountains", LocalDate.of(2026, 2, 1));
+        put("/trips/trip/{tripId}", beach, activityJson(null)).expectStatus().isOk();
+
+        client.get().uri("/trips/batch/john?tripIds={ids}", String.join(",", mountains, "missing", beach)).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.length()").isEqualTo(3)
+              .jsonPath("$[0].id").isEqualTo(mountains)
+              .jsonPath("$[0].found").isEqualTo(true)
+              .jsonPath("$[0].trip.name").isEqualTo("Mountains")
+              .jsonPath("$[1].id").isEqualTo("missing")
+              .jsonPath("$[1].found").isEqualTo(false)
+              .jsonPath("$[1].trip").doesNotExist()
+              .jsonPath("$[2].trip.activityList.length()").isEqualTo(1);
+        client.get().uri("/trips/summary/batch/john?tripIds={ids}", String.join(",", beach, mountains)).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$[0].trip.name").isEqualTo("Beach")
+              .jsonPath("$[0].trip.activityCount").isEqualTo(1)
+              .jsonPath("$[0].trip.activityList").doesNotExist()
+              .jsonPath("$[1].trip.name").isEqualTo("Mountains");
+        client.get().uri("/trips/summary/batch/mary?tripIds={ids}", beach).exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$[0].found").isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("GET /trips/export/{username} streams every trip of the user as one JSON document per line")
+    void exportTrips_streamsNdjson() {
+        createTrip("Second", LocalDate.of(2026, 2, 1));
+        createTrip("First", LocalDate.of(2026, 1, 1));
+        createTrip("Third", LocalDate.of(2026, 3, 1));
+
+        String body = client.get().uri("/trips/export/john").exchange()
+                            .expectStatus().isOk()
+                            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                            .expectBody(String.class)
+                            .returnResult().getResponseBody();
+
+        assertNotNull(body);
+        List<String> lines = body.lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("{") && lines.get(0).contains("\"name\":\"First\""));
+        assertTrue(lines.get(2).contains("\"name\":\"Third\""));
+        assertTrue(body.endsWith("\n"));
+        client.get().uri("/trips/export/mary").exchange()
+              .expectStatus().isOk()
+              .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("POST /trips/import inserts the valid lines and reports duplicates and invalid lines")
+    void importTrips_reportsEveryLine() {
+        createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String ndjson = String.join("\n",
+            tripJson(null, "Mountains", LocalDate.of(2026, 2, 1), null),
+            "{\"name\":",
+            "",
+            tripJson(null, "Beach", LocalDate.of(2026, 3, 1), null),
+            tripJson(null, "City", LocalDate.of(2026, 4, 1), null).replace("\"startDate\":\"2026-04-01\",", ""),
+            tripJson(null, "Lakes", LocalDate.of(2026, 5, 1), null)) + "\n";
+
+        client.post().uri("/trips/import")
+              .contentType(MediaType.APPLICATION_NDJSON)
+              .bodyValue(ndjson)
+              .exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.inserted").isEqualTo(2)
+              .jsonPath("$.duplicates").isEqualTo(1)
+              .jsonPath("$.invalid").isEqualTo(2)
+              .jsonPath("$.lines[*].line").isEqualTo(List.of(2, 4, 5))
+              .jsonPath("$.lines[*].status").isEqualTo(List.of("INVALID", "DUPLICATE_NAME", "INVALID"))
+              .jsonPath("$.lines[2].error").isEqualTo("startDate must not be null")
+              .jsonPath("$.unreportedFailures").isEqualTo(0);
+        client.get().uri("/trips/john").exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.length()").isEqualTo(3);
+        client.get().uri("/trips/stats/john").exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$.trips").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("POST /trips/import rejects overlong lines unread and only lists the first failed lines")
+    void importTrips_boundsLinesAndReport() {
+        String ndjson = String.join("\r\n",
+            tripJson(null, "Long", LocalDate.of(2026, 1, 1), null).replace("\"Desc\"", "\"" + "x".repeat(IMPORT_MAX_LINE_BYTES) + "\""),
+            tripJson(null, "Mountains", LocalDate.of(2026, 2, 1), null),
+            "{", "[", "nope", "{\"name\":",
+            tripJson(null, "Lakes", LocalDate.of(2026, 5, 1), null));
+
+        client.post().uri("/trips/import")
+              .contentType(MediaType.APPLICATION_NDJSON)
+              .bodyValue(ndjson)
+              .exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.inserted").isEqualTo(2)
+              .jsonPath("$.invalid").isEqualTo(5)
+              .jsonPath("$.lines[*].line").isEqualTo(List.of(1, 3, 4))
+              .jsonPath("$.lines[0].error").isEqualTo("Line longer than " + IMPORT_MAX_LINE_BYTES + " bytes")
+              .jsonPath("$.unreportedFailures").isEqualTo(2);
+        client.get().uri("/trips/john").exchange()
+              .expectStatus().isOk()
+              .expectBody().jsonPath("$[*].name").isEqualTo(List.of("Mountains", "Lakes"));
+    }
+
+    @Test
+    @DisplayName("Trip reads carry an ETag that answers If-None-Match with 304 and guards If-Match writes with 412")
+    void tripETags_supportConditionalRequests() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String initial = "\"" + id + "-0\"";
+
+        client.get().uri("/trips?username=john&tripId={tripId}", id).exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals("ETag", initial)
+              .expectHeader().values("Vary", TripApiContractTest::assertVariesByAccept);
+        client.get().uri("/trips?username=john&tripId={tripId}", id).header("If-None-Match", initial).exchange()
+              .expectStatus().isNotModified()
+              .expectHeader().values("Vary", TripApiContractTest::assertVariesByAccept)
+              .expectBody().isEmpty();
+        client.get().uri("/trips/trip/{tripId}/accommodation", id).header("If-None-Match", initial).exchange()
+              .expectStatus().isNotModified();
+
+        client.put().uri("/trips/trip/{tripId}/travel", id)
+              .contentType(MediaType.APPLICATION_JSON)
+              .header("If-Match", initial)
+              .bodyValue(travelJson("Flight", "PLANE"))
+              .exchange()
+              .expectStatus().isOk();
+        client.put().uri("/trips/trip/{tripId}/travel/update", id)
+              .contentType(MediaType.APPLICATION_JSON)
+              .header("If-Match", initial)
+              .bodyValue(travelJson("Flight", "TRAIN"))
+              .exchange()
+              .expectStatus().isEqualTo(412);
+        client.put().uri("/trips/trip/{tripId}/travel", "missing")
+              .contentType(MediaType.APPLICATION_JSON)
+              .header("If-Match", "\"missing-0\"")
+              .bodyValue(travelJson("Flight", "PLANE"))
+              .exchange()
+              .expectStatus().isNotFound();
+
+        client.get().uri("/trips?username=john&tripId={tripId}", id).header("If-None-Match", initial).exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals("ETag", "\"" + id + "-1\"")
+              .expectBody().jsonPath("$.travelList[0].transport").isEqualTo("PLANE");
+    }
+
+    @Test
+    @DisplayName("Trips, listings and sub-documents are exchanged as CBOR when the client negotiates it")
+    void trips_negotiateCbor() throws Exception {
+        ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+        Trip trip = Jackson2ObjectMapperBuilder.json().build()
+                                               .readValue(tripJson(null, "Beach", LocalDate.of(2026, 1, 1), null), Trip.class);
+
+        String id = client.post().uri("/trips/trip")
+                          .contentType(MediaType.APPLICATION_CBOR)
+                          .bodyValue(cbor.writeValueAsBytes(trip))
+                          .exchange()
+                          .expectStatus().isCreated()
+                          .expectBody(String.class)
+                          .returnResult().getResponseBody();
+        put("/trips/trip/{tripId}/accommodation", id, "{\"id\":\"h1\",\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\",\"priceForAdult\":95.50}")
+            .expectStatus().isOk();
+
+        byte[] single = client.get().uri("/trips?username=john&tripId={tripId}", id).accept(MediaType.APPLICATION_CBOR).exchange()
+                              .expectStatus().isOk()
+                              .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                              .expectBody(byte[].class).returnResult().getResponseBody();
+        Trip read = cbor.readValue(single, Trip.class);
+        assertEquals("Beach", read.name());
+        assertEquals(LocalDate.of(2026, 1, 1), read.startDate());
+        assertEquals(0, new BigDecimal("100").compareTo(read.budget()));
+
+        byte[] listing = client.get().uri("/trips/john").accept(MediaType.APPLICATION_CBOR).exchange()
+                               .expectStatus().isOk()
+                               .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals(List.of(id), Arrays.stream(cbor.readValue(listing, Trip[].class)).map(Trip::id).toList());
+
+        byte[] accommodations = client.get().uri("/trips/trip/{tripId}/accommodation", id).accept(MediaType.APPLICATION_CBOR).exchange()
+                                      .expectStatus().isOk()
+                                      .expectHeader().values("Vary", TripApiContractTest::assertVariesByAccept)
+                                      .expectBody(byte[].class).returnResult().getResponseBody();
+        Accommodation accommodation = cbor.readValue(accommodations, Accommodation[].class)[0];
+        assertEquals("Hotel", accommodation.getName());
+        assertEquals(new BigDecimal("95.50"), accommodation.getPriceForAdult());
+    }
+
+    @Test
+    @DisplayName("JSON and CBOR responses of a trip version carry different strong ETags, and either guards a write")
+    void tripETags_differByRepresentation() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String json = "\"" + id + "-0\"";
+        String cbor = "\"" + id + "-0-cbor\"";
+
+        client.get().uri("/trips?username=john&tripId={tripId}", id).accept(MediaType.APPLICATION_CBOR).exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals("ETag", cbor);
+        client.get().uri("/trips?username=john&tripId={tripId}", id).accept(MediaType.APPLICATION_CBOR)
+              .header("If-None-Match", json).exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals("ETag", cbor);
+        client.get().uri("/trips?username=john&tripId={tripId}", id).header("If-None-Match", cbor).exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals("ETag", json);
+        client.get().uri("/trips/trip/{tripId}/accommodation", id).accept(MediaType.APPLICATION_CBOR)
+              .header("If-None-Match", cbor).exchange()
+              .expectStatus().isNotModified()
+              .expectHeader().valueEquals("ETag", cbor);
+        client.get().uri("/trips/trip/{tripId}/accommodation", id)
+              .accept(MediaType.parseMediaType("application/cbor;q=0.5"), MediaType.APPLICATION_JSON).exchange()
+              .expectStatus().isOk()
+              .expectHeader().valueEquals("ETag", json);
+
+        client.put().uri("/trips/trip/{tripId}/accommodation", id)
+              .contentType(MediaType.APPLICATION_JSON)
+              .header("If-Match", cbor)
+              .bodyValue("{\"id\":\"h1\",\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\"}")
+              .exchange()
+              .expectStatus().isOk();
+        client.get().uri("/trips?username=john&tripId={tripId}", id).accept(MediaType.APPLICATION_CBOR).exchange()
+              .expectHeader().valueEquals("ETag", "\"" + id + "-1-cbor\"");
+    }
+
+    @Test
+    @DisplayName("PUT /trips/trip replaces the trip and rejects a stale version with 409")
+    void updateTrip_replacesAndDetectsConflicts() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        put("/trips/trip", null, tripJson(id, "Renamed", LocalDate.of(2026, 1, 1), 0L)).expectStatus().isOk();
+        put("/trips/trip", null, tripJson(id, "Stale", LocalDate.of(2026, 1, 1), 0L)).expectStatus().isEqualTo(409);
+
+        client.get().uri("/trips/john").exchange()
+              .expectBody()
+              .jsonPath("$[0].name").isEqualTo("Renamed")
+              .jsonPath("$[0].version").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("PUT /trips/trip/partial/{tripId} returns the id, or 404 for an unknown trip")
+    void updateTripPartial_returnsIdOrNotFound() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String body = "{\"name\":\"NewName\",\"startDate\":\"" + LocalDate.of(2026, 1, 2) + "\"}";
+
+        put("/trips/trip/partial/{tripId}", id, body)
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo(id);
+        put("/trips/trip/partial/{tripId}", "missing", body).expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("activities can be added, updated and deleted, and 404 is returned for an unknown trip")
+    void activities_roundTrip() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        put("/trips/trip/{tripId}", id, activityJson("a1"))
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.name").isEqualTo("Museum");
+        put("/trips/activity/{tripId}", id, activityJson("a1").replace("Museum", "Gallery"))
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.id").isEqualTo("a1");
+        put("/trips/trip/{tripId}", "missing", activityJson(null)).expectStatus().isNotFound();
+
+        client.get().uri("/trips/john").exchange()
+              .expectBody()
+              .jsonPath("$[0].activityList.length()").isEqualTo(1)
+              .jsonPath("$[0].activityList[0].name").isEqualTo("Gallery");
+
+        client.delete().uri("/trips/trip/{tripId}?activityId=a1", id).exchange().expectStatus().isOk();
+        client.get().uri("/trips/john").exchange()
+              .expectBody().jsonPath("$[0].activityList.length()").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("POST /trips/trip/{tripId}/activities appends a batch in order with server-side ids")
+    void addActivities_appendsBatchInOrder() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+        String batch = "[" + activityJson("client-id") + "," + activityJson(null).replace("Museum", "Gallery") + "]";
+
+        AtomicReference<List<String>> activityIds = new AtomicReference<>();
+        post("/trips/trip/{tripId}/activities", id, batch)
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$").value(activityIds::set);
+
+        client.get().uri("/trips/john").exchange()
+              .expectBody()
+              .jsonPath("$[0].activityList.length()").isEqualTo(2)
+              .jsonPath("$[0].activityList[0].id").isEqualTo(activityIds.get().get(0))
+              .jsonPath("$[0].activityList[0].name").isEqualTo("Museum")
+              .jsonPath("$[0].activityList[1].id").isEqualTo(activityIds.get().get(1))
+              .jsonPath("$[0].activityList[1].name").isEqualTo("Gallery")
+              .jsonPath("$[0].version").isEqualTo(1);
+        assertNotEquals("client-id", activityIds.get().get(0));
+    }
+
+    @Test
+    @DisplayName("POST /trips/trip/{tripId}/activities rejects an invalid or empty batch and 404s an unknown trip")
+    void addActivities_validatesWholeBatch() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        post("/trips/trip/{tripId}/activities", id, "[" + activityJson(null) + "," + activityJson(null).replace("\"name\":\"Museum\",", "") + "]")
+            .expectStatus().isBadRequest();
+        post("/trips/trip/{tripId}/activities", id, "[]").expectStatus().isBadRequest();
+        post("/trips/trip/{tripId}/activities", "missing", "[" + activityJson(null) + "]").expectStatus().isNotFound();
+
+        client.get().uri("/trips/john").exchange()
+              .expectBody().jsonPath("$[0].activityList.length()").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("accommodations can be added, listed, updated and deleted")
+    void accommodations_roundTrip() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        put("/trips/trip/{tripId}/accommodation", id, "{\"id\":\"h1\",\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\"}")
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo(id);
+        put("/trips/trip/{tripId}/accommodation/update", id, "{\"id\":\"h1\",\"name\":\"Hotel\",\"googlePlaceId\":\"other\"}")
+            .expectStatus().isOk();
+        put("/trips/trip/{tripId}/accommodation", "missing", "{\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\"}")
+            .expectStatus().isNotFound();
+
+        client.get().uri("/trips/trip/{tripId}/accommodation", id).exchange()
+              .expectStatus().isOk()
+              .expectBody()
+              .jsonPath("$.length()").isEqualTo(1)
+              .jsonPath("$[0].googlePlaceId").isEqualTo("other");
+
+        client.delete().uri("/trips/trip/{tripId}/accommodation?accommodationId=h1", id).exchange().expectStatus().isOk();
+        client.get().uri("/trips/trip/{tripId}/accommodation", id).exchange()
+              .expectBody().json("[]");
+    }
+
+    @Test
+    @DisplayName("travels can be added, updated and deleted, and 404 is returned for an unknown trip")
+    void travels_roundTrip() {
+        String id = createTrip("Beach", LocalDate.of(2026, 1, 1));
+
+        put("/trips/trip/{tripId}/travel", id, travelJson("Flight", "PLANE")).expectStatus().isOk();
+        put("/trips/trip/{tripId}/travel/update", id, travelJson("Flight", "TRAIN")).expectStatus().isOk();
+
+        client.get().uri("/trips/john").exchange()
+              .expectBody()
+              .jsonPath("$[0].travelList.length()").isEqualTo(1)
+              .jsonPath("$[0].travelList[0].transport").isEqualTo("TRAIN");
+
+        client.delete().uri("/trips/trip/{tripId}/travel?travelName=Flight", id).exchange().expectStatus().isOk();
+        client.delete().uri("/trips/trip/{tripId}/travel?travelName=Flight", "missing").exchange().expectStatus().isNotFound();
+    }
+
+    // The representation is chosen by Accept, so caches must key tagged responses on it
+    private static void assertVariesByAccept(List<String> vary) {
+        assertTrue(vary.stream().flatMap(value -> Arrays.stream(value.split(","))).map(String::trim).anyMatch("Accept"::equalsIgnoreCase),
+            "Vary should name Accept: " + vary);
+    }
+
+    // Writes trips as stored before this version of the service, bypassing both stacks
+    private void insertTrips(Document... trips) {
+        try (MongoClient mongoClient = MongoClients.create(connectionString)) {
+            mongoClient.getDatabase(database).getCollection("trip").insertMany(List.of(trips));
+        }
+    }
+
+    private static Document rawTrip(ObjectId id, String name) {
+        return new Document("_id", id).append("name", name).append("creatorUsername", "john")
+                                      .append("startDate", Date.from(Instant.parse("2026-01-01T00:00:00Z")))
+                                      .append("endDate", Date.from(Instant.parse("2026-01-05T00:00:00Z"))).append("version", 0L);
+    }
+
+    private String createTrip(String name, LocalDate startDate) {
+        String id = client.post().uri("/trips/trip")
+                          .contentType(MediaType.APPLICATION_JSON)
+                          .bodyValue(tripJson(null, name, startDate, null))
+                          .exchange()
+                          .expectStatus().isCreated()
+                          .expectBody(String.class)
+                          .returnResult().getResponseBody();
+        assertNotNull(id);
+        return id;
+    }
+
+    private WebTestClient.ResponseSpec post(String uri, String tripId, String body) {
+        return client.post().uri(uri, tripId)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .bodyValue(body)
+                     .exchange();
+    }
+
+    private WebTestClient.ResponseSpec put(String uri, String tripId, String body) {
+        return client.put().uri(uri, tripId)
+                     .contentType(MediaType.APPLICATION_JSON)
+                     .bodyValue(body)
+                     .exchange();
+    }
+
+    private static String tripJson(String id, String name, LocalDate startDate, Long version) {
+        return "{" +
+            (id != null ? "\"id\":\"" + id + "\"," : "") +
+            "\"name\":\"" + name + "\"," +
+            "\"description\":\"Desc\"," +
+            "\"creatorUsername\":\"john\"," +
+            "\"creationDate\":\"" + LocalDateTime.of(2025, 12, 1, 10, 0) + "\"," +
+            "\"startDate\":\"" + startDate + "\"," +
+            "\"endDate\":\"" + startDate.plusDays(3) + "\"," +
+            "\"participantUsernames\":[\"john\"]," +
+            "\"accommodations\":[]," +
+            "\"activityList\":[]," +
+            "\"travelList\":[]," +
+            "\"budget\":100" +
+            (version != null ? ",\"version\":" + version : "") +
+            "}";
+    }
+
+    private static String activityJson(String id) {
+        return "{" +
+            (id != null ? "\"id\":\"" + id + "\"," : "") +
+            "\"name\":\"Museum\"," +
+            "\"address\":\"Addr\"," +
+            "\"category\":\"CAT\"," +
+            "\"creatorUsername\":\"john\"," +
+            "\"activityDate\":\"" + LocalDateTime.of(2026, 1, 2, 10, 0) + "\"," +
+            "\"cost\":10}";
+    }
+
+    private static String travelJson(String name, String transport) {
+        return "{" +
+            "\"name\":\"" + name + "\"," +
+            "\"transport\":\"" + transport + "\"," +
+            "\"fromLat\":\"1\",\"fromLng\":\"2\"," +
+            "\"departureDate\":\"" + LocalDateTime.of(2026, 1, 1, 8, 0) + "\"," +
+            "\"toLat\":\"3\",\"toLng\":\"4\"," +
+            "\"arrivalDate\":\"" + LocalDateTime.of(2026, 1, 1, 10, 0) + "\"," +
+            "\"estimatedDuration\":\"2h\",\"distance\":\"100km\"}";
+    }
+}
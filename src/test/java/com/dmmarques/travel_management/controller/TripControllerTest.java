@@ -1,5 +1,11 @@
 package com.dmmarques.travel_management.controller;
 
+import com.dmmarques.travel_management.dto.CostBucketDto;
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyDto;
+import com.dmmarques.travel_management.dto.NearbyPlacesDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.dto.TripSummaryDto;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.model.Trip;
 import com.dmmarques.travel_management.service.TripService;
@@ -11,6 +17,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -59,6 +66,78 @@ class TripControllerTest {
             .andExpect(jsonPath("$[0].name").value(trip.name()));
     }
 
+    @Test
+    @DisplayName("GET /trips/summary/{username} returns trip summaries with counts")
+    void listTripSummariesByUsername_returnsSummaries() throws Exception {
+        TripSummaryDto summary = new TripSummaryDto("t1", "Trip", LocalDate.now(), LocalDate.now().plusDays(3),
+            BigDecimal.TEN, 4, 1, 2, 0L);
+        when(tripService.listTripSummariesByUsername("john")).thenReturn(List.of(summary));
+
+        mockMvc.perform(get("/trips/summary/john"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value("t1"))
+            .andExpect(jsonPath("$[0].activityCount").value(4))
+            .andExpect(jsonPath("$[0].accommodationCount").value(1))
+            .andExpect(jsonPath("$[0].travelCount").value(2))
+            .andExpect(jsonPath("$[0].activityList").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /trips/page/{username} returns a page and its continuation token")
+    void listTripPageByUsername_returnsPage() throws Exception {
+        when(tripService.listTripPageByUsername("john", 1, "abc"))
+            .thenReturn(new TripPageDto<>(List.of(sampleTrip("t1")), "next"));
+
+        mockMvc.perform(get("/trips/page/john").param("size", "1").param("continuationToken", "abc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value("t1"))
+            .andExpect(jsonPath("$.continuationToken").value("next"));
+    }
+
+    @Test
+    @DisplayName("GET /trips/summary/page/{username} rejects an invalid continuation token")
+    void listTripSummaryPageByUsername_rejectsInvalidToken() throws Exception {
+        when(tripService.listTripSummaryPageByUsername("john", 20, "bad"))
+            .thenThrow(new IllegalArgumentException("Invalid continuation token bad"));
+
+        mockMvc.perform(get("/trips/summary/page/john").param("continuationToken", "bad"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /trips/nearby/{username} returns the closest activities with their distance")
+    void listPlacesNearby_returnsPlacesWithDistance() throws Exception {
+        Activity museum = new Activity("a1", "Museum", "Addr", "CULTURE", "john",
+            LocalDateTime.now(), LocalDateTime.now(), null, null, "38.7", "-9.1");
+        when(tripService.listPlacesNearby("john", 38.72, -9.14, 1500.0, 5))
+            .thenReturn(new NearbyPlacesDto(List.of(new NearbyDto<>("t1", "Lisbon", 120.5, museum)), List.of()));
+
+        mockMvc.perform(get("/trips/nearby/john").param("latitude", "38.72").param("longitude", "-9.14")
+                                                 .param("radius", "1500").param("limit", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.activities[0].tripId").value("t1"))
+            .andExpect(jsonPath("$.activities[0].distance").value(120.5))
+            .andExpect(jsonPath("$.activities[0].place.name").value("Museum"))
+            .andExpect(jsonPath("$.activities[0].place.location").doesNotExist())
+            .andExpect(jsonPath("$.accommodations").isEmpty());
+    }
+
+    @Test
+    @DisplayName("GET /trips/trip/{tripId}/costs returns the cost summary, or 404 for an unknown trip")
+    void summarizeTripCosts_returnsSummaryOrNotFound() throws Exception {
+        when(tripService.summarizeTripCosts("t1")).thenReturn(new CostSummaryDto(new BigDecimal("500.00"), new BigDecimal("120.30"),
+            List.of(new CostBucketDto("CULTURE", new BigDecimal("120.30"))), List.of(new CostBucketDto("2026-06-01", new BigDecimal("120.30")))));
+
+        mockMvc.perform(get("/trips/trip/t1/costs"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.budget").value(500.00))
+            .andExpect(jsonPath("$.total").value(120.30))
+            .andExpect(jsonPath("$.byCategory[0].key").value("CULTURE"))
+            .andExpect(jsonPath("$.byDay[0].key").value("2026-06-01"));
+        mockMvc.perform(get("/trips/trip/missing/costs"))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("POST /trips/trip creates a trip and returns id in body")
     void createTrip_returnsCreatedWithId() throws Exception {
@@ -103,7 +182,7 @@ class TripControllerTest {
     void addActivityToTrip_returnsActivity() throws Exception {
         Activity activity = new Activity("a1", "Museum", "Addr", "CAT", "john",
             LocalDateTime.now(), LocalDateTime.now(), new BigDecimal("10.00"), null, null, null);
-        when(tripService.addActivityToTrip(Mockito.eq("t3"), any(Activity.class))).thenReturn(activity);
+        when(tripService.addActivityToTrip(Mockito.eq("t3"), any(Activity.class), isNull())).thenReturn(activity);
 
         String body = "{" +
             "\"name\":\"Museum\"," +
@@ -160,7 +239,7 @@ class TripControllerTest {
     @Test
     @DisplayName("PUT /trips/trip/partial/{tripId} returns OK and body")
     void updateTripPartial_returnsOkWithBody() throws Exception {
-        when(tripService.updateTripWithPartialInfo(eq("t4"), any())).thenReturn("t4");
+        when(tripService.updateTripWithPartialInfo(eq("t4"), any(), isNull())).thenReturn("t4");
 
         String body = "{" +
             "\"name\":\"NewName\"," +
@@ -176,7 +255,7 @@ class TripControllerTest {
     @Test
     @DisplayName("PUT /trips/trip/{tripId}/accommodation adds accommodation")
     void addAccommodation_returnsOk() throws Exception {
-        when(tripService.updateTripWithAccommodation(eq("t5"), any())).thenReturn("t5");
+        when(tripService.updateTripWithAccommodation(eq("t5"), any(), isNull())).thenReturn("t5");
         String body = "{" +
             "\"id\":\"a1\",\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\"}";
         mockMvc.perform(put("/trips/trip/{tripId}/accommodation", "t5")
@@ -189,6 +268,7 @@ class TripControllerTest {
     @Test
     @DisplayName("PUT /trips/trip/{tripId}/accommodation/update updates accommodation")
     void updateAccommodation_returnsOk() throws Exception {
+        when(tripService.updateAccommodationFromTrip(eq("t5"), any(), isNull())).thenReturn(true);
         String body = "{" +
             "\"id\":\"a1\",\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\"}";
         mockMvc.perform(put("/trips/trip/{tripId}/accommodation/update", "t5")
@@ -200,6 +280,7 @@ class TripControllerTest {
     @Test
     @DisplayName("DELETE /trips/trip/{tripId}/accommodation deletes accommodation")
     void deleteAccommodation_returnsOk() throws Exception {
+        when(tripService.deleteAccommodation("t5", "a1")).thenReturn(true);
         mockMvc.perform(delete("/trips/trip/{tripId}/accommodation", "t5")
                 .param("accommodationId", "a1"))
             .andExpect(status().isOk());
@@ -208,6 +289,7 @@ class TripControllerTest {
     @Test
     @DisplayName("GET /trips/trip/{tripId}/accommodation returns list")
     void getAccommodations_returnsList() throws Exception {
+        when(tripService.currentETag("t6")).thenReturn("\"t6-1\"");
         when(tripService.listAllTripAccomodations("t6")).thenReturn(List.of());
         mockMvc.perform(get("/trips/trip/{tripId}/accommodation", "t6"))
             .andExpect(status().isOk())
@@ -217,6 +299,7 @@ class TripControllerTest {
     @Test
     @DisplayName("PUT /trips/activity/{tripId} updates activity and returns payload")
     void updateActivity_returnsPayload() throws Exception {
+        when(tripService.updateActivityFromTrip(eq("t3"), any(Activity.class), isNull())).thenAnswer(invocation -> invocation.getArgument(1));
         String body = "{" +
             "\"id\":\"a1\"," +
             "\"name\":\"Museum\"," +
@@ -235,6 +318,7 @@ class TripControllerTest {
     @Test
     @DisplayName("DELETE /trips/trip/{tripId}?activityId deletes and returns OK")
     void deleteActivity_returnsOk() throws Exception {
+        when(tripService.deleteActivity("t3", "a1")).thenReturn(true);
         mockMvc.perform(delete("/trips/trip/{tripId}", "t3")
                 .param("activityId", "a1"))
             .andExpect(status().isOk());
@@ -243,6 +327,7 @@ class TripControllerTest {
     @Test
     @DisplayName("PUT /trips/trip/{tripId}/travel adds travel")
     void addTravel_returnsOk() throws Exception {
+        when(tripService.addTravelToTrip(eq("t7"), any(), isNull())).thenReturn(true);
         String body = "{" +
             "\"id\":\"tr1\"," +
             "\"name\":\"Flight\"," +
@@ -264,6 +349,7 @@ class TripControllerTest {
     @Test
     @DisplayName("PUT /trips/trip/{tripId}/travel/update updates travel")
     void updateTravel_returnsOk() throws Exception {
+        when(tripService.updateTravelFromTrip(eq("t7"), any(), isNull())).thenReturn(true);
         String body = "{" +
             "\"id\":\"tr1\"," +
             "\"name\":\"Flight\"," +
@@ -285,14 +371,111 @@ class TripControllerTest {
     @Test
     @DisplayName("DELETE /trips/trip/{tripId}/travel deletes travel")
     void deleteTravel_returnsOk() throws Exception {
+        when(tripService.deleteTravelFromTrip("t7", "Flight")).thenReturn(true);
         mockMvc.perform(delete("/trips/trip/{tripId}/travel", "t7")
                 .param("travelName", "Flight"))
             .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("DELETE /trips/trip/{tripId}/travel returns 404 when trip does not exist")
+    void deleteTravel_returnsNotFound() throws Exception {
+        when(tripService.deleteTravelFromTrip("missing", "Flight")).thenReturn(false);
+        mockMvc.perform(delete("/trips/trip/{tripId}/travel", "missing")
+                .param("travelName", "Flight"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("PUT /trips/trip/{tripId} returns 404 when trip does not exist")
+    void addActivityToTrip_returnsNotFound() throws Exception {
+        when(tripService.addActivityToTrip(eq("missing"), any(Activity.class), isNull())).thenReturn(null);
+
+        String body = "{" +
+            "\"name\":\"Museum\"," +
+            "\"address\":\"Addr\"," +
+            "\"category\":\"CAT\"," +
+            "\"activityDate\":\"" + LocalDateTime.now() + "\"}";
+
+        mockMvc.perform(put("/trips/trip/{tripId}", "missing")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("PUT /trips/trip/{tripId}/accommodation returns 404 when trip does not exist")
+    void addAccommodation_returnsNotFound() throws Exception {
+        when(tripService.updateTripWithAccommodation(eq("missing"), any(), isNull())).thenReturn(null);
+        String body = "{" +
+            "\"name\":\"Hotel\",\"googlePlaceId\":\"gpid\"}";
+        mockMvc.perform(put("/trips/trip/{tripId}/accommodation", "missing")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("PUT /trips/trip returns 409 when the trip was modified concurrently")
+    void updateTrip_returnsConflictOnVersionMismatch() throws Exception {
+        Mockito.doThrow(new OptimisticLockingFailureException("Trip tid was modified concurrently."))
+            .when(tripService).updateTrip(any(), isNull());
+
+        String body = "{" +
+            "\"id\":\"tid\"," +
+            "\"name\":\"Trip\"," +
+            "\"startDate\":\"" + LocalDate.now() + "\"," +
+            "\"endDate\":\"" + LocalDate.now().plusDays(3) + "\"," +
+            "\"accommodations\":[]," +
+            "\"activityList\":[]," +
+            "\"travelList\":[]," +
+            "\"version\":2}";
+
+        mockMvc.perform(put("/trips/trip")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("GET /trips?username&tripId tags the trip and answers 304 to a matching If-None-Match without loading it")
+    void getTripByUsernameAndId_honoursIfNoneMatch() throws Exception {
+        when(tripService.currentETag("john", "t2")).thenReturn("\"t2-3\"");
+        when(tripService.listTripByIdAndUsername("john", "t2")).thenReturn(sampleTrip("t2").withVersion(3L));
+
+        mockMvc.perform(get("/trips").param("username", "john").param("tripId", "t2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"t2-3\""));
+        mockMvc.perform(get("/trips").param("username", "john").param("tripId", "t2").header("If-None-Match", "\"t2-3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"t2-3\""))
+            .andExpect(content().string(""));
+
+        Mockito.verify(tripService, Mockito.times(1)).listTripByIdAndUsername("john", "t2");
+    }
+
+    @Test
+    @DisplayName("PUT endpoints pass the If-Match version on and answer 412 when it is stale")
+    void updateTrip_honoursIfMatch() throws Exception {
+        when(tripService.updateTripWithPartialInfo(eq("t4"), any(), eq(2L))).thenReturn("t4");
+        when(tripService.updateTripWithPartialInfo(eq("t4"), any(), eq(1L)))
+            .thenThrow(new OptimisticLockingFailureException("Trip t4 is no longer at version 1."));
+
+        mockMvc.perform(put("/trips/trip/partial/{tripId}", "t4")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"t4-2\"")
+                .content("{\"name\":\"Renamed\"}"))
+            .andExpect(status().isOk());
+        mockMvc.perform(put("/trips/trip/partial/{tripId}", "t4")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"t4-1\"")
+                .content("{\"name\":\"Renamed\"}"))
+            .andExpect(status().isPreconditionFailed());
+    }
+
     private Trip sampleTrip(String id) {
         return new Trip(id, "Trip", "Desc", "john", LocalDateTime.now(),
             LocalDate.now(), LocalDate.now().plusDays(3), List.of("john"),
-            new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), BigDecimal.ZERO);
+            new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), BigDecimal.ZERO, 0L);
     }
 }
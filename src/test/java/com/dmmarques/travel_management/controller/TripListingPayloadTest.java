@@ -0,0 +1,115 @@
+package com.dmmarques.travel_management.controller;
+
+import com.dmmarques.travel_management.dto.TripSummaryDto;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Travel;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.service.TripService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares the response size of the full trip listing against the summary listing for a user with {@value #TRIPS}
+ * trips. Mongo is mocked out, so the sizes are what the web tier writes per response; the serialization time of both
+ * listings is measured by {@code TripListingBenchmark} in the benchmark profile.
+ */
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class TripListingPayloadTest {
+
+    private static final int TRIPS = 250;
+    private static final int ACTIVITIES_PER_TRIP = 20;
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private TripService tripService;
+
+    @InjectMocks
+    private TripController tripController;
+
+    @BeforeEach
+    void setup() {
+        mockMvc = MockMvcBuilders.standaloneSetup(tripController).build();
+    }
+
+    @Test
+    @DisplayName("summary listing is a fraction of the full listing for a user with 200+ trips")
+    void summaryListing_isMuchSmallerThanFullListing() throws Exception {
+        List<Trip> trips = new ArrayList<>();
+        List<TripSummaryDto> summaries = new ArrayList<>();
+        for (int i = 0; i < TRIPS; i++) {
+            Trip trip = trip("t" + i);
+            trips.add(trip);
+            summaries.add(new TripSummaryDto(trip.id(), trip.name(), trip.startDate(), trip.endDate(), trip.budget(),
+                trip.activityList().size(), trip.accommodations().size(), trip.travelList().size(), trip.version()));
+        }
+        when(tripService.listAllTripsByUsername("john")).thenReturn(trips);
+        when(tripService.listTripSummariesByUsername("john")).thenReturn(summaries);
+
+        int full = bytesOf("/trips/john", MediaType.APPLICATION_JSON);
+        int summary = bytesOf("/trips/summary/john", MediaType.APPLICATION_JSON);
+        log.info("Full listing: {} bytes | Summary listing: {} bytes", full, summary);
+
+        assertTrue(summary * 10 < full, "summary payload should be at least 10x smaller");
+    }
+
+    @Test
+    @DisplayName("CBOR full listing is smaller than the same listing as JSON")
+    void cborListing_isSmallerThanJsonListing() throws Exception {
+        List<Trip> trips = new ArrayList<>();
+        for (int i = 0; i < TRIPS; i++) {
+            trips.add(trip("t" + i));
+        }
+        when(tripService.listAllTripsByUsername("john")).thenReturn(trips);
+
+        int json = bytesOf("/trips/john", MediaType.APPLICATION_JSON);
+        int cbor = bytesOf("/trips/john", MediaType.APPLICATION_CBOR);
+        log.info("JSON listing: {} bytes | CBOR listing: {} bytes", json, cbor);
+
+        assertTrue(cbor < json, "CBOR payload should be smaller than JSON");
+    }
+
+    private int bytesOf(String uri, MediaType accept) throws Exception {
+        return mockMvc.perform(get(uri).accept(accept)).andReturn().getResponse().getContentAsByteArray().length;
+    }
+
+    private static Trip trip(String id) {
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < ACTIVITIES_PER_TRIP; i++) {
+            activities.add(new Activity(id + "-a" + i, "Activity " + i, "Some street " + i, "CULTURE", "john",
+                LocalDateTime.now(), LocalDateTime.now().plusDays(i), new BigDecimal("12.50"),
+                "A reasonably long activity description " + i, "38.7223", "-9.1393"));
+        }
+        Accommodation accommodation = new Accommodation();
+        accommodation.setId(id + "-h");
+        accommodation.setName("Hotel");
+        accommodation.setGooglePlaceId("place");
+        accommodation.setAddress("Hotel street");
+        Travel travel = new Travel(id + "-tr", "Flight", "PLANE", "38.7", "-9.1", LocalDateTime.now(), "41.1", "-8.6",
+            LocalDateTime.now().plusHours(1), "1h", "300km", null, null);
+        return new Trip(id, "Trip " + id, "Desc", "john", LocalDateTime.now(), LocalDate.now(),
+            LocalDate.now().plusDays(7), List.of("john"), List.of(accommodation), activities, List.of(travel),
+            new BigDecimal("1500.00"), 3L);
+    }
+}
@@ -0,0 +1,96 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Trip;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ActivityServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 5, 1, 9, 0);
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private TripService tripService;
+    private ActivityService activityService;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trips");
+        tripService = Mockito.mock(TripService.class);
+        activityService = new ActivityService(tripService, mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("activities are listed from the trip of that name, and an unknown trip reads as missing")
+    void listActivityPageByTripName_resolvesTrip() {
+        mongoTemplate.insert(trip("t1", "john", "Beach"));
+        TripPageDto<Activity> page = new TripPageDto<>(List.of(activity("a1")), "next");
+        when(tripService.listTripActivityPage("john", "t1", null, null, null, 20, "token")).thenReturn(page);
+
+        assertSame(page, activityService.listActivityPageByTripName("john", "Beach", 20, "token"));
+        assertNull(activityService.listActivityPageByTripName("jane", "Beach", 20, null));
+        verify(tripService, never()).listTripActivityPage(eq("jane"), anyString(), any(), any(), any(), anyInt(), isNull());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    @DisplayName("a new activity is added to the activity list of its trip, where the trip views read it")
+    void createActivity_addsActivityToTrip() {
+        when(tripService.addActivitiesToTrip(eq("t1"), anyList())).thenReturn(List.of("a1"));
+
+        Activity activity = activity(null);
+        assertEquals("a1", activityService.createActivity("t1", activity));
+
+        ArgumentCaptor<List<Activity>> added = ArgumentCaptor.forClass(List.class);
+        verify(tripService).addActivitiesToTrip(eq("t1"), added.capture());
+        assertEquals(List.of(activity), added.getValue());
+    }
+
+    @Test
+    @DisplayName("an activity of a missing trip is not created, and one without a trip is rejected")
+    void createActivity_requiresExistingTrip() {
+        when(tripService.addActivitiesToTrip(eq("missing"), anyList())).thenReturn(null);
+
+        assertNull(activityService.createActivity("missing", activity(null)));
+        assertThrows(IllegalArgumentException.class, () -> activityService.createActivity(" ", activity(null)));
+    }
+
+    private static Trip trip(String id, String username, String name) {
+        return new Trip(id, name, null, username, LocalDateTime.now(), LocalDate.now(), LocalDate.now().plusDays(3), List.of(username),
+            List.of(), List.of(), List.of(), BigDecimal.valueOf(100), 0L);
+    }
+
+    private static Activity activity(String id) {
+        return new Activity(id, "Activity", "Addr", "CULTURE", "john", null, DAY, null, null, null, null);
+    }
+}
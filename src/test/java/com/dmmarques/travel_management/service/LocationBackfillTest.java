@@ -0,0 +1,109 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.LocationBackfillProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class LocationBackfillTest {
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private TripCache tripCache;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trips");
+        tripCache = Mockito.mock(TripCache.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("stored activities and accommodations get the points of their coordinates")
+    void backfill_setsMissingPoints() {
+        insert(trip("t1", 3L, List.of(place("38.7", "-9.1"), place("north", "west"), place(null, null)),
+            List.of(place("41.1", "-8.6"))));
+        insert(trip("t2", null, List.of(place("40.4", "-3.7")), List.of()));
+        insert(trip("t3", 0L, List.of(), List.of()));
+
+        LocationBackfill.BackfillReport report = backfill(1).backfill();
+
+        assertEquals(new LocationBackfill.BackfillReport(2, 3, 0), report);
+        Trip backfilled = mongoTemplate.findById("t1", Trip.class);
+        assertEquals(new GeoJsonPoint(-9.1, 38.7), backfilled.activityList().get(0).location());
+        assertNull(backfilled.activityList().get(1).location());
+        assertEquals(new GeoJsonPoint(-8.6, 41.1), backfilled.accommodations().get(0).getLocation());
+        assertEquals(4L, backfilled.version());
+        assertNotNull(backfilled.lastModified());
+        assertEquals(new GeoJsonPoint(-3.7, 40.4), mongoTemplate.findById("t2", Trip.class).activityList().get(0).location());
+        verify(tripCache).evict("t1");
+        verify(tripCache).evict("t2");
+    }
+
+    @Test
+    @DisplayName("running the backfill again sets nothing twice")
+    void backfill_isIdempotent() {
+        insert(trip("t1", 0L, List.of(place("38.7", "-9.1")), List.of(place("41.1", "-8.6"))));
+
+        backfill(100).backfill();
+        LocationBackfill.BackfillReport second = backfill(100).backfill();
+
+        assertEquals(new LocationBackfill.BackfillReport(0, 0, 0), second);
+    }
+
+    @Test
+    @DisplayName("the backfill does not run at startup unless enabled")
+    void backfillOnStartup_disabledByDefault() {
+        insert(trip("t1", 0L, List.of(), List.of(place("41.1", "-8.6"))));
+
+        new LocationBackfill(mongoTemplate, tripCache, new LocationBackfillProperties(false, 100)).backfillOnStartup();
+
+        assertNull(mongoTemplate.findById("t1", Trip.class).accommodations().get(0).getLocation());
+        verifyNoInteractions(tripCache);
+    }
+
+    private LocationBackfill backfill(int batchSize) {
+        return new LocationBackfill(mongoTemplate, tripCache, new LocationBackfillProperties(true, batchSize));
+    }
+
+    private void insert(Document trip) {
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Trip.class)).insertOne(trip);
+    }
+
+    // Trips as they were stored before the points were derived
+    private static Document trip(String id, Long version, List<Document> activities, List<Document> accommodations) {
+        Document trip = new Document("_id", id).append("name", "Trip " + id).append("creatorUsername", "john")
+                                               .append("activityList", activities).append("accommodations", accommodations);
+        return version != null ? trip.append("version", version) : trip;
+    }
+
+    private static Document place(String latitude, String longitude) {
+        return new Document("name", "Place").append("latitude", latitude).append("longitude", longitude);
+    }
+}
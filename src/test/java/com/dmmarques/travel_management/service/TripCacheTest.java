@@ -0,0 +1,169 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripCacheProperties;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.repository.TripRepository;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TripCacheTest {
+
+    private TripRepository tripRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong nanos;
+    private TripCache tripCache;
+
+    @BeforeEach
+    void setUp() {
+        tripRepository = Mockito.mock(TripRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        nanos = new AtomicLong();
+        Ticker ticker = nanos::get;
+        tripCache = new TripCache(tripRepository, new TripCacheProperties(true, 2, Duration.ofSeconds(30)), meterRegistry, ticker);
+    }
+
+    @Test
+    @DisplayName("repeated reads of the same trip hit Mongo once")
+    void findById_servesRepeatedReadsFromCache() {
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(trip("t1", "Beach")));
+
+        assertEquals("Beach", tripCache.findById("t1").orElseThrow().name());
+        assertEquals("Beach", tripCache.findById("t1").orElseThrow().name());
+
+        verify(tripRepository, times(1)).findById("t1");
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "trips").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "trips").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("missing trips are not cached")
+    void findById_doesNotCacheMissingTrips() {
+        when(tripRepository.findById("t1")).thenReturn(Optional.empty(), Optional.of(trip("t1", "Beach")));
+
+        assertTrue(tripCache.findById("t1").isEmpty());
+        assertTrue(tripCache.findById("t1").isPresent());
+    }
+
+    @Test
+    @DisplayName("entries expire after the configured TTL")
+    void findById_reloadsAfterTtl() {
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(trip("t1", "Beach")), Optional.of(trip("t1", "Mountains")));
+
+        tripCache.findById("t1");
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertEquals("Mountains", tripCache.findById("t1").orElseThrow().name());
+        verify(tripRepository, times(2)).findById("t1");
+    }
+
+    @Test
+    @DisplayName("the cache never grows past its maximum size")
+    void findById_evictsBeyondMaximumSize() {
+        for (String id : List.of("t1", "t2", "t3", "t4")) {
+            when(tripRepository.findById(id)).thenReturn(Optional.of(trip(id, id)));
+            tripCache.findById(id);
+        }
+
+        assertTrue(tripCache.estimatedSize() <= 2);
+    }
+
+    @Test
+    @DisplayName("evict forces the next read to go to Mongo")
+    void evict_invalidatesEntry() {
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(trip("t1", "Beach")), Optional.of(trip("t1", "Mountains")));
+
+        tripCache.findById("t1");
+        tripCache.evict("t1");
+
+        assertEquals("Mountains", tripCache.findById("t1").orElseThrow().name());
+    }
+
+    @Test
+    @DisplayName("an eviction during an in-flight load neither blocks nor lets the load be cached")
+    void evict_duringLoad_doesNotCacheRacingLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(tripRepository.findById("t1")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(trip("t1", "Beach"));
+        }).thenReturn(Optional.of(trip("t1", "Mountains")));
+
+        CompletableFuture<Optional<Trip>> racingRead = CompletableFuture.supplyAsync(() -> tripCache.findById("t1"));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> tripCache.evict("t1"));
+        release.countDown();
+
+        assertEquals("Beach", racingRead.get(5, TimeUnit.SECONDS).orElseThrow().name());
+        assertEquals("Mountains", tripCache.findById("t1").orElseThrow().name());
+    }
+
+    @Test
+    @DisplayName("a failed load is rethrown and not cached")
+    void findById_rethrowsAndForgetsFailedLoad() {
+        when(tripRepository.findById("t1")).thenThrow(new IllegalStateException("down")).thenReturn(Optional.of(trip("t1", "Beach")));
+
+        assertThrows(IllegalStateException.class, () -> tripCache.findById("t1"));
+        assertEquals("Beach", tripCache.findById("t1").orElseThrow().name());
+    }
+
+    @Test
+    @DisplayName("reads by id are scoped to the trip creator")
+    void findByCreatorUsernameAndId_filtersOtherUsers() {
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(trip("t1", "Beach")));
+
+        assertTrue(tripCache.findByCreatorUsernameAndId("john", "t1").isPresent());
+        assertTrue(tripCache.findByCreatorUsernameAndId("mary", "t1").isEmpty());
+        verify(tripRepository, never()).findByCreatorUsernameAndId(any(), any());
+    }
+
+    @Test
+    @DisplayName("reads by name are served from the id cache and revalidated after a rename")
+    void findByName_revalidatesCachedName() {
+        when(tripRepository.findByName("Beach")).thenReturn(Optional.of(trip("t1", "Beach")), Optional.empty());
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(trip("t1", "Beach")), Optional.of(trip("t1", "Renamed")));
+
+        assertTrue(tripCache.findByName("Beach").isPresent());
+        assertTrue(tripCache.findByName("Beach").isPresent());
+        verify(tripRepository, times(1)).findByName("Beach");
+
+        tripCache.evict("t1");
+        assertTrue(tripCache.findByName("Beach").isEmpty());
+    }
+
+    @Test
+    @DisplayName("a disabled cache always delegates to the repository")
+    void disabledCache_delegatesToRepository() {
+        TripCache disabled = new TripCache(tripRepository, new TripCacheProperties(false, 2, Duration.ofSeconds(30)), meterRegistry);
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(trip("t1", "Beach")));
+
+        disabled.findById("t1");
+        disabled.findById("t1");
+
+        verify(tripRepository, times(2)).findById("t1");
+    }
+
+    private static Trip trip(String id, String name) {
+        return new Trip(id, name, "Desc", "john", LocalDateTime.now(), LocalDate.now(), LocalDate.now().plusDays(3),
+            List.of("john"), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), BigDecimal.ZERO, 1L);
+    }
+}
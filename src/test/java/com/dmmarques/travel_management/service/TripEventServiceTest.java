@@ -0,0 +1,168 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.config.TripEventsProperties;
+import com.dmmarques.travel_management.dto.TripChangeEventDto;
+import com.dmmarques.travel_management.model.Trip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TripEventServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private TripEventService tripEvents;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        tripEvents = new TripEventService(mongoTemplate, new TripEventsProperties(2, Duration.ofSeconds(15), false), new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("a change reaches the subscribers of the trip and of its creator and participants only")
+    void publish_reachesTripAndMembers() throws Exception {
+        TripEventService.Subscription participant = tripEvents.subscribe("jane", null);
+        TripEventService.Subscription outsider = tripEvents.subscribe("mike", null);
+        TripEventService.Subscription trip = tripEvents.subscribe(null, "t1");
+        TripEventService.Subscription otherTrip = tripEvents.subscribe(null, "t2");
+
+        tripEvents.tripChanged(trip("t1", "john", 3L, "john", "jane"), null);
+
+        assertEquals("t1", participant.next(Duration.ZERO).getTripId());
+        assertEquals(3L, trip.next(Duration.ZERO).getVersion());
+        assertNull(outsider.next(Duration.ZERO));
+        assertNull(otherTrip.next(Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("a trip handed to another user is announced to the users it left")
+    void tripChanged_reachesFormerMembers() throws Exception {
+        TripEventService.Subscription former = tripEvents.subscribe("john", null);
+
+        tripEvents.tripChanged(trip("t1", "jane", 4L, "jane"), trip("t1", "john", 3L, "john"));
+
+        TripChangeEventDto event = former.next(Duration.ZERO);
+        assertEquals(TripEvents.CHANGED, event.getType());
+        assertEquals(4L, event.getVersion());
+    }
+
+    @Test
+    @DisplayName("a subscriber that falls behind its buffer is sent a resync in place of its pending events, which ends its stream")
+    void stream_overflowingSubscriberIsToldToResync() throws Exception {
+        TripEventService.Subscription subscription = tripEvents.subscribe("john", null);
+        tripEvents.tripChanged(trip("t1", "john", 1L, "john"), null);
+        tripEvents.tripChanged(trip("t1", "john", 2L, "john"), null);
+        tripEvents.tripChanged(trip("t1", "john", 3L, "john"), null);
+        tripEvents.tripChanged(trip("t1", "john", 4L, "john"), null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tripEvents.stream(subscription, out);
+
+        assertEquals(":\n\nevent:resync\ndata:{\"type\":\"resync\",\"tripId\":null,\"version\":null}\n\n",
+            out.toString(StandardCharsets.UTF_8));
+        assertEquals(0, tripEvents.subscribers());
+    }
+
+    @Test
+    @DisplayName("events are written as server-sent events named after their type until the subscriber is told to resync")
+    void stream_writesEventsUntilResync() throws Exception {
+        TripEventService.Subscription subscription = tripEvents.subscribe(null, "t1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Thread streaming = Thread.ofVirtual().start(() -> {
+            try {
+                tripEvents.stream(subscription, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        tripEvents.tripDeleted(trip("t1", "john", 5L, "john"));
+        while (subscription.pending() > 0) {
+            Thread.sleep(1);
+        }
+        tripEvents.resyncAll();
+        streaming.join(Duration.ofSeconds(5));
+
+        assertEquals(":\n\n" +
+                "event:deleted\ndata:{\"type\":\"deleted\",\"tripId\":\"t1\",\"version\":5}\n\n" +
+                "event:resync\ndata:{\"type\":\"resync\",\"tripId\":null,\"version\":null}\n\n",
+            out.toString(StandardCharsets.UTF_8));
+        assertEquals(0, tripEvents.subscribers());
+    }
+
+    @Test
+    @DisplayName("a write is only read back for its audience while someone is subscribed")
+    void tripChanged_readsTripOnlyWithSubscribers() throws Exception {
+        tripEvents.tripChanged("t1");
+        verifyNoInteractions(mongoTemplate);
+
+        TripEventService.Subscription subscription = tripEvents.subscribe("jane", null);
+        when(mongoTemplate.findOne(any(Query.class), eq(Trip.class))).thenReturn(trip("t1", "john", 2L, "john", "jane"));
+        tripEvents.tripChanged("t1");
+
+        assertEquals(2L, subscription.next(Duration.ZERO).getVersion());
+    }
+
+    @Test
+    @DisplayName("with the change stream enabled, writes are left for the stream to publish")
+    void tripChanged_withChangeStream_publishesNothing() throws Exception {
+        tripEvents = new TripEventService(mongoTemplate, new TripEventsProperties(2, Duration.ofSeconds(15), true), new ObjectMapper());
+        TripEventService.Subscription subscription = tripEvents.subscribe("john", null);
+
+        tripEvents.tripChanged("t1");
+        tripEvents.tripChanged(trip("t1", "john", 1L, "john"), null);
+        tripEvents.tripDeleted(trip("t1", "john", 1L, "john"));
+
+        assertNull(subscription.next(Duration.ZERO));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("change stream events become changes for the members before and after the write")
+    void fromChangeStream_routesToMembers() {
+        ObjectId id = new ObjectId();
+        String tripId = TripEvents.tripIdOf(new BsonDocument("_id", new BsonObjectId(id)));
+        Document after = new Document("creatorUsername", "jane").append("participantUsernames", List.of("jane", "mike")).append("version", 4L);
+        Document before = new Document("creatorUsername", "john").append("version", 3L);
+
+        TripChange updated = TripEvents.fromChangeStream("update", tripId, after, before);
+        assertEquals(id.toHexString(), updated.event().getTripId());
+        assertEquals(TripEvents.CHANGED, updated.event().getType());
+        assertEquals(4L, updated.event().getVersion());
+        assertEquals(Set.of("jane", "mike", "john"), updated.usernames());
+
+        TripChange deleted = TripEvents.fromChangeStream("delete", tripId, null, null);
+        assertEquals(TripEvents.DELETED, deleted.event().getType());
+        assertEquals(Set.of(), deleted.usernames());
+        assertTrue(deleted.reaches(null, tripId));
+
+        assertNull(TripEvents.fromChangeStream("update", tripId, null, null));
+    }
+
+    private static Trip trip(String id, String creator, Long version, String... participants) {
+        return new Trip(id, "Trip " + id, null, creator, LocalDateTime.now(), LocalDate.now(), LocalDate.now().plusDays(3),
+            List.of(participants), List.of(), List.of(), List.of(), BigDecimal.valueOf(100), version);
+    }
+}
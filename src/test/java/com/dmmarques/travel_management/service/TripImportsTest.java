@@ -0,0 +1,63 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.TripImportLineDto;
+import com.dmmarques.travel_management.dto.TripImportReportDto;
+import com.dmmarques.travel_management.service.TripImports.RawLine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripImportsTest {
+
+    @Test
+    @DisplayName("lines split across chunks are joined, CRLF endings are stripped and overlong lines are dropped")
+    void lineSplitter_splitsChunkedBody() {
+        byte[] body = "{\"a\":\"é\"}\r\n0123456789ABC\n\n{}".getBytes(StandardCharsets.UTF_8);
+        TripImports.LineSplitter splitter = new TripImports.LineSplitter(10);
+        List<RawLine> lines = new ArrayList<>();
+        // One byte at a time, so that every boundary, including the middle of a multi-byte character, is crossed
+        for (int i = 0; i < body.length; i++) {
+            lines.addAll(splitter.feed(body, i, 1));
+        }
+        splitter.finish().ifPresent(lines::add);
+
+        assertEquals(List.of(new RawLine(1, "{\"a\":\"é\"}", false), new RawLine(2, null, true), new RawLine(3, "", false),
+            new RawLine(4, "{}", false)), lines);
+        assertTrue(lines.get(2).isBlank());
+        assertFalse(lines.get(1).isBlank());
+    }
+
+    @Test
+    @DisplayName("a body ending with a newline has no trailing empty line")
+    void lineSplitter_finishAfterNewline() {
+        TripImports.LineSplitter splitter = new TripImports.LineSplitter(10);
+        byte[] body = "{}\n".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(List.of(new RawLine(1, "{}", false)), splitter.feed(body, 0, body.length));
+        assertTrue(splitter.finish().isEmpty());
+    }
+
+    @Test
+    @DisplayName("the tally counts every line but lists only the first failures")
+    void tally_capsReportedFailures() {
+        TripImportReportDto report = new TripImports.Tally(2)
+            .add(List.of(line(1, TripImportLineDto.Status.INSERTED), line(2, TripImportLineDto.Status.INVALID)))
+            .add(List.of(line(3, TripImportLineDto.Status.DUPLICATE_NAME), line(4, TripImportLineDto.Status.INVALID)))
+            .report();
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(2, report.getInvalid());
+        assertEquals(List.of(2L, 3L), report.getLines().stream().map(TripImportLineDto::getLine).toList());
+        assertEquals(1, report.getUnreportedFailures());
+    }
+
+    private static TripImportLineDto line(long line, TripImportLineDto.Status status) {
+        return new TripImportLineDto(line, status, null, null);
+    }
+}
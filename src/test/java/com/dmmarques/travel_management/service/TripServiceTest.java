@@ -1,23 +1,66 @@
 package com.dmmarques.travel_management.service;
 
+import com.dmmarques.travel_management.config.TripCacheProperties;
+import com.dmmarques.travel_management.config.TripSyncProperties;
+import com.dmmarques.travel_management.config.TripWriteRetryProperties;
+import com.dmmarques.travel_management.dto.CostBucketDto;
+import com.dmmarques.travel_management.dto.CostSummaryDto;
+import com.dmmarques.travel_management.dto.NearbyPlacesDto;
 import com.dmmarques.travel_management.dto.PartialTripDto;
+import com.dmmarques.travel_management.dto.TripBatchEntryDto;
+import com.dmmarques.travel_management.dto.TripPageDto;
+import com.dmmarques.travel_management.dto.TripScheduleDto;
+import com.dmmarques.travel_management.dto.TripSummaryDto;
 import com.dmmarques.travel_management.model.Accommodation;
 import com.dmmarques.travel_management.model.Activity;
 import com.dmmarques.travel_management.model.Travel;
 import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripTombstone;
 import com.dmmarques.travel_management.repository.TripRepository;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.Decimal128;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Named;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.FieldLookupPolicy;
+import org.springframework.data.mongodb.core.aggregation.TypeBasedAggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,12 +68,30 @@ import static org.mockito.Mockito.*;
 class TripServiceTest {
 
     private TripRepository tripRepository;
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private TripStatsService tripStats;
+    private TripEventService tripEvents;
     private TripService tripService;
 
     @BeforeEach
     void setUp() {
         tripRepository = Mockito.mock(TripRepository.class);
-        tripService = new TripService(tripRepository);
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        tripStats = Mockito.mock(TripStatsService.class);
+        tripEvents = Mockito.mock(TripEventService.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        tripService = tripService(false);
+    }
+
+    private TripService tripService(boolean cacheEnabled) {
+        TripWriteRetrier writeRetrier = new TripWriteRetrier(
+            new TripWriteRetryProperties(3, Duration.ZERO, Duration.ZERO), meterRegistry);
+        TripCache tripCache = new TripCache(tripRepository,
+            new TripCacheProperties(cacheEnabled, 100, Duration.ofMinutes(1)), meterRegistry);
+        return new TripService(tripRepository, mongoTemplate, writeRetrier, tripCache, tripStats, new TripSyncProperties(Duration.ZERO),
+            tripEvents);
     }
 
     @Test
@@ -54,40 +115,145 @@ class TripServiceTest {
     }
 
     @Test
-    void updateTrip_savesTrip() {
+    void updateTrip_withoutVersion_replacesAgainstCurrentVersion() {
         Trip trip = baseTrip().withId("t1").build();
+        when(mongoTemplate.findOne(any(Query.class), eq(Trip.class))).thenReturn(baseTrip().withId("t1").withVersion(4L).build());
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Trip.class))).thenReturn(trip);
+
         tripService.updateTrip(trip);
-        verify(tripRepository).save(trip);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Trip> replacement = ArgumentCaptor.forClass(Trip.class);
+        verify(mongoTemplate).findAndReplace(query.capture(), replacement.capture());
+        assertEquals(4L, query.getValue().getQueryObject().get("version"));
+        assertEquals(5L, replacement.getValue().version());
+        assertNotNull(replacement.getValue().lastModified());
+        // The creator stays the same, so no user sees the trip go
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(TripTombstone.class));
+        verify(tripEvents).tripChanged(replacement.getValue(), trip);
+        verify(tripRepository, never()).save(any());
     }
 
     @Test
-    void updateActivityFromTrip_replacesAndSaves() {
-        Activity a1 = new Activity("a1", "Name", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
-        Trip existing = baseTrip().withId("t1").withActivities(new ArrayList<>(List.of(a1))).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+    void updateTrip_withoutVersion_retriesOnConflictAndCountsIt() {
+        Trip trip = baseTrip().withId("t1").build();
+        when(mongoTemplate.findOne(any(Query.class), eq(Trip.class)))
+            .thenReturn(baseTrip().withId("t1").withVersion(4L).build(), baseTrip().withId("t1").withVersion(5L).build());
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Trip.class))).thenReturn(null, trip);
+
+        tripService.updateTrip(trip);
+
+        ArgumentCaptor<Trip> replacement = ArgumentCaptor.forClass(Trip.class);
+        verify(mongoTemplate, times(2)).findAndReplace(any(Query.class), replacement.capture());
+        assertEquals(6L, replacement.getAllValues().get(1).version());
+        assertEquals(1, meterRegistry.counter("trip.write.conflicts", "operation", "updateTrip").count());
+        assertEquals(1, meterRegistry.counter("trip.write.retries", "operation", "updateTrip").count());
+    }
+
+    @Test
+    void updateTrip_insertsWhenTripDoesNotExist() {
+        Trip trip = baseTrip().withId("t1").build();
+        when(mongoTemplate.findOne(any(Query.class), eq(Trip.class))).thenReturn(null);
+        when(tripRepository.insert(any(Trip.class))).thenReturn(trip);
+
+        tripService.updateTrip(trip);
+
+        verify(tripRepository).insert(any(Trip.class));
+        verify(mongoTemplate, never()).findAndReplace(any(Query.class), any(Trip.class));
+    }
+
+    @Test
+    void updateTrip_withStaleVersion_throwsWithoutRetrying() {
+        Trip trip = baseTrip().withId("t1").withVersion(2L).build();
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Trip.class))).thenReturn(null);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> tripService.updateTrip(trip));
+        verify(mongoTemplate, times(1)).findAndReplace(any(Query.class), any(Trip.class));
+    }
+
+    @Test
+    void updateActivityFromTrip_replacesInPlaceWithPositionalSet() {
+        Activity previous = new Activity("a1", "OldName", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(),
+            new BigDecimal("5"), null, null, null);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Trip.class)))
+            .thenReturn(baseTrip().withId("t1").withActivities(List.of(previous)).build());
 
         Activity updated = new Activity("a1", "NewName", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
         Activity ret = tripService.updateActivityFromTrip("t1", updated);
 
         assertSame(updated, ret);
-        ArgumentCaptor<Trip> captor = ArgumentCaptor.forClass(Trip.class);
-        verify(tripRepository).save(captor.capture());
-        Trip saved = captor.getValue();
-        assertEquals(1, saved.activityList().size());
-        assertEquals("NewName", saved.activityList().get(0).name());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), eq(Trip.class));
+        assertEquals("a1", query.getValue().getQueryObject().get("activityList.id"));
+        // The replaced activity is read back by the write itself, under the id it is stored as
+        assertEquals(new Document("$elemMatch", new Document("_id", "a1")), query.getValue().getFieldsObject().get("activityList"));
+        assertSame(updated, setOf(update.getValue()).get("activityList.$"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Trip.class));
+        verifyNoInteractions(tripRepository);
     }
 
     @Test
-    void updateTripWithAccommodation_addsWithGeneratedId_whenAccommodationsNull() {
-        Trip existing = baseTrip().withId("t1").withAccommodations(null).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+    void updateActivityFromTrip_countsTheReplacedAndTheNewActivity() {
+        Activity previous = new Activity("a1", "OldName", "Addr", "FOOD", "john", LocalDateTime.now(), LocalDateTime.now(),
+            new BigDecimal("5"), null, null, null);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Trip.class)))
+            .thenReturn(baseTrip().withId("t1").withActivities(List.of(previous)).build());
+
+        Activity updated = new Activity("a1", "NewName", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
+        tripService.updateActivityFromTrip("t1", updated);
+
+        verify(tripStats).elementsChanged("t1", List.of(previous), List.of(updated));
+        verify(tripStats, never()).tripChanged(any());
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Trip.class));
+    }
+
+    @Test
+    void updateActivityFromTrip_appendsWhenActivityNotInTrip() {
+        whenUpdated(1);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Trip.class))).thenReturn(null);
+
+        Activity activity = new Activity("a9", "Name", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
+        assertSame(activity, tripService.updateActivityFromTrip("t1", activity));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+        assertSame(activity, pushOf(update.getValue()).get("activityList"));
+        verify(tripStats).elementsChanged("t1", List.of(), List.of(activity));
+    }
+
+    @Test
+    void updateActivityFromTrip_returnsNullWhenTripNotFound() {
+        whenUpdated(0);
+
+        Activity activity = new Activity("a1", "Name", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
+        assertNull(tripService.updateActivityFromTrip("missing", activity));
+    }
+
+    @Test
+    void updateTripWithAccommodation_pushesWithGeneratedId() {
+        whenUpdated(1);
 
         Accommodation acc = new Accommodation();
         acc.setName("Hotel");
 
         String res = tripService.updateTripWithAccommodation("t1", acc);
         assertEquals("t1", res);
-        verify(tripRepository).save(any());
+        assertNotNull(acc.getId());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+        assertSame(acc, pushOf(update.getValue()).get("accommodations"));
+    }
+
+    @Test
+    void updateTripWithAccommodation_returnsNullWhenTripNotFound() {
+        whenUpdated(0);
+
+        Accommodation acc = new Accommodation();
+        acc.setName("Hotel");
+
+        assertNull(tripService.updateTripWithAccommodation("missing", acc));
     }
 
     @Test
@@ -99,51 +265,80 @@ class TripServiceTest {
     }
 
     @Test
-    void addTravelToTrip_addsAndSaves() {
-        Trip existing = baseTrip().withId("t1").withTravels(new ArrayList<>()).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+    void addTravelToTrip_pushesTravel() {
+        whenUpdated(1);
 
         Travel travel = new Travel("id", "Flight", "PLANE", "1", "2", LocalDateTime.now(), "3", "4", LocalDateTime.now(), "2h", "100km", null, null);
-        tripService.addTravelToTrip("t1", travel);
+        assertTrue(tripService.addTravelToTrip("t1", travel));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+        assertSame(travel, pushOf(update.getValue()).get("travelList"));
+        verify(tripRepository, never()).save(any());
+    }
 
-        verify(tripRepository).save(any());
+    @Test
+    void addTravelToTrip_reportsNotFound() {
+        whenUpdated(0);
+
+        Travel travel = new Travel("id", "Flight", "PLANE", "1", "2", LocalDateTime.now(), "3", "4", LocalDateTime.now(), "2h", "100km", null, null);
+        assertFalse(tripService.addTravelToTrip("missing", travel));
     }
 
     @Test
     void updateTravelFromTrip_replacesExistingByName() {
-        Travel t1 = new Travel("id", "Flight", "PLANE", "1", "2", LocalDateTime.now(), "3", "4", LocalDateTime.now(), "2h", "100km", null, null);
-        Trip existing = baseTrip().withId("t1").withTravels(new ArrayList<>(List.of(t1))).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+        whenUpdated(1);
 
         Travel updated = new Travel("id2", "Flight", "PLANE", "1", "2", LocalDateTime.now(), "3", "4", LocalDateTime.now(), "3h", "150km", null, null);
-        tripService.updateTravelFromTrip("t1", updated);
+        assertTrue(tripService.updateTravelFromTrip("t1", updated));
 
-        ArgumentCaptor<Trip> captor = ArgumentCaptor.forClass(Trip.class);
-        verify(tripRepository).save(captor.capture());
-        Trip saved = captor.getValue();
-        assertEquals(1, saved.travelList().size());
-        assertEquals("3h", saved.travelList().get(0).getEstimatedDuration());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), eq(Trip.class));
+        assertEquals("Flight", query.getValue().getQueryObject().get("travelList.name"));
+        assertSame(updated, setOf(update.getValue()).get("travelList.$"));
     }
 
     @Test
-    void deleteAccommodation_removesAndSaves() {
+    void updateAccommodationFromTrip_reportsNotFound() {
+        whenUpdated(0);
+
         Accommodation acc = new Accommodation();
-        acc.setId("a1");
-        Trip existing = baseTrip().withId("t1").withAccommodations(new ArrayList<>(List.of(acc))).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+        acc.setName("Hotel");
 
-        tripService.deleteAccommodation("t1", "a1");
-        verify(tripRepository).save(any());
+        assertFalse(tripService.updateAccommodationFromTrip("missing", acc));
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), eq(Trip.class));
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(Trip.class));
     }
 
     @Test
-    void deleteTravelFromTrip_removesAndSaves() {
-        Travel tr = new Travel("id", "Flight", "PLANE", "1", "2", LocalDateTime.now(), "3", "4", LocalDateTime.now(), "2h", "100km", null, null);
-        Trip existing = baseTrip().withId("t1").withTravels(new ArrayList<>(List.of(tr))).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+    void deleteAccommodation_pullsById() {
+        whenUpdated(1);
+
+        assertTrue(tripService.deleteAccommodation("t1", "a1"));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), eq(Trip.class));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$pull"));
+        verify(tripRepository, never()).save(any());
+    }
+
+    @Test
+    void deleteTravelFromTrip_pullsByName() {
+        whenUpdated(1);
+
+        assertTrue(tripService.deleteTravelFromTrip("t1", "Flight"));
 
-        tripService.deleteTravelFromTrip("t1", "Flight");
-        verify(tripRepository).save(any());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), eq(Trip.class));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$pull"));
+    }
+
+    @Test
+    void deleteTravelFromTrip_reportsNotFound() {
+        whenUpdated(0);
+
+        assertFalse(tripService.deleteTravelFromTrip("missing", "Flight"));
     }
 
     @Test
@@ -153,30 +348,43 @@ class TripServiceTest {
         Trip trip = baseTrip().withName("Summer").build();
 
         //WHEN
-        when(tripRepository.existsByCreatorUsernameAndName(trip.creatorUsername(), trip.name()))
-            .thenReturn(true);
+        when(tripRepository.insert(any(Trip.class))).thenThrow(new DuplicateKeyException(
+            "E11000 duplicate key error collection: trips.trip index: creatorUsername_name dup key"));
 
         //THEN
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> tripService.createTrip(trip));
         assertTrue(ex.getMessage().contains("already exists"));
-        verify(tripRepository, never()).save(any());
+        verify(tripRepository).insert(any(Trip.class));
+        verifyNoMoreInteractions(tripRepository);
     }
 
     @Test
-    @DisplayName("createTrip saves and returns when unique")
-    void createTrip_whenUnique_saves() {
+    @DisplayName("createTrip rethrows duplicate key errors of other indexes")
+    void createTrip_whenDuplicateId_rethrows() {
+        Trip trip = baseTrip().withId("t1").build();
+        when(tripRepository.insert(any(Trip.class))).thenThrow(new DuplicateKeyException(
+            "E11000 duplicate key error collection: trips.trip index: _id_ dup key"));
+
+        assertThrows(DuplicateKeyException.class, () -> tripService.createTrip(trip));
+    }
+
+    @Test
+    @DisplayName("createTrip inserts in a single round trip when unique")
+    void createTrip_whenUnique_inserts() {
         //GIVEN
         Trip trip = baseTrip().withName("Unique").build();
 
         //WHEN
-        when(tripRepository.existsByCreatorUsernameAndName(trip.creatorUsername(), trip.name()))
-            .thenReturn(false);
-        when(tripRepository.save(trip)).thenReturn(trip);
+        when(tripRepository.insert(any(Trip.class))).thenReturn(trip);
 
         //THEN
         Trip saved = tripService.createTrip(trip);
         assertEquals(trip, saved);
-        verify(tripRepository).save(trip);
+        ArgumentCaptor<Trip> inserted = ArgumentCaptor.forClass(Trip.class);
+        verify(tripRepository).insert(inserted.capture());
+        assertNotNull(inserted.getValue().lastModified());
+        verifyNoMoreInteractions(tripRepository);
+        verify(tripStats).tripChanged(trip.id());
     }
 
     @Test
@@ -190,47 +398,428 @@ class TripServiceTest {
     }
 
     @Test
-    @DisplayName("addActivityToTrip adds activity with generated id when missing and saves trip")
-    void addActivityToTrip_generatesIdAndSaves() {
-        Trip existing = baseTrip().withId("t1").build();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @DisplayName("listTripSummariesByUsername projects counts server-side instead of the nested arrays")
+    void listTripSummariesByUsername_projectsCountsServerSide() {
+        TripSummaryDto summary = new TripSummaryDto("t1", "Trip", LocalDate.now(), LocalDate.now().plusDays(2),
+            BigDecimal.TEN, 3, 1, 2, 0L);
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(TripSummaryDto.class)))
+            .thenReturn(new AggregationResults<>(List.of(summary), new Document()));
+
+        assertEquals(List.of(summary), tripService.listTripSummariesByUsername("john"));
+
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(TripSummaryDto.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals("john", ((Document) pipeline.get(0).get("$match")).get("creatorUsername"));
+        Document project = (Document) pipeline.get(1).get("$project");
+        assertFalse(project.containsKey("activityList"));
+        assertFalse(project.containsKey("accommodations"));
+        assertFalse(project.containsKey("travelList"));
+        assertTrue(((Document) project.get("activityCount")).containsKey("$size"));
+        assertTrue(((Document) project.get("accommodationCount")).containsKey("$size"));
+        assertTrue(((Document) project.get("travelCount")).containsKey("$size"));
+        verifyNoInteractions(tripRepository);
+    }
+
+    @Test
+    @DisplayName("listPlacesNearby searches each array's 2dsphere index and only measures the closest trips")
+    void listPlacesNearby_runsGeoNearOnEachArray() {
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        Document nearbyActivity = new Document("tripId", "t1").append("tripName", "Lisbon").append("distance", 120.5)
+            .append("place", new Document("_id", "a1").append("name", "Museum").append("latitude", "38.7").append("longitude", "-9.1")
+                .append("location", new Document("type", "Point").append("coordinates", List.of(-9.1, 38.7))));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Trip.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(nearbyActivity), new Document()))
+            .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        NearbyPlacesDto nearby = tripService.listPlacesNearby("john", 38.7223, -9.1393, 500.0, 1000);
+
+        assertEquals(1, nearby.getActivities().size());
+        assertEquals("t1", nearby.getActivities().get(0).getTripId());
+        assertEquals(120.5, nearby.getActivities().get(0).getDistance());
+        assertEquals("Museum", nearby.getActivities().get(0).getPlace().name());
+        assertTrue(nearby.getAccommodations().isEmpty());
+
+        ArgumentCaptor<Aggregation> aggregations = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(2)).aggregate(aggregations.capture(), eq(Trip.class), eq(Document.class));
+        List<Document> pipeline = pipelineOf(aggregations.getAllValues().get(0));
+        assertEquals(List.of("$geoNear", "$limit", "$unwind", "$match", "$project", "$match", "$sort", "$limit"),
+            pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        Document geoNear = (Document) pipeline.get(0).get("$geoNear");
+        assertEquals("activityList.location", geoNear.get("key"));
+        assertEquals(500.0, geoNear.get("maxDistance"));
+        assertEquals("john", ((Document) geoNear.get("query")).get("creatorUsername"));
+        // The limit is capped, and only that many trips can hold the closest activities
+        assertEquals(100L, ((Number) pipeline.get(1).get("$limit")).longValue());
+        assertEquals(100L, ((Number) pipeline.get(7).get("$limit")).longValue());
+        assertEquals("accommodations.location", ((Document) pipelineOf(aggregations.getAllValues().get(1)).get(0).get("$geoNear")).get("key"));
+    }
+
+    @Test
+    void listPlacesNearby_rejectsInvalidPointOrRadius() {
+        assertThrows(IllegalArgumentException.class, () -> tripService.listPlacesNearby("john", 91, 0, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> tripService.listPlacesNearby("john", 0, 0, -1.0, 10));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("activities and accommodations derive their GeoJSON point from the coordinate strings")
+    void places_deriveLocationFromCoordinates() {
+        Activity activity = new Activity("a1", "Museum", "Addr", "CULTURE", "john",
+            LocalDateTime.now(), LocalDateTime.now(), null, null, "38.7223", "-9.1393");
+        Accommodation accommodation = new Accommodation();
+        accommodation.setLatitude("41.1");
+        accommodation.setLongitude("-8.6");
+
+        assertEquals(List.of(-9.1393, 38.7223), activity.location().getCoordinates());
+        assertEquals(List.of(-8.6, 41.1), accommodation.getLocation().getCoordinates());
+        assertNull(new Activity("a2", "Museum", "Addr", "CULTURE", "john",
+            LocalDateTime.now(), LocalDateTime.now(), null, null, "north", "-9.1").location());
+        assertNull(new Activity("a3", "Museum", "Addr", "CULTURE", "john",
+            LocalDateTime.now(), LocalDateTime.now(), null, null, "95", "-9.1").location());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @DisplayName("listScheduleBetween matches each array on its own index and filters the entries server-side")
+    void listScheduleBetween_filtersEachArrayServerSide() {
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(TripScheduleDto.class)))
+            .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        LocalDateTime from = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+        tripService.listScheduleBetween("john", from, from.plusDays(1));
+
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(TripScheduleDto.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        List<Document> branches = (List<Document>) ((Document) pipeline.get(0).get("$match")).get("$or");
+        assertEquals(List.of("activityList", "travelList", "accommodations"),
+            branches.stream().map(branch -> branch.keySet().stream().filter(key -> !key.equals("creatorUsername")).findFirst().get()).toList());
+        // Every branch carries the username, so each one can be answered by its (creatorUsername, date) index
+        branches.forEach(branch -> assertEquals("john", branch.get("creatorUsername")));
+        Document project = (Document) pipeline.get(2).get("$project");
+        assertTrue(((Document) project.get("activities")).containsKey("$filter"));
+        assertFalse(project.containsKey("activityList"));
+    }
+
+    @Test
+    void listTripsOverlapping_rejectsReversedRange() {
+        assertThrows(IllegalArgumentException.class,
+            () -> tripService.listTripsOverlapping("john", LocalDate.of(2026, 2, 1), LocalDate.of(2026, 1, 1)));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @DisplayName("summarizeTripCosts sums decimal costs by category and day in one aggregation")
+    void summarizeTripCosts_sumsDecimalsServerSide() {
+        Document result = new Document("budget", List.of(new Document("budget", Decimal128.parse("250.10"))))
+            .append("byCategory", List.of(
+                new Document("_id", "ACCOMMODATION").append("total", Decimal128.parse("95.50")),
+                new Document("_id", "CULTURE").append("total", Decimal128.parse("0.30"))))
+            .append("byDay", List.of(new Document("_id", "2026-06-01").append("total", Decimal128.parse("95.80"))));
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(result), new Document()));
+
+        CostSummaryDto summary = tripService.summarizeTripCosts("t1");
+
+        assertEquals(new BigDecimal("250.10"), summary.getBudget());
+        assertEquals(new BigDecimal("95.80"), summary.getTotal());
+        assertEquals(List.of("ACCOMMODATION", "CULTURE"), summary.getByCategory().stream().map(CostBucketDto::getKey).toList());
+        assertEquals(new BigDecimal("95.80"), summary.getByDay().get(0).getTotal());
+
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineOf(aggregation.getValue());
+        assertEquals(List.of("$match", "$project", "$facet"), pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        Document project = (Document) pipeline.get(1).get("$project");
+        assertEquals("decimal", ((Document) ((Document) project.get("budget")).get("$convert")).get("to"));
+        assertTrue(((Document) project.get("costs")).containsKey("$concatArrays"));
+        Document facet = (Document) pipeline.get(2).get("$facet");
+        assertEquals(List.of("budget", "byCategory", "byDay"), List.copyOf(facet.keySet()));
+        assertEquals(new Document("_id", "$costs.day").append("total", new Document("$sum", "$costs.amount")),
+            ((List<Document>) facet.get("byDay")).get(1).get("$group"));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void summarizeCosts_distinguishMissingTripFromUserWithoutTrips() {
+        Document empty = new Document("budget", List.of()).append("byCategory", List.of()).append("byDay", List.of());
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class)))
+            .thenReturn(new AggregationResults<>(List.of(empty), new Document()));
+
+        assertNull(tripService.summarizeTripCosts("missing"));
+        CostSummaryDto summary = tripService.summarizeUserCosts("nobody");
+        assertEquals(BigDecimal.ZERO, summary.getTotal());
+        assertTrue(summary.getByCategory().isEmpty());
+    }
+
+    @Test
+    @DisplayName("toCostSummary keeps the exact decimals the server summed, with unparsable and missing amounts as zero")
+    void toCostSummary_readsDecimal128Totals() {
+        // What the facet returns for a budget of "1000000.01", CULTURE costs "0.1" and "0.2", a FOOD cost "abc" that
+        // $convert turned into zero, and an accommodation without prices or check-in date
+        Document result = new Document("budget", List.of(new Document("_id", null).append("budget", Decimal128.parse("1000000.01"))))
+            .append("byCategory", List.of(
+                new Document("_id", "ACCOMMODATION").append("total", Decimal128.parse("0")),
+                new Document("_id", "CULTURE").append("total", Decimal128.parse("0.3")),
+                new Document("_id", "FOOD").append("total", Decimal128.parse("0"))))
+            .append("byDay", List.of(
+                new Document("_id", null).append("total", Decimal128.parse("0")),
+                new Document("_id", "2026-06-01").append("total", Decimal128.parse("0.3"))));
+
+        CostSummaryDto summary = TripQueries.toCostSummary(result);
+
+        assertEquals(new BigDecimal("1000000.01"), summary.getBudget());
+        assertEquals(new BigDecimal("0.3"), summary.getTotal());
+        assertEquals(List.of(new BigDecimal("0"), new BigDecimal("0.3"), new BigDecimal("0")),
+            summary.getByCategory().stream().map(CostBucketDto::getTotal).toList());
+        assertNull(summary.getByDay().get(0).getKey());
+        assertEquals(new BigDecimal("0.3"), summary.getByDay().get(1).getTotal());
+    }
+
+    @Test
+    @DisplayName("toCostSummary reads totals that are missing or not decimals as zero")
+    void toCostSummary_treatsNonDecimalTotalsAsZero() {
+        Document result = new Document("budget", List.of(new Document("_id", null)))
+            .append("byCategory", List.of(
+                new Document("_id", "CULTURE"),
+                new Document("_id", "FOOD").append("total", 0),
+                new Document("_id", "TRAVEL").append("total", Decimal128.parse("12.50"))))
+            .append("byDay", List.of(new Document("_id", "2026-06-01").append("total", "12.50")));
+
+        CostSummaryDto summary = TripQueries.toCostSummary(result);
+
+        assertEquals(BigDecimal.ZERO, summary.getBudget());
+        assertEquals(new BigDecimal("12.50"), summary.getTotal());
+        assertEquals(List.of(BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal("12.50")),
+            summary.getByCategory().stream().map(CostBucketDto::getTotal).toList());
+        assertEquals(BigDecimal.ZERO, summary.getByDay().get(0).getTotal());
+    }
+
+    @Test
+    @DisplayName("every amount the cost pipeline converts falls back to a decimal zero when unparsable or missing")
+    void tripCostsOf_convertsEveryAmountWithZeroFallback() {
+        List<Document> conversions = new ArrayList<>();
+        collectConversions(pipelineOf(TripQueries.tripCostsOf("t1")).get(1), conversions);
+
+        assertEquals(List.of("$budget", "$$entry.cost", "$$entry.priceForAdult", "$$entry.priceForChild", "$$entry.priceForPet",
+            "$$entry.genTravelCost.totalCost"), conversions.stream().map(conversion -> conversion.get("input")).toList());
+        conversions.forEach(conversion -> {
+            assertEquals("decimal", conversion.get("to"));
+            assertEquals(Decimal128.parse("0"), conversion.get("onError"));
+            assertEquals(Decimal128.parse("0"), conversion.get("onNull"));
+        });
+    }
+
+    @Test
+    @DisplayName("listTripPageByUsername fetches one extra trip to decide whether a next page exists")
+    void listTripPageByUsername_returnsContinuationTokenWhenMoreTripsExist() {
+        Trip first = baseTrip().withId("t1").withStartDate(LocalDate.of(2026, 1, 1)).build();
+        Trip second = baseTrip().withId("t2").withStartDate(LocalDate.of(2026, 2, 1)).build();
+        Trip third = baseTrip().withId("t3").withStartDate(LocalDate.of(2026, 3, 1)).build();
+        when(mongoTemplate.find(any(Query.class), eq(Trip.class))).thenReturn(List.of(first, second, third));
+
+        TripPageDto<Trip> page = tripService.listTripPageByUsername("john", 2, null);
+
+        assertEquals(List.of(first, second), page.getItems());
+        assertEquals(new TripPageCursor(second.startDate(), "t2"), TripPageCursor.decode(page.getContinuationToken()));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Trip.class));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("startDate", 1).append("id", 1), query.getValue().getSortObject());
+        assertFalse(query.getValue().getQueryObject().containsKey("$or"));
+    }
+
+    @Test
+    @DisplayName("listTripPageByUsername seeks past the continuation token instead of skipping")
+    void listTripPageByUsername_seeksPastContinuationToken() {
+        Trip last = baseTrip().withId("t3").withStartDate(LocalDate.of(2026, 3, 1)).build();
+        when(mongoTemplate.find(any(Query.class), eq(Trip.class))).thenReturn(List.of(last));
+        String token = new TripPageCursor(LocalDate.of(2026, 2, 1), "t2").encode();
+
+        TripPageDto<Trip> page = tripService.listTripPageByUsername("john", 2, token);
+
+        assertEquals(List.of(last), page.getItems());
+        assertNull(page.getContinuationToken());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Trip.class));
+        assertEquals(0, query.getValue().getSkip());
+        Document criteria = query.getValue().getQueryObject();
+        assertEquals("john", criteria.get("creatorUsername"));
+        List<?> or = (List<?>) criteria.get("$or");
+        assertEquals(new Document("startDate", new Document("$gt", LocalDate.of(2026, 2, 1))), or.get(0));
+        assertEquals(new Document("startDate", LocalDate.of(2026, 2, 1)).append("id", new Document("$gt", "t2")), or.get(1));
+    }
+
+    @Test
+    void listTripPageByUsername_rejectsInvalidToken() {
+        assertThrows(IllegalArgumentException.class, () -> tripService.listTripPageByUsername("john", 10, "not-a-token"));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void listTripSummaryPageByUsername_pagesBeforeProjecting() {
+        TripSummaryDto summary = new TripSummaryDto("t1", "Trip", LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 3),
+            BigDecimal.TEN, 3, 1, 2, 0L);
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(TripSummaryDto.class)))
+            .thenReturn(new AggregationResults<>(List.of(summary), new Document()));
+
+        TripPageDto<TripSummaryDto> page = tripService.listTripSummaryPageByUsername("john", 500, null);
+
+        assertEquals(List.of(summary), page.getItems());
+        assertNull(page.getContinuationToken());
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(TripSummaryDto.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(List.of("$match", "$sort", "$limit", "$project"),
+            pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        // Page size is capped
+        assertEquals(101L, ((Number) pipeline.get(2).get("$limit")).longValue());
+    }
+
+    @Test
+    @DisplayName("addActivityToTrip pushes activity with generated id when missing")
+    void addActivityToTrip_generatesIdAndPushes() {
         Activity activityWithoutId = new Activity(null, "Museum", "Addr", "CULTURE",
             "john", LocalDateTime.now(), LocalDateTime.now(), new BigDecimal("10.00"), null, null, null);
-
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+        whenUpdated(1);
 
         Activity returned = tripService.addActivityToTrip("t1", activityWithoutId);
 
-        // The service returns the input Activity object (as-is), but saves the trip with a copy containing an id.
+        // The service returns the input Activity object (as-is), but pushes a copy containing an id.
         assertSame(activityWithoutId, returned);
 
-        ArgumentCaptor<Trip> captor = ArgumentCaptor.forClass(Trip.class);
-        verify(tripRepository).save(captor.capture());
-        Trip saved = captor.getValue();
-        assertEquals(1, saved.activityList().size());
-        assertNotNull(saved.activityList().get(0).id());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+        Activity pushed = (Activity) pushOf(update.getValue()).get("activityList");
+        assertNotNull(pushed.id());
+        verifyNoInteractions(tripRepository);
     }
 
     @Test
-    void deleteActivity_removesByIdAndSaves() {
-        Activity a1 = new Activity("a1", "Name", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
-        Activity a2 = new Activity("a2", "Name2", "Addr2", "CAT2", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
-        Trip existing = baseTrip().withId("t1").withActivities(new ArrayList<>(List.of(a1, a2))).build();
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+    void addActivityToTrip_returnsNullWhenTripNotFound() {
+        Activity activity = new Activity("a1", "Museum", "Addr", "CULTURE",
+            "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
+        whenUpdated(0);
 
-        tripService.deleteActivity("t1", "a1");
+        assertNull(tripService.addActivityToTrip("missing", activity));
+    }
+
+    @Test
+    @DisplayName("listTripBatchByUsername issues one $in query and answers in request order")
+    void listTripBatchByUsername_answersInRequestOrder() {
+        when(mongoTemplate.find(any(Query.class), eq(Trip.class))).thenReturn(List.of(
+            baseTrip().withId("t2").withName("Mountains").build(), baseTrip().withId("t1").withName("Beach").build()));
+
+        List<TripBatchEntryDto<Trip>> batch = tripService.listTripBatchByUsername("john", List.of("t1", "missing", "t2", "t1"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).find(query.capture(), eq(Trip.class));
+        assertEquals("john", query.getValue().getQueryObject().get("creatorUsername"));
+        assertEquals(List.of("t1", "missing", "t2"), List.copyOf((Collection<?>) ((Document) query.getValue().getQueryObject().get("id")).get("$in")));
+        assertEquals(List.of("t1", "missing", "t2", "t1"), batch.stream().map(TripBatchEntryDto::getId).toList());
+        assertEquals(List.of(true, false, true, true), batch.stream().map(TripBatchEntryDto::isFound).toList());
+        assertEquals("Beach", batch.get(3).getTrip().name());
+        assertNull(batch.get(1).getTrip());
+    }
+
+    @Test
+    void listTripBatchByUsername_rejectsOversizedBatch() {
+        List<String> tripIds = IntStream.range(0, 101).mapToObj(i -> "t" + i).toList();
+
+        assertThrows(IllegalArgumentException.class, () -> tripService.listTripBatchByUsername("john", tripIds));
+        assertThrows(IllegalArgumentException.class, () -> tripService.listTripSummaryBatchByUsername("john", List.of()));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("addActivitiesToTrip appends the whole batch in one $push $each with fresh ids")
+    void addActivitiesToTrip_pushesBatchInOneUpdate() {
+        List<Activity> activities = List.of(
+            new Activity("client-id", "Museum", "Addr", "CULTURE", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null),
+            new Activity(null, "Gallery", "Addr", "CULTURE", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null));
+        whenUpdated(1);
+
+        List<String> ids = tripService.addActivitiesToTrip("t1", activities);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+        Update.Modifiers modifiers = (Update.Modifiers) pushOf(update.getValue()).get("activityList");
+        Update.Modifier each = modifiers.getModifiers().iterator().next();
+        assertEquals("$each", each.getKey());
+        List<?> pushed = Arrays.asList((Object[]) each.getValue());
+        assertEquals(2, pushed.size());
+        assertEquals(ids, pushed.stream().map(activity -> ((Activity) activity).id()).toList());
+        assertEquals("Gallery", ((Activity) pushed.get(1)).name());
+        assertNotEquals("client-id", ids.get(0));
+        verifyNoInteractions(tripRepository);
+    }
+
+    @Test
+    void addActivitiesToTrip_returnsNullWhenTripNotFound() {
+        whenUpdated(0);
+
+        assertNull(tripService.addActivitiesToTrip("missing", List.of(
+            new Activity(null, "Museum", "Addr", "CULTURE", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null))));
+    }
+
+    @Test
+    void deleteActivity_pullsById() {
+        whenUpdated(1);
+
+        assertTrue(tripService.deleteActivity("t1", "a1"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), eq(Trip.class));
+        assertEquals("t1", query.getValue().getQueryObject().get("id"));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$pull"));
+        verifyNoInteractions(tripRepository);
+    }
+
+    @Test
+    void deleteActivity_reportsNotFound() {
+        whenUpdated(0);
 
-        ArgumentCaptor<Trip> captor = ArgumentCaptor.forClass(Trip.class);
-        verify(tripRepository).save(captor.capture());
-        Trip saved = captor.getValue();
-        assertEquals(1, saved.activityList().size());
-        assertEquals("a2", saved.activityList().get(0).id());
+        assertFalse(tripService.deleteActivity("missing", "a1"));
+    }
+
+    @Test
+    @DisplayName("bytes written per sub-document mutation do not depend on trip size")
+    void subDocumentMutations_writeConstantBytesRegardlessOfTripSize() {
+        whenUpdated(1);
+        Activity activity = new Activity("66f000000000000000000001", "Museum", "Addr", "CULTURE",
+            "john", LocalDateTime.now(), LocalDateTime.now(), new BigDecimal("10.00"), null, null, null);
+
+        List<Integer> writtenBytes = new ArrayList<>();
+        for (int size : List.of(10, 1000)) {
+            Trip existing = baseTrip().withId("t1").withActivities(activities(size)).build();
+            when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+            clearInvocations(mongoTemplate);
+
+            tripService.addActivityToTrip("t1", activity);
+            tripService.updateActivityFromTrip("t1", activity);
+            tripService.deleteActivity("t1", activity.id());
+
+            ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+            verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+            verify(mongoTemplate, times(2)).findAndModify(any(Query.class), update.capture(), eq(Trip.class));
+            writtenBytes.add(update.getAllValues().stream().mapToInt(this::bsonSize).sum());
+        }
+
+        assertEquals(writtenBytes.get(0), writtenBytes.get(1));
+        verify(tripRepository, never()).save(any());
     }
 
     @Test
     @DisplayName("updateTripWithPartialInfo updates provided fields; budget behavior matches current implementation")
     void updateTripWithPartialInfo_updatesFields_perCurrentLogic() {
-        Trip existing = baseTrip().withId("t1").withName("Old").withBudget(new BigDecimal("100.00")).build();
+        Trip existing = baseTrip().withId("t1").withName("Old").withBudget(new BigDecimal("100.00")).withVersion(3L).build();
         when(tripRepository.findById("t1")).thenReturn(Optional.of(existing));
+        whenUpdated(1);
 
         PartialTripDto dto = new PartialTripDto();
         dto.setName("New");
@@ -238,30 +827,197 @@ class TripServiceTest {
         // According to current code, budget is updated only when endDate != null (likely a bug), so keep endDate null
         dto.setBudget(new BigDecimal("200.00"));
 
-        tripService.updateTripWithPartialInfo("t1", dto);
+        assertEquals("t1", tripService.updateTripWithPartialInfo("t1", dto));
 
-        ArgumentCaptor<Trip> captor = ArgumentCaptor.forClass(Trip.class);
-        verify(tripRepository).save(captor.capture());
-        Trip saved = captor.getValue();
-        assertEquals("New", saved.name());
-        assertEquals(existing.endDate(), saved.endDate());
-        assertEquals(existing.startDate().plusDays(1), saved.startDate());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Trip.class));
+        Document set = setOf(update.getValue());
+        assertEquals("New", set.get("name"));
+        assertEquals(existing.endDate(), set.get("endDate"));
+        assertEquals(existing.startDate().plusDays(1), set.get("startDate"));
         // Budget remains unchanged due to current implementation
-        assertEquals(new BigDecimal("100.00"), saved.budget());
+        assertEquals(new BigDecimal("100.00"), set.get("budget"));
+        // Only applies when nobody changed the trip since it was read
+        assertEquals(3L, query.getValue().getQueryObject().get("version"));
 
         // Now set endDate and budget, expect budget to change
         PartialTripDto dto2 = new PartialTripDto();
         dto2.setEndDate(existing.endDate().plusDays(2));
         dto2.setBudget(new BigDecimal("300.00"));
 
-        reset(tripRepository);
-        when(tripRepository.findById("t1")).thenReturn(Optional.of(saved));
+        reset(mongoTemplate);
+        whenUpdated(1);
 
         tripService.updateTripWithPartialInfo("t1", dto2);
-        verify(tripRepository, times(1)).save(any());
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), update.capture(), eq(Trip.class));
+        assertEquals(new BigDecimal("300.00"), setOf(update.getValue()).get("budget"));
+    }
+
+    @Test
+    void updateTripWithPartialInfo_reappliesChangeToFreshStateOnConflict() {
+        Trip stale = baseTrip().withId("t1").withName("Old").withVersion(3L).build();
+        Trip fresh = baseTrip().withId("t1").withName("Renamed elsewhere").withVersion(4L).build();
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Trip.class)))
+            .thenReturn(updateResult(0), updateResult(1));
+
+        PartialTripDto dto = new PartialTripDto();
+        dto.setStartDate(stale.startDate().plusDays(1));
+
+        assertEquals("t1", tripService.updateTripWithPartialInfo("t1", dto));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(query.capture(), update.capture(), eq(Trip.class));
+        assertEquals(4L, query.getAllValues().get(1).getQueryObject().get("version"));
+        assertEquals("Renamed elsewhere", setOf(update.getAllValues().get(1)).get("name"));
+        assertEquals(1, meterRegistry.counter("trip.write.retries", "operation", "updateTripWithPartialInfo").count());
+    }
+
+    @Test
+    void updateTripWithPartialInfo_givesUpAfterMaxAttempts() {
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(baseTrip().withId("t1").withVersion(1L).build()));
+        whenUpdated(0);
+
+        assertThrows(OptimisticLockingFailureException.class,
+            () -> tripService.updateTripWithPartialInfo("t1", new PartialTripDto()));
+        assertEquals(3, meterRegistry.counter("trip.write.conflicts", "operation", "updateTripWithPartialInfo").count());
+        assertEquals(2, meterRegistry.counter("trip.write.retries", "operation", "updateTripWithPartialInfo").count());
+    }
+
+    @Test
+    void updateTripWithPartialInfo_returnsNullWhenTripNotFound() {
+        when(tripRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertNull(tripService.updateTripWithPartialInfo("missing", new PartialTripDto()));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void subDocumentMutations_bumpVersion() {
+        whenUpdated(1);
+
+        tripService.deleteActivity("t1", "a1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), eq(Trip.class));
+        assertEquals(1, ((Document) update.getValue().getUpdateObject().get("$inc")).get("version"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("mutations")
+    @DisplayName("cached trip reads observe every mutation")
+    void cachedReads_areNeverStaleAfterMutation(Consumer<TripService> mutation) {
+        TripService cachingService = tripService(true);
+        Trip before = baseTrip().withId("t1").withName("Before").withVersion(1L).build();
+        Trip after = baseTrip().withId("t1").withName("After").withVersion(2L).build();
+        when(tripRepository.findById("t1")).thenReturn(Optional.of(before), Optional.of(after));
+        when(mongoTemplate.findOne(any(Query.class), eq(Trip.class))).thenReturn(before);
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Trip.class))).thenReturn(before);
+        whenUpdated(1);
+
+        assertEquals("Before", cachingService.listTripByIdAndUsername("john", "t1").name());
+        assertEquals("Before", cachingService.listTripByIdAndUsername("john", "t1").name());
+        mutation.accept(cachingService);
+
+        assertEquals("After", cachingService.listTripByIdAndUsername("john", "t1").name());
+    }
+
+    static Stream<Named<Consumer<TripService>>> mutations() {
+        Activity activity = new Activity("a1", "Museum", "Addr", "CAT", "john", LocalDateTime.now(), LocalDateTime.now(), null, null, null, null);
+        Travel travel = new Travel("tr1", "Flight", "PLANE", "1", "2", LocalDateTime.now(), "3", "4", LocalDateTime.now(), "2h", "100km", null, null);
+        Accommodation accommodation = new Accommodation();
+        accommodation.setName("Hotel");
+        PartialTripDto partial = new PartialTripDto();
+        partial.setName("After");
+        Trip trip = new Trip("t1", "After", "Desc", "john", LocalDateTime.now(), LocalDate.now(), LocalDate.now().plusDays(1),
+            List.of("john"), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), BigDecimal.ZERO, null);
+        return Stream.of(
+            Named.of("updateTrip", service -> service.updateTrip(trip)),
+            Named.of("addActivityToTrip", service -> service.addActivityToTrip("t1", activity)),
+            Named.of("updateActivityFromTrip", service -> service.updateActivityFromTrip("t1", activity)),
+            Named.of("deleteActivity", service -> service.deleteActivity("t1", "a1")),
+            Named.of("updateTripWithPartialInfo", service -> service.updateTripWithPartialInfo("t1", partial)),
+            Named.of("updateTripWithAccommodation", service -> service.updateTripWithAccommodation("t1", accommodation)),
+            Named.of("updateAccommodationFromTrip", service -> service.updateAccommodationFromTrip("t1", accommodation)),
+            Named.of("deleteAccommodation", service -> service.deleteAccommodation("t1", "h1")),
+            Named.of("addTravelToTrip", service -> service.addTravelToTrip("t1", travel)),
+            Named.of("updateTravelFromTrip", service -> service.updateTravelFromTrip("t1", travel)),
+            Named.of("deleteTravelFromTrip", service -> service.deleteTravelFromTrip("t1", "Flight"))
+        );
     }
 
     // --- helpers
+    // Writes to a single element read the trip back as it was, with only that element
+    private void whenUpdated(long matchedCount) {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Trip.class)))
+            .thenReturn(updateResult(matchedCount));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Trip.class)))
+            .thenReturn(matchedCount > 0 ? baseTrip().withId("t1").build() : null);
+    }
+
+    private static UpdateResult updateResult(long matchedCount) {
+        return UpdateResult.acknowledged(matchedCount, matchedCount, null);
+    }
+
+    private static Document setOf(Update update) {
+        return (Document) update.getUpdateObject().get("$set");
+    }
+
+    private static Document pushOf(Update update) {
+        return (Document) update.getUpdateObject().get("$push");
+    }
+
+    private int bsonSize(Update update) {
+        MappingMongoConverter converter = converter();
+        Document mapped = new UpdateMapper(converter)
+            .getMappedObject(update.getUpdateObject(), converter.getMappingContext().getPersistentEntity(Trip.class));
+        return new RawBsonDocument(mapped, new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry()))
+            .getByteBuffer().remaining();
+    }
+
+    // Rendered as MongoTemplate does for an untyped aggregation over trips
+    private static List<Document> pipelineOf(Aggregation aggregation) {
+        MappingMongoConverter converter = converter();
+        return aggregation.toPipeline(new TypeBasedAggregationOperationContext(Trip.class, converter.getMappingContext(),
+            new QueryMapper(converter), FieldLookupPolicy.relaxed()));
+    }
+
+    // Every $convert of an expression tree, in document order
+    private static void collectConversions(Object expression, List<Document> conversions) {
+        if (expression instanceof Document document) {
+            document.forEach((key, value) -> {
+                if (key.equals("$convert")) {
+                    conversions.add((Document) value);
+                } else {
+                    collectConversions(value, conversions);
+                }
+            });
+        } else if (expression instanceof List<?> list) {
+            list.forEach(element -> collectConversions(element, conversions));
+        }
+    }
+
+    private static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private static List<Activity> activities(int count) {
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            activities.add(new Activity("a" + i, "Activity " + i, "Addr", "CAT", "john",
+                LocalDateTime.now(), LocalDateTime.now(), BigDecimal.TEN, null, null, null));
+        }
+        return activities;
+    }
+
     private TripBuilder baseTrip() {
         return new TripBuilder()
             .withId(null)
@@ -291,6 +1047,7 @@ class TripServiceTest {
         private List<Activity> activities;
         private List<Travel> travels;
         private BigDecimal budget;
+        private Long version;
 
         TripBuilder withId(String id) { this.id = id; return this; }
         TripBuilder withName(String name) { this.name = name; return this; }
@@ -304,10 +1061,11 @@ class TripServiceTest {
         TripBuilder withActivities(List<Activity> activities) { this.activities = activities; return this; }
         TripBuilder withTravels(List<Travel> travels) { this.travels = travels; return this; }
         TripBuilder withBudget(BigDecimal budget) { this.budget = budget; return this; }
+        TripBuilder withVersion(Long version) { this.version = version; return this; }
 
         Trip build() {
             return new Trip(id, name, description, creatorUsername, creationDate, startDate, endDate,
-                participants, accommodations, activities, travels, budget);
+                participants, accommodations, activities, travels, budget, version);
         }
     }
 }
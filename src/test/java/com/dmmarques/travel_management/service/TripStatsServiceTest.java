@@ -0,0 +1,256 @@
+package com.dmmarques.travel_management.service;
+
+import com.dmmarques.travel_management.dto.UserTripStatsDto;
+import com.dmmarques.travel_management.model.Accommodation;
+import com.dmmarques.travel_management.model.Activity;
+import com.dmmarques.travel_management.model.Trip;
+import com.dmmarques.travel_management.model.TripStatsEntry;
+import com.dmmarques.travel_management.model.UserTripStats;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripStatsServiceTest {
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private TripStatsService tripStats;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trips");
+        tripStats = new TripStatsService(mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("a change is counted once, however often it is reported")
+    void tripChanged_countsEachVersionOnce() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().plusDays(1), 0L, activity("CULTURE", "12.5")));
+        tripStats.tripChanged("t1");
+        tripStats.tripChanged("t1");
+
+        UserTripStatsDto stats = tripStats.statsOf("john");
+        assertEquals(1, stats.getTrips());
+        assertEquals(1, stats.getUpcomingTrips());
+        assertEquals(0, new BigDecimal("12.5").compareTo(stats.getPlannedSpend()));
+        assertEquals(Map.of("CULTURE", 1L), stats.getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("a newer version replaces what the previous one counted, and a stale one is ignored")
+    void tripChanged_replacesPreviousVersion() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().minusDays(1), 0L, activity("CULTURE", "10")));
+        tripStats.tripChanged("t1");
+        replace(trip("t1", "john", LocalDate.now().minusDays(1), 2L, activity("FOOD", "4"), activity("FOOD", "6.5")));
+        tripStats.tripChanged("t1");
+        replace(trip("t1", "john", LocalDate.now().minusDays(1), 1L, activity("CULTURE", "99")));
+        tripStats.tripChanged("t1");
+
+        UserTripStatsDto stats = tripStats.statsOf("john");
+        assertEquals(1, stats.getTrips());
+        assertEquals(0, stats.getUpcomingTrips());
+        assertEquals(0, new BigDecimal("10.5").compareTo(stats.getPlannedSpend()));
+        assertEquals(Map.of("FOOD", 2L), stats.getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("a trip that changes hands moves between its users' statistics")
+    void tripChanged_movesTripBetweenUsers() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now(), 0L, activity("CULTURE", "10")));
+        tripStats.tripChanged("t1");
+        replace(trip("t1", "jane", LocalDate.now(), 1L, activity("CULTURE", "10")));
+        tripStats.tripChanged("t1");
+
+        assertEquals(0, tripStats.statsOf("john").getTrips());
+        assertEquals(Map.of(), tripStats.statsOf("john").getActivitiesByCategory());
+        assertEquals(1, tripStats.statsOf("jane").getTrips());
+        assertEquals(1, tripStats.statsOf("jane").getUpcomingTrips());
+    }
+
+    @Test
+    @DisplayName("a deleted trip is no longer counted, and a repeated deletion changes nothing")
+    void tripDeleted_removesWhatTheTripCounted() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().plusDays(1), 0L, activity("CULTURE", "10")));
+        mongoTemplate.insert(trip("t2", "john", LocalDate.now().plusDays(1), 0L, activity("FOOD", "4")));
+        tripStats.tripChanged("t1");
+        tripStats.tripChanged("t2");
+        mongoTemplate.remove(TripQueries.byTripId("t1"), Trip.class);
+
+        tripStats.tripDeleted("t1");
+        tripStats.tripDeleted("t1");
+
+        UserTripStatsDto stats = tripStats.statsOf("john");
+        assertEquals(1, stats.getTrips());
+        assertEquals(1, stats.getUpcomingTrips());
+        assertEquals(0, new BigDecimal("4").compareTo(stats.getPlannedSpend()));
+        assertEquals(Map.of("FOOD", 1L), stats.getActivitiesByCategory());
+        assertEquals(1, mongoTemplate.findAll(TripStatsEntry.class).size());
+    }
+
+    @Test
+    @DisplayName("a changed element increments the trip's entry and its user's statistics without reading the trip")
+    void elementsChanged_incrementsByTheChangedElements() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().plusDays(1), 0L, activity("CULTURE", "10")));
+        tripStats.tripChanged("t1");
+        // The trip itself is left alone: only the elements the write added and removed are counted
+        Accommodation hotel = new Accommodation();
+        hotel.setPriceForAdult(new BigDecimal("100"));
+        hotel.setPriceForChild(new BigDecimal("20.5"));
+
+        tripStats.elementsChanged("t1", List.of(activity("CULTURE", "10")), List.of(activity("FOOD", "25")));
+        tripStats.elementsChanged("t1", List.of(), List.of(hotel));
+
+        UserTripStatsDto stats = tripStats.statsOf("john");
+        assertEquals(1, stats.getTrips());
+        assertEquals(0, new BigDecimal("145.5").compareTo(stats.getPlannedSpend()));
+        assertEquals(Map.of("FOOD", 1L), stats.getActivitiesByCategory());
+        TripStatsEntry entry = mongoTemplate.findById("t1", TripStatsEntry.class);
+        assertEquals(0, new BigDecimal("145.5").compareTo(entry.plannedSpend()));
+        assertEquals(Map.of("CULTURE", 0L, "FOOD", 1L), entry.activitiesByCategory());
+
+        // A later write to the whole trip is counted against the incremented entry
+        replace(trip("t1", "john", LocalDate.now().plusDays(1), 2L, activity("FOOD", "25")));
+        tripStats.tripChanged("t1");
+        assertEquals(0, new BigDecimal("25").compareTo(tripStats.statsOf("john").getPlannedSpend()));
+        assertEquals(Map.of("FOOD", 1L), tripStats.statsOf("john").getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("a changed element of a trip not counted yet counts the whole trip")
+    void elementsChanged_countsUncountedTripWhole() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().plusDays(1), 1L, activity("CULTURE", "10")));
+
+        tripStats.elementsChanged("t1", List.of(), List.of(activity("CULTURE", "10")));
+
+        UserTripStatsDto stats = tripStats.statsOf("john");
+        assertEquals(1, stats.getTrips());
+        assertEquals(0, BigDecimal.TEN.compareTo(stats.getPlannedSpend()));
+        assertEquals(Map.of("CULTURE", 1L), stats.getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("trips inserted in bulk are counted from the trips as written, and later changes count against them")
+    void tripsInserted_countsTripsAsWritten() {
+        Trip beach = trip("t1", "john", LocalDate.now().plusDays(1), 0L, activity("CULTURE", "10"));
+        Trip lakes = trip("t2", "john", LocalDate.now().minusDays(1), 0L, activity("FOOD", "4"));
+        Trip city = trip("t3", "jane", LocalDate.now().plusDays(1), 0L);
+        mongoTemplate.insertAll(List.of(beach, lakes, city));
+
+        tripStats.tripsInserted(List.of(beach, lakes, city));
+
+        UserTripStatsDto john = tripStats.statsOf("john");
+        assertEquals(2, john.getTrips());
+        assertEquals(1, john.getUpcomingTrips());
+        assertEquals(0, new BigDecimal("14").compareTo(john.getPlannedSpend()));
+        assertEquals(Map.of("CULTURE", 1L, "FOOD", 1L), john.getActivitiesByCategory());
+        assertEquals(1, tripStats.statsOf("jane").getTrips());
+        assertEquals(3, mongoTemplate.findAll(TripStatsEntry.class).size());
+
+        replace(trip("t2", "john", LocalDate.now().minusDays(1), 1L));
+        tripStats.tripChanged("t2");
+        assertEquals(Map.of("CULTURE", 1L), tripStats.statsOf("john").getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("categories that are not valid field names are escaped and read back unchanged")
+    void tripChanged_escapesCategories() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now(), 0L, activity("SIGHTS.CITY", "1"), activity("$100%", "1")));
+        tripStats.tripChanged("t1");
+
+        assertEquals(Map.of("SIGHTS.CITY", 1L, "$100%", 1L), tripStats.statsOf("john").getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("the rebuild recomputes drifted statistics from the trips")
+    void rebuildAll_correctsDrift() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().plusDays(1), 0L, activity("CULTURE", "10")));
+        mongoTemplate.insert(trip("t2", "john", LocalDate.now().minusDays(1), 0L));
+        mongoTemplate.save(new UserTripStats("john", 7, Map.of(), new BigDecimal("-3"), Map.of("FOOD", 4L)));
+
+        tripStats.rebuildAll();
+
+        UserTripStatsDto stats = tripStats.statsOf("john");
+        assertEquals(2, stats.getTrips());
+        assertEquals(1, stats.getUpcomingTrips());
+        assertEquals(0, BigDecimal.TEN.compareTo(stats.getPlannedSpend()));
+        assertEquals(Map.of("CULTURE", 1L), stats.getActivitiesByCategory());
+        assertEquals(2, mongoTemplate.findAll(TripStatsEntry.class).size());
+
+        // Later changes are counted against the rebuilt entries
+        replace(trip("t2", "john", LocalDate.now().minusDays(1), 1L, activity("CULTURE", "5")));
+        tripStats.tripChanged("t2");
+        assertEquals(Map.of("CULTURE", 2L), tripStats.statsOf("john").getActivitiesByCategory());
+    }
+
+    @Test
+    @DisplayName("the rebuild drops what deleted trips counted, including for users without trips left")
+    void rebuildAll_dropsDeletedTrips() {
+        mongoTemplate.insert(trip("t1", "john", LocalDate.now().plusDays(1), 0L, activity("CULTURE", "10")));
+        mongoTemplate.insert(trip("t2", "jane", LocalDate.now().plusDays(1), 0L, activity("FOOD", "4")));
+        tripStats.tripChanged("t1");
+        tripStats.tripChanged("t2");
+        // Deleted without the statistics being told, e.g. because updating them failed
+        mongoTemplate.remove(TripQueries.byTripId("t1"), Trip.class);
+        mongoTemplate.save(new TripStatsEntry("t9", "jane", 0L, LocalDate.now(), BigDecimal.ONE, Map.of("FOOD", 1L)));
+
+        tripStats.rebuildAll();
+
+        UserTripStatsDto john = tripStats.statsOf("john");
+        assertEquals(0, john.getTrips());
+        assertEquals(0, BigDecimal.ZERO.compareTo(john.getPlannedSpend()));
+        assertEquals(Map.of(), john.getActivitiesByCategory());
+        assertEquals(1, tripStats.statsOf("jane").getTrips());
+        assertEquals(List.of("t2"), mongoTemplate.findAll(TripStatsEntry.class).stream().map(TripStatsEntry::tripId).toList());
+    }
+
+    @Test
+    @DisplayName("a user without statistics reads as having no trips")
+    void statsOf_unknownUser_isEmpty() {
+        UserTripStatsDto stats = tripStats.statsOf("nobody");
+
+        assertEquals("nobody", stats.getUsername());
+        assertEquals(0, stats.getTrips());
+        assertEquals(BigDecimal.ZERO, stats.getPlannedSpend());
+        assertEquals(Map.of(), stats.getActivitiesByCategory());
+    }
+
+    // Writes the given version as is, the way the trip service's replacements and updates leave it
+    private void replace(Trip trip) {
+        mongoTemplate.replace(TripQueries.byTripId(trip.id()), trip);
+    }
+
+    private static Trip trip(String id, String username, LocalDate startDate, Long version, Activity... activities) {
+        return new Trip(id, "Trip " + id, null, username, LocalDateTime.now(), startDate, startDate.plusDays(3), List.of(username),
+            List.of(), List.of(activities), List.of(), BigDecimal.valueOf(100), version);
+    }
+
+    private static Activity activity(String category, String cost) {
+        return new Activity(null, "Activity", "Addr", category, "john", null, LocalDateTime.now(), new BigDecimal(cost), null,
+            null, null);
+    }
+}